@@ -0,0 +1,145 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible synthetic collections of keys for the benchmarks.
+ *
+ * Every corpus is generated from a fixed seed, so runs on different machines or versions index the same keys.
+ */
+public enum Corpus {
+
+    /**
+     * Keys of uniformly random chars over a 26 symbol alphabet
+     */
+    RANDOM {
+        String next(Random random) {
+            return randomString(random, "abcdefghijklmnopqrstuvwxyz", 20 + random.nextInt(40));
+        }
+    },
+    /**
+     * Keys of uniformly random chars over a 4 symbol alphabet, which give deep trees with long repeats
+     */
+    DNA {
+        String next(Random random) {
+            return randomString(random, "ACGT", 40 + random.nextInt(80));
+        }
+    },
+    /**
+     * Keys made of words drawn from a Zipf-distributed vocabulary, resembling product titles or short sentences
+     */
+    TEXT {
+        String next(Random random) {
+            StringBuilder ret = new StringBuilder();
+            int words = 3 + random.nextInt(8);
+            for (int i = 0; i < words; ++i) {
+                if (i > 0) {
+                    ret.append(' ');
+                }
+                ret.append(VOCABULARY[zipf(random, VOCABULARY.length)]);
+            }
+            return ret.toString();
+        }
+    };
+
+    private static final long SEED = 20121015L;
+    private static final String[] VOCABULARY = vocabulary(2000);
+
+    abstract String next(Random random);
+
+    /**
+     * Returns the first <tt>size</tt> keys of this corpus.
+     */
+    public List<String> keys(int size) {
+        Random random = new Random(SEED + ordinal());
+        List<String> ret = new ArrayList<String>(size);
+        for (int i = 0; i < size; ++i) {
+            ret.add(next(random));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns <tt>count</tt> substrings of the given keys, each <tt>length</tt> chars long (or the whole key, if shorter).
+     */
+    public static List<String> hits(List<String> keys, int length, int count) {
+        Random random = new Random(SEED + length);
+        List<String> ret = new ArrayList<String>(count);
+        for (int i = 0; i < count; ++i) {
+            String key = keys.get(random.nextInt(keys.size()));
+            int begin = key.length() <= length ? 0 : random.nextInt(key.length() - length + 1);
+            ret.add(key.substring(begin, Math.min(key.length(), begin + length)));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns <tt>count</tt> strings, each <tt>length</tt> chars long, that are unlikely to be found in any key.
+     */
+    public static List<String> misses(int length, int count) {
+        Random random = new Random(SEED - length);
+        List<String> ret = new ArrayList<String>(count);
+        for (int i = 0; i < count; ++i) {
+            ret.add(randomString(random, "0123456789", length));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the given keys as lists of chars, as needed by GeneralizedSuffixTree
+     */
+    public static List<List<Character>> toLists(List<String> keys) {
+        List<List<Character>> ret = new ArrayList<List<Character>>(keys.size());
+        for (String key : keys) {
+            List<Character> list = new ArrayList<Character>(key.length());
+            for (int i = 0; i < key.length(); ++i) {
+                list.add(key.charAt(i));
+            }
+            ret.add(list);
+        }
+        return ret;
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        char[] ret = new char[length];
+        for (int i = 0; i < length; ++i) {
+            ret[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(ret);
+    }
+
+    /**
+     * Returns a rank in [0, n), with probability inversely proportional to the rank
+     */
+    private static int zipf(Random random, int n) {
+        // inverse of the cumulative distribution of 1/x, which is close enough to a zipf law with exponent 1
+        return Math.min(n - 1, (int) Math.floor(Math.exp(random.nextDouble() * Math.log(n + 1)) - 1));
+    }
+
+    private static String[] vocabulary(int size) {
+        Random random = new Random(SEED);
+        String[] ret = new String[size];
+        for (int i = 0; i < size; ++i) {
+            // frequent words tend to be short
+            ret[i] = randomString(random, "etaoinshrdlcumwfgypbvkjxqz".substring(0, 10 + random.nextInt(16)), 2 + Math.min(10, i / 100 + random.nextInt(4)));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures what keeping counts in the nodes costs puts, and what it saves searches.
+ *
+ * A put counts its index in every subtree that gets it, going up from each node it is added to until one
+ * that has it already. putIntoBuiltTree and putAllIntoBuiltTree add BATCH keys to a tree that holds
+ * <tt>size</tt> keys already, where those walks are the longest. Each invocation starts from a tree of its
+ * own, so they are timed one at a time: divide the score by BATCH to get the cost of a put.
+ *
+ * searchWithCount counts the matches of short queries, found in most keys, without visiting them. search
+ * answers the same queries by collecting every match, which is what counting would take without the counts.
+ */
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class CountBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int QUERIES = 256;
+    /**
+     * The length of the queries, short enough for most of them to match a large share of the keys
+     */
+    private static final int QUERY_LENGTH = 2;
+
+    @Param({"RANDOM", "DNA", "TEXT"})
+    public Corpus corpus;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private List<String> keys;
+    private List<String> batch;
+    private int[] batchIndexes;
+    private CharSuffixTree tree;
+    private String[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> all = corpus.keys(size + BATCH);
+        keys = new ArrayList<String>(all.subList(0, size));
+        batch = new ArrayList<String>(all.subList(size, size + BATCH));
+        batchIndexes = new int[BATCH];
+        for (int i = 0; i < BATCH; ++i) {
+            batchIndexes[i] = size + i;
+        }
+        tree = build();
+        queries = Corpus.hits(keys, QUERY_LENGTH, QUERIES).toArray(new String[QUERIES]);
+    }
+
+    private CharSuffixTree build() {
+        CharSuffixTree ret = new CharSuffixTree();
+        for (int i = 0; i < keys.size(); ++i) {
+            ret.put(keys.get(i), i);
+        }
+        return ret;
+    }
+
+    /**
+     * A tree holding the keys of the corpus, built again for each invocation
+     */
+    @State(Scope.Thread)
+    public static class Built {
+
+        private CharSuffixTree tree;
+
+        @Setup(Level.Invocation)
+        public void setUp(CountBenchmark benchmark) {
+            tree = benchmark.build();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public CharSuffixTree putIntoBuiltTree(Built built) {
+        for (int i = 0; i < BATCH; ++i) {
+            built.tree.put(batch.get(i), batchIndexes[i]);
+        }
+        return built.tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public CharSuffixTree putAllIntoBuiltTree(Built built) {
+        built.tree.putAll(batch, batchIndexes);
+        return built.tree;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @OperationsPerInvocation(QUERIES)
+    public void searchWithCount(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(tree.searchWithCount(query, 10).totalResults);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @OperationsPerInvocation(QUERIES)
+    public void searchAllToCount(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(tree.search(query, -1).size());
+        }
+    }
+}
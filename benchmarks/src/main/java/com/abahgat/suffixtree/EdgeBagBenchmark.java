@@ -0,0 +1,144 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures edge lookups and inserts on nodes of different fan-out.
+ *
+ * Besides EdgeBag.get, it times a linear scan and a binary search over the same sorted symbols,
+ * which is what EdgeBag.BSEARCH_THRESHOLD chooses between: the threshold should be the largest
+ * fan-out at which the linear scan is still faster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EdgeBagBenchmark {
+
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1", "2", "4", "6", "8", "12", "16", "20", "24", "32", "64", "256"})
+    public int fanOut;
+
+    private EdgeBag bag;
+    private int[] symbols;
+    private int[] lookups;
+    private int[] insertions;
+    private final Edge edge = new Edge(0, 1, null);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(fanOut);
+        // pick the symbols among the first 512 chars, as the children of a node would in a text corpus
+        int[] alphabet = new int[512];
+        for (int i = 0; i < alphabet.length; ++i) {
+            alphabet[i] = i;
+        }
+        for (int i = alphabet.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int swap = alphabet[i];
+            alphabet[i] = alphabet[j];
+            alphabet[j] = swap;
+        }
+        symbols = Arrays.copyOf(alphabet, fanOut);
+        insertions = symbols.clone();
+
+        bag = EdgeBag.EMPTY;
+        for (int symbol : symbols) {
+            bag = bag.with(symbol, new Edge(0, 1, null));
+        }
+        Arrays.sort(symbols);
+
+        lookups = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; ++i) {
+            // three hits out of four, as in a search descending the tree
+            lookups[i] = random.nextInt(4) == 0 ? alphabet[fanOut + random.nextInt(alphabet.length - fanOut)] : symbols[random.nextInt(fanOut)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int get() {
+        int found = 0;
+        for (int c : lookups) {
+            if (bag.get(c) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Builds a whole node out of its symbols, in random order.
+     */
+    @Benchmark
+    public EdgeBag put() {
+        EdgeBag ret = EdgeBag.EMPTY;
+        for (int i = 0; i < fanOut; ++i) {
+            ret = ret.with(insertions[i], edge);
+        }
+        return ret;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int linearScan() {
+        int found = 0;
+        for (int c : lookups) {
+            for (int i = 0; i < symbols.length; i++) {
+                if (c == symbols[i]) {
+                    found++;
+                    break;
+                } else if (c < symbols[i]) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int binarySearch() {
+        int found = 0;
+        for (int c : lookups) {
+            if (Arrays.binarySearch(symbols, c) >= 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time it takes to build a tree out of a whole corpus with put, or with putAll.
+ *
+ * Divide the score by <tt>size</tt> to get the average cost of a put.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class PutBenchmark {
+
+    @Param({"RANDOM", "DNA", "TEXT"})
+    public Corpus corpus;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<String> keys;
+    private List<List<Character>> lists;
+    private int[] indexes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = corpus.keys(size);
+        lists = Corpus.toLists(keys);
+        indexes = new int[size];
+        for (int i = 0; i < size; ++i) {
+            indexes[i] = i;
+        }
+    }
+
+    @Benchmark
+    public CharSuffixTree putChars() {
+        CharSuffixTree tree = new CharSuffixTree();
+        for (int i = 0; i < keys.size(); ++i) {
+            tree.put(keys.get(i), i);
+        }
+        return tree;
+    }
+
+    /**
+     * Builds the same tree as putChars with a single putAll, which uses all the threads of the common pool.
+     */
+    @Benchmark
+    public CharSuffixTree putAllChars() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        return tree;
+    }
+
+    @Benchmark
+    public GeneralizedSuffixTree<Character> putGeneric() {
+        GeneralizedSuffixTree<Character> tree = new GeneralizedSuffixTree<Character>();
+        for (int i = 0; i < lists.size(); ++i) {
+            tree.put(lists.get(i), i);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures search latency on a tree built out of a corpus, by query length and number of results.
+ *
+ * Each invocation runs QUERIES searches: with <tt>hits</tt> set they are substrings of the indexed keys,
+ * otherwise they are strings that can't be found. The number of matches of short queries grows with the
+ * size of the corpus, which is what <tt>limit</tt> is meant to cut.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int QUERIES = 256;
+
+    @Param({"RANDOM", "DNA", "TEXT"})
+    public Corpus corpus;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"2", "4", "8", "16"})
+    public int queryLength;
+
+    @Param({"true", "false"})
+    public boolean hits;
+
+    @Param({"10", "-1"})
+    public int limit;
+
+    private CharSuffixTree tree;
+    private GeneralizedSuffixTree<Character> genericTree;
+    private String[] queries;
+    private List<List<Character>> queryLists;
+    private ResultBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> keys = corpus.keys(size);
+        tree = new CharSuffixTree();
+        genericTree = new GeneralizedSuffixTree<Character>();
+        List<List<Character>> lists = Corpus.toLists(keys);
+        for (int i = 0; i < keys.size(); ++i) {
+            tree.put(keys.get(i), i);
+            genericTree.put(lists.get(i), i);
+        }
+        List<String> selected = hits ? Corpus.hits(keys, queryLength, QUERIES) : Corpus.misses(queryLength, QUERIES);
+        queries = selected.toArray(new String[QUERIES]);
+        queryLists = Corpus.toLists(selected);
+        buffer = new ResultBuffer(limit);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void search(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(tree.search(query, limit));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void searchGeneric(Blackhole blackhole) {
+        for (List<Character> query : queryLists) {
+            blackhole.consume(genericTree.search(query, limit));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void searchIntoBuffer(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(tree.search(query, buffer));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public void searchWithCount(Blackhole blackhole) {
+        for (String query : queries) {
+            blackhole.consume(tree.searchWithCount(query, limit));
+        }
+    }
+}
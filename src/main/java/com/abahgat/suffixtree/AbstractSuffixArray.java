@@ -0,0 +1,275 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The engine shared by the generalized suffix arrays, which index sequences of int symbols.
+ *
+ * All the keys are concatenated into a single text, each followed by a separator, and the text ends with
+ * a sentinel. Keys are mapped to symbols not less than MIN_SYMBOL by the subclasses, so that separators
+ * sort before any of them and never belong to a match.
+ *
+ * Besides the text it keeps four arrays of as many ints:
+ * <ul>
+ * <li>the suffix array, with the positions of the suffixes of the text in lexicographic order: the suffixes
+ * starting with a word are a range of it, found by binary search;</li>
+ * <li>the LCP array, with the length of the common prefix of each suffix and the previous one, which stops
+ * at separators. The range of a word is scanned by following it, without comparing symbols again;</li>
+ * <li>the document array, with the (dense) index of the key holding each suffix;</li>
+ * <li>a wavelet matrix over the position of the previous suffix of the same document, through which the
+ * distinct indexes in a range are counted in O(log n) time: they are the suffixes whose previous one is
+ * outside the range.</li>
+ * </ul>
+ * That is less than 20 bytes per symbol, against several times as much for a suffix tree, at the price of
+ * searches in O(m log n) time instead of O(m).
+ *
+ * Suffix arrays are static: all the keys are given when they are built.
+ */
+abstract class AbstractSuffixArray {
+
+    /**
+     * The symbol that ends the text
+     */
+    static final int SENTINEL = 0;
+    /**
+     * The symbol that follows each key
+     */
+    static final int SEPARATOR = 1;
+    /**
+     * The least symbol keys can be mapped to
+     */
+    static final int MIN_SYMBOL = 2;
+
+    /**
+     * The keys, each followed by SEPARATOR, and then SENTINEL
+     */
+    private final int[] text;
+    /**
+     * The positions of the suffixes of text, in lexicographic order
+     */
+    private final int[] sa;
+    /**
+     * The length of the common prefix of the suffix in sa[i] and the one in sa[i - 1]
+     */
+    private final int[] lcp;
+    /**
+     * The dense index of the key holding the suffix in sa[i]
+     */
+    private final int[] docs;
+    /**
+     * The index of each dense index
+     */
+    private final int[] docIndexes;
+    /**
+     * For each i, one more than the greatest j &lt; i such that docs[j] == docs[i], or 0 if there is none
+     */
+    private final WaveletMatrix previous;
+    /**
+     * The position in sa of the first suffix starting with a key symbol: the ones before start with a separator
+     */
+    private final int firstSymbol;
+
+    /**
+     * Builds the suffix array of the given text.
+     *
+     * @param text the keys, mapped to symbols not less than MIN_SYMBOL and each followed by SEPARATOR,
+     *        and then SENTINEL. Symbols should be dense, as SA-IS allocates an int per symbol value
+     * @param indexes the value of each key
+     * @throws IllegalStateException if the indexes are not in non-decreasing order
+     */
+    AbstractSuffixArray(int[] text, int[] indexes) throws IllegalStateException {
+        // number the distinct indexes densely, so that documents are small ints
+        int[] keyDocs = new int[indexes.length];
+        int distinct = 0;
+        for (int k = 0; k < indexes.length; ++k) {
+            if (k > 0 && indexes[k] < indexes[k - 1]) {
+                throw new IllegalStateException("The input indexes must be in non-decreasing order. Got " + indexes[k] + ", expected at least " + indexes[k - 1]);
+            }
+            if (k == 0 || indexes[k] != indexes[k - 1]) {
+                distinct++;
+            }
+            keyDocs[k] = distinct - 1;
+        }
+        docIndexes = new int[distinct];
+        for (int k = 0; k < indexes.length; ++k) {
+            docIndexes[keyDocs[k]] = indexes[k];
+        }
+
+        int alphabetSize = MIN_SYMBOL;
+        for (int symbol : text) {
+            alphabetSize = Math.max(alphabetSize, symbol + 1);
+        }
+        this.text = text;
+        this.sa = SuffixSorter.sort(text, alphabetSize);
+        this.lcp = SuffixSorter.lcp(text, sa, MIN_SYMBOL);
+        this.firstSymbol = indexes.length + 1;
+
+        int n = text.length;
+        int[] positionDocs = new int[n];
+        for (int i = 0, k = 0; i < n - 1; ++i) {
+            positionDocs[i] = keyDocs[k];
+            if (text[i] == SEPARATOR) {
+                k++;
+            }
+        }
+        docs = new int[n];
+        for (int i = 0; i < n; ++i) {
+            docs[i] = positionDocs[sa[i]];
+        }
+        // positionDocs is no longer needed, reuse it for the previous occurrences
+        int[] last = new int[Math.max(distinct, 1)];
+        for (int i = 0; i < n; ++i) {
+            positionDocs[i] = last[docs[i]];
+            last[docs[i]] = i + 1;
+        }
+        previous = new WaveletMatrix(positionDocs);
+    }
+
+    /**
+     * Returns the position in sa of the first suffix starting with the given word, or -1 if there is none.
+     */
+    int find(int[] word) {
+        // like the tree, the empty word is not found
+        if (word == null || word.length == 0) {
+            return -1;
+        }
+        int begin = bound(word, false);
+        if (begin == sa.length) {
+            return -1;
+        }
+        for (int k = 0, pos = sa[begin]; k < word.length; ++k) {
+            if (text[pos + k] != word[k]) {
+                return -1;
+            }
+        }
+        return begin;
+    }
+
+    /**
+     * Binary searches the suffix array, keeping track of the symbols the word shares with both ends of the
+     * current interval so that they are not compared again.
+     *
+     * @return the position of the first suffix that is greater than or equal to the word, or if <tt>upper</tt>
+     *         is set, of the first that is greater and does not start with it
+     */
+    private int bound(int[] word, boolean upper) {
+        int m = word.length;
+        int low = -1;
+        int high = sa.length;
+        int lowMatch = 0;
+        int highMatch = 0;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            int pos = sa[mid];
+            int k = Math.min(lowMatch, highMatch);
+            // the text ends with SENTINEL, which never matches, so this does not go past it
+            while (k < m && text[pos + k] == word[k]) {
+                k++;
+            }
+            boolean greater = k == m ? !upper : text[pos + k] > word[k];
+            if (greater) {
+                high = mid;
+                highMatch = k;
+            } else {
+                low = mid;
+                lowMatch = k;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns at most <tt>results</tt> indexes of the keys containing the given word,
+     * or null if there is none.
+     */
+    Collection<Integer> collect(int[] word, int results) {
+        int begin = find(word);
+        if (begin < 0) {
+            return null;
+        }
+        Set<Integer> ret = new HashSet<Integer>();
+        int m = word.length;
+        for (int i = begin; i < sa.length && ret.size() != results && (i == begin || lcp[i] >= m); ++i) {
+            ret.add(docIndexes[docs[i]]);
+        }
+        return ret;
+    }
+
+    /**
+     * Stores the indexes of the keys containing the given word into <tt>results</tt>, replacing its previous content.
+     *
+     * @return the number of indexes stored into <tt>results</tt>
+     */
+    int collect(int[] word, ResultBuffer results) {
+        results.clear();
+        int begin = find(word);
+        if (begin >= 0) {
+            int m = word.length;
+            for (int i = begin; i < sa.length && (i == begin || lcp[i] >= m); ++i) {
+                if (!results.add(docIndexes[docs[i]])) {
+                    break;
+                }
+            }
+        }
+        return results.size();
+    }
+
+    /**
+     * Returns at most <tt>to</tt> indexes of the keys containing the given word, together with their total count.
+     */
+    GeneralizedSuffixTree.ResultInfo collectWithCount(int[] word, int to) {
+        int begin = find(word);
+        if (begin < 0) {
+            return new GeneralizedSuffixTree.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        int end = bound(word, true);
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int i = begin; i < end && ret.size() != to; ++i) {
+            ret.add(docIndexes[docs[i]]);
+        }
+        return new GeneralizedSuffixTree.ResultInfo(ret, distinct(begin, end));
+    }
+
+    /**
+     * Returns the number of distinct indexes among the suffixes in [begin, end) of sa
+     */
+    private int distinct(int begin, int end) {
+        return previous.countLess(begin, end, begin + 1);
+    }
+
+    /**
+     * Returns the number of distinct indexes of non-empty keys.
+     */
+    public int computeCount() {
+        return distinct(firstSymbol, sa.length);
+    }
+
+    /**
+     * Returns the length of the text, counting one separator per key and the sentinel.
+     */
+    static int textLength(int keys, long symbols) {
+        long length = symbols + keys + 1;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many symbols: " + symbols);
+        }
+        return (int) length;
+    }
+}
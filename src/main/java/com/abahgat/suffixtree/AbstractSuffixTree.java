@@ -0,0 +1,1128 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The construction and lookup engine shared by all the generalized suffix trees in this package.
+ *
+ * The engine works on symbols that have already been encoded as <tt>int</tt> codes: every public
+ * tree type (GeneralizedSuffixTree, CharSuffixTree, IntSuffixTree) is only responsible for appending
+ * its own key type to a SymbolStore, so that edges, labels and comparisons never involve boxed values.
+ *
+ * Every string handled during construction is a region of the key being added, and every label is
+ * a region of a key that was added before, so they are all represented as offsets into the store
+ * rather than as separate objects.
+ *
+ * Removed indexes are only marked in a bitmap at first: searches leave them out, and the counts of the
+ * nodes holding them are decreased right away. Their nodes, edges and postings are reclaimed by compaction,
+ * which builds a new tree out of the keys that are left while searches keep using the current one, and
+ * then replaces the root. Operations that change the tree take a lock, so that a compaction running
+ * in the background can catch up with the keys put meanwhile before the new root is published.
+ *
+ * @see GeneralizedSuffixTree
+ */
+abstract class AbstractSuffixTree {
+
+    /**
+     * The default fraction of removed indexes above which the GST is compacted in the background
+     */
+    static final double DEFAULT_COMPACTION_THRESHOLD = 0.25;
+
+    /**
+     * The index of the last item that was added to the GST
+     */
+    private int last = 0;
+    /**
+     * The root of the suffix tree, which compaction replaces
+     */
+    private volatile Node root = new Node();
+    /**
+     * The last leaf that was added during the update operation
+     */
+    private Node activeLeaf = root;
+    /**
+     * Whether the string tested by the last call to testAndSplit was already contained in the tree
+     */
+    private boolean endpoint;
+    /**
+     * The start of the longest suffix of the key being added that does not end at a node of its own yet
+     */
+    private int suffixStart;
+    /**
+     * The store holding all the keys added so far, which edge labels point into
+     */
+    final SymbolStore store;
+    /**
+     * The indexes removed from the GST, which searches leave out
+     */
+    final Tombstones removed = new Tombstones();
+    /**
+     * Taken by the operations that change the GST, so that they do not overlap with the end of a compaction
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /**
+     * Taken by compaction, so that only one runs at a time
+     */
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    /**
+     * The index each text of the store was added with
+     */
+    private int[] textIndexes = new int[16];
+    /**
+     * The position following the last symbol of each text. A text starts where the previous one ends.
+     *
+     * They are copied from the store as texts are added, so that compaction can read them while
+     * the store is growing.
+     */
+    private int[] textEnds = new int[16];
+    /**
+     * The number of texts added to the GST
+     */
+    private int texts = 0;
+    /**
+     * The number of removed indexes that are still held by the nodes
+     */
+    private int dead = 0;
+    /**
+     * The indexes removed while a compaction is running, which the new tree must drop as well; null otherwise
+     */
+    private List<Integer> removedDuringCompaction;
+    /**
+     * Whether a compaction has been started in the background and is not over yet
+     */
+    private volatile boolean compactionScheduled;
+    /**
+     * The fraction of removed indexes above which the GST is compacted in the background
+     */
+    private volatile double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    /**
+     * Where measures are reported
+     */
+    private volatile TreeMetrics metrics = TreeMetrics.NONE;
+    /**
+     * Running totals of the work done by insertions, which the writer keeps whether or not they are reported.
+     * They may wrap around, so only differences are meaningful.
+     */
+    private int nodesCreated;
+    private int edgesCreated;
+    private int splits;
+    private int canonizeSteps;
+
+    AbstractSuffixTree(SymbolStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns at most <tt>results</tt> values stored under the given node, or null if there is none.
+     * The subtree is visited in the given order, and only until enough values are found.
+     */
+    Collection<Integer> collect(Node node, int results, TraversalOrder order) {
+        if (isEmpty(node)) {
+            return null;
+        }
+        return getData(node, results, order);
+    }
+
+    /**
+     * Stores the values found under the given node into <tt>results</tt>, replacing its previous content.
+     *
+     * @return the number of values stored into <tt>results</tt>
+     */
+    int collect(Node node, ResultBuffer results) {
+        results.clear();
+        collectMore(node, results);
+        return results.size();
+    }
+
+    /**
+     * Adds the values found under the given node to <tt>results</tt>, keeping its previous content.
+     *
+     * @return false if <tt>results</tt> can't accept any more values
+     */
+    boolean collectMore(Node node, ResultBuffer results) {
+        return isEmpty(node) || node.collect(results, removed);
+    }
+
+    /**
+     * Returns at most <tt>to</tt> values stored under the given node, together with their total count.
+     */
+    GeneralizedSuffixTree.ResultInfo collectWithCount(Node node, int to) {
+        if (isEmpty(node)) {
+            return new GeneralizedSuffixTree.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        return new GeneralizedSuffixTree.ResultInfo(getData(node, to, TraversalOrder.DEPTH_FIRST), node.getResultCount());
+    }
+
+    /**
+     * Returns at most <tt>results</tt> values stored under the given node, reporting the work done
+     */
+    private Collection<Integer> getData(Node node, int results, TraversalOrder order) {
+        TreeMetrics m = metrics;
+        if (m == TreeMetrics.NONE) {
+            return node.getData(results, order, removed);
+        }
+        int[] visited = new int[1];
+        Collection<Integer> ret = node.getData(results, order, removed, visited);
+        m.collect(visited[0], ret.size());
+        return ret;
+    }
+
+    /**
+     * Returns at most <tt>results</tt> values whose key contains the encoded word with at most <tt>maxEdits</tt>
+     * edits, closest first.
+     */
+    ApproximateMatches collectApproximate(int[] word, int maxEdits, int results) {
+        return ApproximateSearch.search(this, word, maxEdits, results);
+    }
+
+    /**
+     * Returns the length of the longest match in the tree at each offset of the given encoded text.
+     */
+    int[] computeMatchingStatistics(int[] text) {
+        return MatchingStatistics.compute(this, text);
+    }
+
+    /**
+     * Passes the maximal matches of at least <tt>minLength</tt> symbols between the encoded text and the tree
+     * to the given visitor.
+     */
+    void collectMatches(int[] text, int minLength, MatchVisitor visitor) {
+        MatchingStatistics.find(this, text, minLength, visitor);
+    }
+
+    /**
+     * Returns the results of searching for each of the given words, in the same order, walking the tree once
+     * for the prefixes they share.
+     *
+     * @param words the encoded words, null for those that can't match
+     */
+    List<Collection<Integer>> collectAll(int[][] words, int results, boolean parallel) {
+        return BatchSearch.search(this, words, results, parallel);
+    }
+
+    /**
+     * Returns at most <tt>results</tt> values stored under the given node, sorted in the given order,
+     * starting with the first one that comes after <tt>after</tt>.
+     *
+     * @param after the value the page starts after, or SortedMerge.first(order) for the first page
+     */
+    int[] collectSorted(Node node, SortOrder order, int results, long after) {
+        if (isEmpty(node)) {
+            return new int[0];
+        }
+        return SortedMerge.collect(node, removed, order, results, after);
+    }
+
+    /**
+     * Returns at most <tt>results</tt> occurrences of the given encoded word, as packed by Positions.
+     *
+     * @param word the encoded word, null if it can't match
+     * @param results the max number of occurrences to return, -1 for all
+     */
+    long[] collectPositions(int[] word, int results) {
+        return new PositionalSearch(this, word).take(results);
+    }
+
+    /**
+     * Returns a spliterator over the occurrences of the given encoded word, as packed by Positions,
+     * which finds them as it is advanced.
+     *
+     * @param word the encoded word, null if it can't match
+     */
+    Spliterator.OfLong positionSpliterator(int[] word) {
+        return Spliterators.spliteratorUnknownSize(new PositionalSearch(this, word),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /**
+     * Returns at most <tt>results</tt> values stored under the given node, by decreasing number of occurrences
+     * of the node's path in their keys.
+     */
+    RankedMatches collectRanked(Node node, int results) {
+        if (isEmpty(node)) {
+            return new RankedMatches(new int[0], new int[0]);
+        }
+        return RankedSearch.top(node, removed, results);
+    }
+
+    /**
+     * Returns a spliterator over the values stored under the given node, which visits the subtree lazily.
+     */
+    IndexSpliterator spliterator(Node node) {
+        return new IndexSpliterator(this, isEmpty(node) ? null : node);
+    }
+
+    /**
+     * Returns whether no value is stored under the given node: either there is no such node,
+     * or all its values were removed and it is yet to be compacted away.
+     */
+    private static boolean isEmpty(Node node) {
+        return node == null || node.getResultCount() == 0;
+    }
+
+    /**
+     * Reports a search that followed <tt>depth</tt> edges, and returns the node it found
+     */
+    private Node searched(Node node, int depth) {
+        TreeMetrics m = metrics;
+        if (m != TreeMetrics.NONE) {
+            m.search(depth);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the tree node (if present) that corresponds to the given string.
+     */
+    Node searchNode(int[] word) {
+        /*
+         * Verifies if exists a path from the root to a node such that the concatenation
+         * of all the labels on the path is a superstring of the given word.
+         * If such a path is found, the last node on it is returned.
+         */
+        Node currentNode = root;
+        Edge currentEdge;
+        int depth = 0;
+
+        for (int i = 0; i < word.length; ++i) {
+            // follow the edge corresponding to this char
+            currentEdge = currentNode.getEdge(word[i]);
+            if (null == currentEdge) {
+                // there is no edge starting with this char
+                return searched(null, depth);
+            } else {
+                depth++;
+                int labelLength = currentEdge.length();
+                int lenToMatch = Math.min(word.length - i, labelLength);
+                if (!store.regionMatches(currentEdge.getBegin(), word, i, lenToMatch)) {
+                    // the label on the edge does not correspond to the one in the string to search
+                    return searched(null, depth);
+                }
+
+                if (labelLength >= word.length - i) {
+                    return searched(currentEdge.getDest(), depth);
+                } else {
+                    // advance to next node
+                    currentNode = currentEdge.getDest();
+                    i += lenToMatch - 1;
+                }
+            }
+        }
+
+        return searched(null, depth);
+    }
+
+    /**
+     * Returns the tree node (if present) that corresponds to the given string of chars.
+     *
+     * It works exactly like searchNode(int[]), without encoding the input first.
+     */
+    Node searchNode(CharSequence word) {
+        Node currentNode = root;
+        Edge currentEdge;
+        int depth = 0;
+
+        for (int i = 0; i < word.length(); ++i) {
+            // follow the edge corresponding to this char
+            currentEdge = currentNode.getEdge(word.charAt(i));
+            if (null == currentEdge) {
+                // there is no edge starting with this char
+                return searched(null, depth);
+            } else {
+                depth++;
+                int labelLength = currentEdge.length();
+                int lenToMatch = Math.min(word.length() - i, labelLength);
+                if (!store.regionMatches(currentEdge.getBegin(), word, i, lenToMatch)) {
+                    // the label on the edge does not correspond to the one in the string to search
+                    return searched(null, depth);
+                }
+
+                if (labelLength >= word.length() - i) {
+                    return searched(currentEdge.getDest(), depth);
+                } else {
+                    // advance to next node
+                    currentNode = currentEdge.getDest();
+                    i += lenToMatch - 1;
+                }
+            }
+        }
+
+        return searched(null, depth);
+    }
+
+    /**
+     * Makes sure that <tt>index</tt> can be added to the GST.
+     *
+     * It must be called before the key is appended to the store, so that a rejected key leaves no trace.
+     *
+     * @param index the value that will be added to the index
+     * @throws IllegalStateException if an invalid index is passed as input
+     */
+    void checkIndex(int index) throws IllegalStateException {
+        if (index < last) {
+            throw new IllegalStateException("The input index must not be less than any of the previously inserted ones. Got " + index + ", expected at least " + last);
+        } else if (removed.contains(index)) {
+            throw new IllegalStateException("The input index " + index + " was removed, and can't be used again");
+        } else {
+            last = index;
+        }
+    }
+
+    /**
+     * Makes sure that all the given <tt>indexes</tt> can be added to the GST, in the given order.
+     *
+     * Like checkIndex, it must be called before the keys are appended to the store. Nothing is changed
+     * unless all the indexes are valid.
+     *
+     * @param indexes the values that will be added to the index
+     * @throws IllegalStateException if an invalid index is passed as input
+     */
+    void checkIndexes(int[] indexes) throws IllegalStateException {
+        int previous = last;
+        for (int index : indexes) {
+            if (index < previous) {
+                throw new IllegalStateException("The input indexes must be in non-decreasing order, and not less than any of the previously inserted ones. Got " + index + ", expected at least " + previous);
+            }
+            if (removed.contains(index)) {
+                throw new IllegalStateException("The input index " + index + " was removed, and can't be used again");
+            }
+            previous = index;
+        }
+        last = previous;
+    }
+
+    /**
+     * Adds the texts of the store starting from <tt>firstText</tt> to the GST, each with the index in the same
+     * position of <tt>indexes</tt>, building parts of the tree in parallel when there are enough of them.
+     *
+     * @param firstText the id of the text associated with indexes[0]; the others follow it
+     * @param indexes the values that will be added to the index
+     */
+    void insertAll(int firstText, int[] indexes) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int parts = parallelism < ParallelBuilder.MIN_PARALLELISM ? 1 : Math.min(parallelism, indexes.length / ParallelBuilder.MIN_PART_SIZE);
+        writeLock.lock();
+        try {
+            for (int i = 0; i < indexes.length; ++i) {
+                track(firstText + i, indexes[i]);
+            }
+            ParallelBuilder.insertAll(this, firstText, indexes, parts);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the given <tt>text</tt> of the store to the GST, under the given <tt>index</tt>.
+     *
+     * Unlike insert, it keeps track of the text so that it can be removed, and compacted.
+     *
+     * @param text the id of the text in the store that will be added to the index
+     * @param index the value that will be added to the index
+     */
+    void add(int text, int index) {
+        writeLock.lock();
+        try {
+            track(text, index);
+            TreeMetrics m = metrics;
+            if (m == TreeMetrics.NONE) {
+                insert(text, index);
+            } else {
+                int nodes = nodesCreated;
+                int edges = edgesCreated;
+                int split = splits;
+                int steps = canonizeSteps;
+                long start = System.nanoTime();
+                insert(text, index);
+                m.put(System.nanoTime() - start, nodesCreated - nodes, edgesCreated - edges, splits - split, canonizeSteps - steps);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Records the index and the end of the given text, which must be the next one.
+     */
+    private void track(int text, int index) {
+        if (texts == textIndexes.length) {
+            textIndexes = Arrays.copyOf(textIndexes, texts * 2);
+            textEnds = Arrays.copyOf(textEnds, texts * 2);
+        }
+        textIndexes[texts] = index;
+        textEnds[texts] = store.textEnd(text);
+        texts++;
+    }
+
+    /**
+     * Adds the specified <tt>index</tt> to the GST under the given <tt>text</tt> of the store.
+     *
+     * @param text the id of the text in the store that will be added to the index
+     * @param index the value that will be added to the index
+     */
+    void insert(int text, int index) {
+        insert(store.textBegin(text), store.textEnd(text), index);
+    }
+
+    /**
+     * Adds the specified <tt>index</tt> to the GST under the symbols of the store in [begin, end).
+     */
+    void insert(int begin, int end, int index) {
+
+        // reset activeLeaf
+        activeLeaf = root;
+        suffixStart = begin;
+
+        Node s = root;
+        // the active string is always the region [k..i] of the text
+        int k = begin;
+
+        // proceed with tree construction (closely related to procedure in
+        // Ukkonen's paper)
+        // iterate over the string, one char at a time
+        for (int i = begin; i < end; i++) {
+            // line 7: update the tree with the new transitions due to this new char
+            ReferencePair active = update(s, end, k, i, index);
+            // line 8: make sure the active pair is canonical
+            active = canonize(active.node, active.start, i + 1);
+
+            s = active.node;
+            k = active.start;
+        }
+
+        // add leaf suffix link, is necessary
+        if (null == activeLeaf.getSuffix() && activeLeaf != root && activeLeaf != s) {
+            activeLeaf.setSuffix(s);
+        }
+
+        closeSuffixes(s, k, end, index);
+    }
+
+    /**
+     * Makes each suffix of the key that was found in the tree already end at a node holding the index.
+     *
+     * Without a terminator, the algorithm leaves the suffixes starting from the active point implicit: they
+     * can end inside an edge, or at a node that holds no index for the key. Each of them gets a node here,
+     * splitting the edge it ends in if needed, so that every suffix of every key ends at a node holding its index.
+     *
+     * @param s the active node once the key is added
+     * @param k the start of the rest of the active suffix below <tt>s</tt>
+     * @param end the end of the key
+     * @param index the index of the key
+     */
+    private void closeSuffixes(Node s, int k, int end, int index) {
+        int j = suffixStart;
+        Node previous = null;
+        while (j < end) {
+            Node r = s;
+            if (k < end) {
+                // (s, k) is canonical, so the suffix ends inside this edge
+                Edge g = s.getEdge(store.get(k));
+                r = new Node();
+                nodesCreated++;
+                edgesCreated += 2;
+                splits++;
+                Edge upper = new Edge(g.getBegin(), g.getBegin() + end - k, r);
+                Edge lower = new Edge(g.getBegin() + end - k, g.getEnd(), g.getDest());
+                r.copyCount(g.getDest());
+                r.addEdge(store.get(lower.getBegin()), lower);
+                s.addEdge(store.get(k), upper);
+            }
+            if (previous != null && previous.getSuffix() == null) {
+                previous.setSuffix(r);
+            }
+            r.addRef(index);
+            previous = r;
+
+            // move to the next shorter suffix
+            j++;
+            ReferencePair next;
+            if (s != root && s.getSuffix() != null) {
+                next = canonize(s.getSuffix(), k, end);
+            } else {
+                next = canonize(root, j, end);
+            }
+            s = next.node;
+            k = next.start;
+        }
+    }
+
+    /**
+     * Tests whether the string stringPart + t is contained in the subtree that has inputs as root.
+     * If that's not the case, and there exists a path of edges e1, e2, ... such that
+     *     e1.label + e2.label + ... + $end = stringPart
+     * and there is an edge g such that
+     *     g.label = stringPart + rest
+     *
+     * Then g will be split in two different edges, one having $end as label, and the other one
+     * having rest as label.
+     *
+     * @param inputs the starting node
+     * @param keyEnd the end of the key being added
+     * @param begin the start of stringPart
+     * @param end the end (exclusive) of stringPart
+     * @param t the following character
+     * @param rest the start of the remainder of the key to add to the index
+     * @param value the value to add to the index
+     * @return the last node that can be reached by following the path denoted by stringPart starting
+     *         from inputs; whether (stringPart + t) is contained in the subtree is stored in <tt>endpoint</tt>
+     */
+    private Node testAndSplit(final Node inputs, final int keyEnd, final int begin, final int end, final int t, final int rest, final int value) {
+        // descend the tree as far as possible
+        ReferencePair ret = canonize(inputs, begin, end);
+        Node s = ret.node;
+        int str = ret.start;
+        int strLength = end - str;
+
+        if (strLength > 0) {
+            Edge g = s.getEdge(store.get(str));
+
+            // must see whether "str" is substring of the label of an edge
+            if (g.length() > strLength && store.get(g.getBegin() + strLength) == t) {
+                endpoint = true;
+                return s;
+            } else {
+                // need to split the edge
+                assert (store.regionMatches(g.getBegin(), str, strLength));
+
+                // build a new node
+                Node r = new Node();
+                nodesCreated++;
+                edgesCreated += 2;
+                splits++;
+                // build a new edge
+                Edge newedge = new Edge(str, end, r);
+                // g is left as it is, so that searches running meanwhile see either the old path or the new one
+                Edge lower = new Edge(g.getBegin() + strLength, g.getEnd(), g.getDest());
+
+                // link s -> r
+                r.copyCount(g.getDest());
+                r.addEdge(store.get(lower.getBegin()), lower);
+                s.addEdge(store.get(str), newedge);
+
+                endpoint = false;
+                return r;
+            }
+
+        } else {
+            Edge e = s.getEdge(t);
+            int restLength = keyEnd - rest;
+            endpoint = true;
+            if (null == e) {
+                // if there is no t-transtion from s
+                endpoint = false;
+            } else if (e.length() == restLength && store.regionMatches(e.getBegin(), rest, restLength)) {
+                // update payload of destination node
+                e.getDest().addRef(value);
+            } else if (e.length() <= restLength && store.regionMatches(e.getBegin(), rest, e.length())) {
+                // the remainder goes past the end of the label: nothing to do here
+            } else if (e.length() > restLength && store.regionMatches(e.getBegin(), rest, restLength)) {
+                // need to split as above
+                Node newNode = new Node();
+                nodesCreated++;
+                edgesCreated += 2;
+                splits++;
+
+                Edge newEdge = new Edge(rest, keyEnd, newNode);
+                Edge lower = new Edge(e.getBegin() + restLength, e.getEnd(), e.getDest());
+
+                newNode.copyCount(e.getDest());
+                newNode.addEdge(store.get(lower.getBegin()), lower);
+
+                s.addEdge(t, newEdge);
+
+                // the payload is added once the node is in place, so that the counts of the enclosing nodes see it
+                newNode.addRef(value);
+
+                endpoint = false;
+            }
+            // otherwise they are different words. No prefix. but they may still share some common substr
+            return s;
+        }
+    }
+
+    /**
+     * Return a (Node, String) (n, remainder) pair such that n is a farthest descendant of
+     * s (the input node) that can be reached by following a path of edges denoting
+     * a prefix of [begin..end) and remainder will be string that must be
+     * appended to the concatenation of labels from s to n to get [begin..end).
+     *
+     * Since the remainder is always a suffix of the input region, only its start offset is returned.
+     */
+    private ReferencePair canonize(final Node s, final int begin, final int end) {
+        Node currentNode = s;
+        int str = begin;
+        if (str < end) {
+            Edge g = s.getEdge(store.get(str));
+            // descend the tree as long as a proper label is found
+            while (g != null && g.length() <= end - str && store.regionMatches(g.getBegin(), str, g.length())) {
+                canonizeSteps++;
+                str += g.length();
+                currentNode = g.getDest();
+                g = str < end ? currentNode.getEdge(store.get(str)) : null;
+            }
+        }
+
+        return new ReferencePair(currentNode, str);
+    }
+
+    /**
+     * Updates the tree starting from inputNode and by adding stringPart.
+     *
+     * Returns a reference (Node, String) pair for the string that has been added so far.
+     * This means:
+     * - the Node will be the Node that can be reached by the longest path string (S1)
+     *   that can be obtained by concatenating consecutive edges in the tree and
+     *   that is a substring of the string added so far to the tree.
+     * - the String will be the remainder that must be added to S1 to get the string
+     *   added so far.
+     *
+     * @param inputNode the node to start from
+     * @param keyEnd the end of the key being added
+     * @param begin the start of stringPart
+     * @param i the position of the new char: stringPart is [begin..i] and the rest of the string is [i..keyEnd)
+     * @param value the value to add to the index
+     */
+    private ReferencePair update(final Node inputNode, final int keyEnd, final int begin, final int i, final int value) {
+        Node s = inputNode;
+        int tempstr = begin;
+        int newChar = store.get(i);
+
+        // line 1
+        Node oldroot = root;
+
+        // line 1b
+        Node r = testAndSplit(s, keyEnd, tempstr, i, newChar, i, value);
+
+        Node leaf;
+        // line 2
+        while (!endpoint) {
+            suffixStart++;
+            // line 3
+            Edge tempEdge = r.getEdge(newChar);
+            if (null != tempEdge) {
+                // such a node is already present. This is one of the main differences from Ukkonen's case:
+                // the tree can contain deeper nodes at this stage because different strings were added by previous iterations.
+                leaf = tempEdge.getDest();
+            } else {
+                // must build a new leaf
+                leaf = new Node();
+                Edge newedge = new Edge(i, keyEnd, leaf);
+                nodesCreated++;
+                edgesCreated++;
+                r.addEdge(newChar, newedge);
+                leaf.addRef(value);
+            }
+
+            // update suffix link for newly created leaf
+            if (activeLeaf != root) {
+                activeLeaf.setSuffix(leaf);
+            }
+            activeLeaf = leaf;
+
+            // line 4
+            if (oldroot != root) {
+                oldroot.setSuffix(r);
+            }
+
+            // line 5
+            oldroot = r;
+
+            // line 6
+            if (null == s.getSuffix()) { // root node
+                assert (root == s);
+                // this is a special case to handle what is referred to as node _|_ on the paper
+                tempstr++;
+            } else {
+                ReferencePair canret = canonize(s.getSuffix(), tempstr, safeCutLastChar(tempstr, i));
+                s = canret.node;
+                tempstr = canret.start;
+            }
+
+            // line 7
+            r = testAndSplit(s, keyEnd, tempstr, safeCutLastChar(tempstr, i), newChar, i, value);
+        }
+
+        // line 8
+        if (oldroot != root) {
+            oldroot.setSuffix(r);
+        }
+        oldroot = root;
+
+        return new ReferencePair(s, tempstr);
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of texts added to the GST
+     */
+    int texts() {
+        return texts;
+    }
+
+    /**
+     * Returns the index the given text was added with
+     */
+    int textIndex(int text) {
+        return textIndexes[text];
+    }
+
+    /**
+     * Returns the greatest index added so far
+     */
+    int getLast() {
+        return last;
+    }
+
+    void setLast(int last) {
+        this.last = last;
+    }
+
+    /**
+     * Returns the end of [begin..i] once its last char is removed, keeping the region well formed when it is empty.
+     */
+    private static int safeCutLastChar(int begin, int i) {
+        return Math.max(begin, i);
+    }
+
+    /**
+     * Returns the number of different values stored in the GST.
+     *
+     * Counts are kept up to date by put, so searchWithCount can be used at any time
+     * and there is no need to call this method beforehand.
+     *
+     * @return the number of different values stored in the GST
+     */
+    public int computeCount() {
+        TreeMetrics m = metrics;
+        if (m == TreeMetrics.NONE) {
+            return root.getResultCount();
+        }
+        long start = System.nanoTime();
+        int ret = root.getResultCount();
+        m.count(System.nanoTime() - start);
+        return ret;
+    }
+
+    /**
+     * Returns a report on the structure of the GST and on the memory it takes.
+     *
+     * The whole tree is walked, holding off puts but not searches, so it takes about as long as writing the tree.
+     */
+    public TreeStats computeStats() {
+        return TreeStats.compute(this);
+    }
+
+    /**
+     * Returns an estimate of the bytes taken by the index and end of each text, and by the removed indexes
+     */
+    long estimateTextBytes() {
+        return 2 * TreeStats.array(textIndexes.length, 4) + removed.estimateBytes();
+    }
+
+    /**
+     * Makes the GST report measures of its work to the given metrics, which may be shared with other trees.
+     *
+     * Puts are timed and the nodes, edges, splits and canonize steps they take are counted; searches report the
+     * number of edges they follow, and the nodes they visit and indexes they return when collecting into a
+     * collection. Nothing is measured while the metrics are TreeMetrics.NONE, as they are by default.
+     *
+     * @param metrics where measures are reported, TreeMetrics.NONE to stop measuring
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        if (metrics == null) {
+            throw new NullPointerException("metrics");
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns where the GST reports measures of its work
+     */
+    public TreeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Removes the given index from the GST: searches started after this method returns do not find it,
+     * and the counts no longer include it. The index can't be put again afterwards.
+     *
+     * Its nodes, edges and postings are reclaimed by compaction, which starts in the background once
+     * the removed indexes are more than the compaction threshold.
+     *
+     * @param index the value to remove
+     * @return true if the GST held the index, false if it was never put, or was removed already
+     */
+    public boolean remove(int index) {
+        writeLock.lock();
+        try {
+            if (index < 0 || removed.contains(index)) {
+                return false;
+            }
+            Set<Node> holding = nodesHolding(root, index);
+            if (holding.isEmpty()) {
+                return false;
+            }
+            // searches filter the index out before the counts change
+            removed.add(index);
+            for (Node n : holding) {
+                n.uncount();
+            }
+            dead++;
+            if (removedDuringCompaction != null) {
+                removedDuringCompaction.add(index);
+            }
+            if (!compactionScheduled && dead > compactionThreshold * (dead + root.getResultCount())) {
+                compactionScheduled = true;
+                ForkJoinPool.commonPool().execute(new Runnable() {
+                    public void run() {
+                        try {
+                            compact();
+                        } finally {
+                            compactionScheduled = false;
+                        }
+                    }
+                });
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Sets the fraction of removed indexes, out of all the indexes held by the nodes, above which
+     * remove starts a compaction in the background. It is 0.25 by default.
+     *
+     * @param threshold the fraction of removed indexes. Use a value greater than 1 to only compact on demand
+     * @throws IllegalArgumentException if threshold is not positive
+     */
+    public void setCompactionThreshold(double threshold) {
+        if (!(threshold > 0)) {
+            throw new IllegalArgumentException("The compaction threshold must be positive, got " + threshold);
+        }
+        compactionThreshold = threshold;
+    }
+
+    /**
+     * Rebuilds the nodes of the GST out of the keys that were not removed, and waits for it to finish.
+     *
+     * Searches are not blocked: they use the current nodes until the new ones are complete. Puts and removes
+     * only wait while the keys they added meanwhile are added to the new nodes as well. Keys are kept in the
+     * symbol store, which only grows.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            int snapshot;
+            int[] live;
+            int liveCount = 0;
+            int[] indexes;
+            int[] ends;
+            writeLock.lock();
+            try {
+                if (dead == 0) {
+                    return;
+                }
+                // the writer only appends to these arrays, or replaces them with copies
+                indexes = textIndexes;
+                ends = textEnds;
+                snapshot = texts;
+                live = new int[snapshot];
+                for (int t = 0; t < snapshot; ++t) {
+                    if (!removed.contains(textIndexes[t])) {
+                        live[liveCount++] = t;
+                    }
+                }
+                removedDuringCompaction = new ArrayList<Integer>();
+            } finally {
+                writeLock.unlock();
+            }
+
+            try {
+                ParallelBuilder.Part rebuilt = new ParallelBuilder.Part(store);
+                for (int i = 0; i < liveCount; ++i) {
+                    int t = live[i];
+                    rebuilt.insert(t == 0 ? 0 : ends[t - 1], ends[t], indexes[t]);
+                }
+
+                writeLock.lock();
+                try {
+                    // catch up with the writer
+                    for (int t = snapshot; t < texts; ++t) {
+                        rebuilt.insert(textBegin(t), textEnds[t], textIndexes[t]);
+                    }
+                    for (int index : removedDuringCompaction) {
+                        for (Node n : nodesHolding(rebuilt.getRoot(), index)) {
+                            n.uncount();
+                        }
+                    }
+                    root = rebuilt.getRoot();
+                    dead = removedDuringCompaction.size();
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                writeLock.lock();
+                removedDuringCompaction = null;
+                writeLock.unlock();
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the position in the store of the first symbol of the given text
+     */
+    int textBegin(int text) {
+        return text == 0 ? 0 : textEnds[text - 1];
+    }
+
+    /**
+     * Returns the position in the store that follows the last symbol of the given text
+     */
+    int textEnd(int text) {
+        return textEnds[text];
+    }
+
+    /**
+     * Returns the first text added with an index not less than the given one, or texts() if there is none.
+     */
+    int firstText(int index) {
+        // texts are added with non-decreasing indexes
+        int low = 0;
+        int high = texts;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (textIndexes[mid] < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the nodes below <tt>root</tt> whose subtree holds the given index, including the root itself,
+     * or an empty set if there is none.
+     *
+     * They are the nodes on the paths of all the suffixes of the texts added with that index. Each suffix ends
+     * at a node, so only the path of the whole text is followed from the root: the node of each further suffix
+     * is the suffix link of the one before, and the nodes above it are found going up until one that was
+     * found already. The time taken is linear in the length of the texts.
+     */
+    private Set<Node> nodesHolding(Node root, int index) {
+        Set<Node> ret = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        for (int t = firstText(index); t < texts && textIndexes[t] == index; ++t) {
+            int end = textEnds[t];
+            Node node = null;
+            for (int begin = textBegin(t); begin < end; ++begin) {
+                node = node == null ? descend(root, begin, end) : node.getSuffix();
+                for (Node n = node; n != root && ret.add(n); n = n.getParent()) {
+                }
+            }
+        }
+        if (!ret.isEmpty()) {
+            ret.add(root);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the node reached by following the symbols in [begin, end) from <tt>node</tt>, which must end at one.
+     */
+    private Node descend(Node node, int begin, int end) {
+        while (begin < end) {
+            Edge e = node.getEdge(store.get(begin));
+            begin += e.length();
+            node = e.getDest();
+        }
+        return node;
+    }
+
+    /**
+     * Writes the indexes the texts were added with, and the removed ones.
+     */
+    void writeTexts(DataOutput out) throws IOException {
+        out.writeInt(texts);
+        for (int t = 0; t < texts; ++t) {
+            out.writeInt(textIndexes[t]);
+        }
+        removed.write(out);
+        out.writeInt(dead);
+    }
+
+    /**
+     * Reads what writeTexts(DataOutput) wrote, once the texts are in the store.
+     */
+    void readTexts(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count != store.texts()) {
+            throw new IOException("Got the indexes of " + count + " texts, expected " + store.texts());
+        }
+        for (int t = 0; t < count; ++t) {
+            track(t, in.readInt());
+        }
+        removed.read(in);
+        dead = in.readInt();
+    }
+
+    /**
+     * Takes the lock that keeps the GST from changing
+     */
+    void lock() {
+        writeLock.lock();
+    }
+
+    void unlock() {
+        writeLock.unlock();
+    }
+
+    /**
+     * A (Node, offset) pair, as used by Ukkonen to denote a position in the tree
+     * relative to an explicit node.
+     */
+    private static final class ReferencePair {
+
+        private final Node node;
+        private final int start;
+
+        ReferencePair(Node node, int start) {
+            this.node = node;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * The indexes returned by an approximate search, each with the fewest edits that turn the searched word
+ * into a part of its key. Indexes come in order of increasing distance.
+ */
+public class ApproximateMatches {
+
+    private final int[] indexes;
+    private final int[] distances;
+
+    ApproximateMatches(int[] indexes, int[] distances) {
+        this.indexes = indexes;
+        this.distances = distances;
+    }
+
+    /**
+     * Returns the number of indexes found
+     */
+    public int size() {
+        return indexes.length;
+    }
+
+    /**
+     * Returns the i-th index found
+     *
+     * @throws IndexOutOfBoundsException if i is not less than size()
+     */
+    public int getIndex(int i) {
+        return indexes[i];
+    }
+
+    /**
+     * Returns the edit distance between the searched word and the closest part of the key of the i-th index
+     *
+     * @throws IndexOutOfBoundsException if i is not less than size()
+     */
+    public int getDistance(int i) {
+        return distances[i];
+    }
+}
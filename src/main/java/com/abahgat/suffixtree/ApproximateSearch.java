@@ -0,0 +1,162 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the keys that contain a word with at most a given number of edits: insertions, deletions or
+ * substitutions of a symbol.
+ *
+ * Every part of a key is the label of a path from the root, so the tree is walked depth first while keeping
+ * the column of edit distances between each prefix of the word and the path so far, updated one symbol at a time.
+ * When the last entry of the column is within the budget, the keys below the path hold the word with that many
+ * edits. A path is abandoned as soon as its smallest entry exceeds the budget, since entries never decrease
+ * further down, or reaches the distance already found higher up the path, since the keys below would only be
+ * found again with as many edits. Only the paths that stay close to the word are visited.
+ *
+ * The nodes found are then collected in order of distance, stopping once enough indexes are found.
+ * When the number of results is limited, the walk is first done allowing no edit, then one more at a time,
+ * collecting the nodes found at each new distance: a word found often enough as it is costs no more
+ * than an exact search, instead of the much wider walk a larger budget takes.
+ */
+final class ApproximateSearch {
+
+    private final SymbolStore store;
+    private final int[] word;
+    /**
+     * The max number of edits of the current walk
+     */
+    private int budget;
+    /**
+     * The column of edit distances after each symbol of the path being visited
+     */
+    private final int[][] columns;
+    /**
+     * The nodes found for each distance
+     */
+    private final List<List<Node>> found;
+
+    private ApproximateSearch(SymbolStore store, int[] word, int maxEdits) {
+        this.store = store;
+        this.word = word;
+        // no path longer than the word with all the edits being insertions can match
+        this.columns = new int[word.length + maxEdits + 1][word.length + 1];
+        for (int j = 0; j <= word.length; ++j) {
+            columns[0][j] = j;
+        }
+        this.found = new ArrayList<List<Node>>();
+        for (int d = 0; d <= maxEdits; ++d) {
+            found.add(new ArrayList<Node>());
+        }
+    }
+
+    /**
+     * Returns at most <tt>results</tt> indexes whose key contains the word with at most <tt>maxEdits</tt> edits,
+     * closest first.
+     */
+    static ApproximateMatches search(AbstractSuffixTree tree, int[] word, int maxEdits, int results) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("The number of edits can't be negative: " + maxEdits);
+        }
+        if (word.length == 0 || results == 0) {
+            return new ApproximateMatches(new int[0], new int[0]);
+        }
+        ApproximateSearch search = new ApproximateSearch(tree.store, word, maxEdits);
+        Node root = tree.getRoot();
+        if (results < 0) {
+            search.walk(root, maxEdits);
+        }
+
+        ResultBuffer buffer = new ResultBuffer(results);
+        int[] ends = new int[maxEdits + 1];
+        for (int d = 0; d <= maxEdits; ++d) {
+            if (results >= 0) {
+                // the nodes at distance d are found by a walk allowing d edits
+                search.walk(root, d);
+            }
+            boolean more = true;
+            for (Node node : search.found.get(d)) {
+                if (!(more = tree.collectMore(node, buffer))) {
+                    break;
+                }
+            }
+            ends[d] = buffer.size();
+            if (!more) {
+                break;
+            }
+        }
+        int[] indexes = buffer.toArray();
+        int[] distances = new int[indexes.length];
+        for (int i = 0, distance = 0; i < indexes.length; ++i) {
+            while (i >= ends[distance]) {
+                distance++;
+            }
+            distances[i] = distance;
+        }
+        return new ApproximateMatches(indexes, distances);
+    }
+
+    /**
+     * Finds the nodes below which the word is found with at most the given number of edits
+     */
+    private void walk(Node root, int budget) {
+        this.budget = budget;
+        for (List<Node> nodes : found) {
+            nodes.clear();
+        }
+        visit(root, 0, budget + 1);
+    }
+
+    /**
+     * Visits the children of the given node, reached after <tt>depth</tt> symbols.
+     *
+     * @param best the distance already found on the path to the node, or budget + 1 if none
+     */
+    private void visit(Node node, int depth, int best) {
+        int m = word.length;
+        for (Edge e : node.getEdges().values()) {
+            int d = depth;
+            int edgeBest = best;
+            boolean pruned = false;
+            for (int pos = e.getBegin(); pos < e.getEnd(); ++pos) {
+                int symbol = store.get(pos);
+                int[] previous = columns[d];
+                int[] column = columns[++d];
+                column[0] = d;
+                int min = d;
+                for (int j = 1; j <= m; ++j) {
+                    int cost = previous[j - 1] + (word[j - 1] == symbol ? 0 : 1);
+                    cost = Math.min(cost, Math.min(previous[j], column[j - 1]) + 1);
+                    column[j] = cost;
+                    min = Math.min(min, cost);
+                }
+                if (column[m] < edgeBest) {
+                    edgeBest = column[m];
+                    found.get(edgeBest).add(e.getDest());
+                }
+                if (min >= edgeBest || d == word.length + budget) {
+                    pruned = true;
+                    break;
+                }
+            }
+            if (!pruned) {
+                visit(e.getDest(), d, edgeBest);
+            }
+        }
+    }
+}
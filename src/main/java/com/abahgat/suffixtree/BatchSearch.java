@@ -0,0 +1,218 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches for many words at once, sharing the walk from the root among words with a common prefix.
+ *
+ * Words are sorted first, so that each one is matched starting from where the previous one diverged
+ * instead of from the root: the path of the previous word is remembered one symbol at a time, as the node
+ * it reached and the edge and offset it stopped in. The results of each word are collected as search does.
+ *
+ * A parallel search splits the sorted words into ranges, each walked by a fork-join task of the common pool.
+ */
+final class BatchSearch {
+
+    /**
+     * The number of words under which a parallel search stops splitting its range
+     */
+    private static final int SPLIT_THRESHOLD = 64;
+
+    /**
+     * Orders words lexicographically, putting null ones, which can't match, first
+     */
+    private static final Comparator<int[]> LEXICOGRAPHIC = new Comparator<int[]>() {
+        public int compare(int[] a, int[] b) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : -1) : 1;
+            }
+            int length = Math.min(a.length, b.length);
+            for (int i = 0; i < length; ++i) {
+                if (a[i] != b[i]) {
+                    return a[i] < b[i] ? -1 : 1;
+                }
+            }
+            return a.length - b.length;
+        }
+    };
+
+    private BatchSearch() {
+    }
+
+    /**
+     * Returns the results of searching for each of the given words, in the same order.
+     *
+     * @param words the encoded words, null for those that can't match
+     * @param results the max number of results to return for each word, -1 for all
+     * @param parallel whether to search on all the threads of the common pool
+     */
+    static List<Collection<Integer>> search(AbstractSuffixTree tree, int[][] words, int results, boolean parallel) {
+        final int[][] sorted = words.clone();
+        Integer[] order = new Integer[words.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return LEXICOGRAPHIC.compare(sorted[a], sorted[b]);
+            }
+        });
+        int[] positions = new int[order.length];
+        for (int i = 0; i < order.length; ++i) {
+            positions[i] = order[i];
+            sorted[i] = words[order[i]];
+        }
+
+        List<Collection<Integer>> ret = new ArrayList<Collection<Integer>>(Collections.<Collection<Integer>>nCopies(words.length, null));
+        SearchTask task = new SearchTask(tree, tree.getRoot(), sorted, positions, results, ret, 0, sorted.length);
+        if (parallel) {
+            task.invoke();
+        } else {
+            task.searchRange();
+        }
+        return ret;
+    }
+
+    /**
+     * Searches for a range of the sorted words, splitting it while it is large enough
+     */
+    private static final class SearchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AbstractSuffixTree tree;
+        private final Node root;
+        private final int[][] sorted;
+        /**
+         * The position of each sorted word among the ones given
+         */
+        private final int[] positions;
+        private final int results;
+        private final List<Collection<Integer>> ret;
+        private final int from;
+        private final int to;
+
+        SearchTask(AbstractSuffixTree tree, Node root, int[][] sorted, int[] positions, int results,
+                List<Collection<Integer>> ret, int from, int to) {
+            this.tree = tree;
+            this.root = root;
+            this.sorted = sorted;
+            this.positions = positions;
+            this.results = results;
+            this.ret = ret;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                searchRange();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SearchTask(tree, root, sorted, positions, results, ret, from, middle),
+                    new SearchTask(tree, root, sorted, positions, results, ret, middle, to));
+        }
+
+        void searchRange() {
+            Walker walker = new Walker(tree.store, root);
+            for (int i = from; i < to; ++i) {
+                int[] word = sorted[i];
+                if (word != null) {
+                    ret.set(positions[i], tree.collect(walker.find(word), results, TraversalOrder.DEPTH_FIRST));
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the nodes of words given in lexicographic order, remembering the path of the last one
+     */
+    private static final class Walker {
+
+        private final SymbolStore store;
+        /**
+         * Where the path of the last word was after each of its symbols: at nodes[i], or offsets[i] symbols
+         * into edges[i] if it is not null
+         */
+        private Node[] nodes = new Node[16];
+        private Edge[] edges = new Edge[16];
+        private int[] offsets = new int[16];
+        private int[] last = new int[0];
+        /**
+         * The number of symbols of the last word found in the tree
+         */
+        private int matched = 0;
+
+        Walker(SymbolStore store, Node root) {
+            this.store = store;
+            nodes[0] = root;
+        }
+
+        /**
+         * Returns the node searchNode would return for the given word
+         */
+        Node find(int[] word) {
+            if (word.length >= nodes.length) {
+                int length = Math.max(word.length + 1, 2 * nodes.length);
+                nodes = Arrays.copyOf(nodes, length);
+                edges = Arrays.copyOf(edges, length);
+                offsets = Arrays.copyOf(offsets, length);
+            }
+            int i = 0;
+            int shared = Math.min(matched, word.length);
+            while (i < shared && last[i] == word[i]) {
+                ++i;
+            }
+            Node node = nodes[i];
+            Edge edge = edges[i];
+            int offset = offsets[i];
+            for (; i < word.length; ++i) {
+                if (edge == null) {
+                    edge = node.getEdge(word[i]);
+                    if (edge == null) {
+                        break;
+                    }
+                } else if (store.get(edge.getBegin() + offset) != word[i]) {
+                    break;
+                }
+                if (++offset == edge.length()) {
+                    node = edge.getDest();
+                    edge = null;
+                    offset = 0;
+                }
+                nodes[i + 1] = node;
+                edges[i + 1] = edge;
+                offsets[i + 1] = offset;
+            }
+            last = word;
+            matched = i;
+            if (i < word.length || word.length == 0) {
+                return null;
+            }
+            return edge == null ? node : edge.getDest();
+        }
+    }
+}
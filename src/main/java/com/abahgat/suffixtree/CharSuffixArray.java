@@ -0,0 +1,120 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A generalized suffix array whose keys are sequences of chars.
+ *
+ * It answers the same queries as a CharSuffixTree holding the same keys in a fraction of the memory,
+ * but all the keys are given when it is built, and searches take O(m log n) time for a word of length m
+ * among n chars.
+ *
+ * Once built, it can be searched by any number of threads.
+ *
+ * @see AbstractSuffixArray
+ */
+public class CharSuffixArray extends AbstractSuffixArray {
+
+    /**
+     * Builds a suffix array holding the given keys, each with the index in the same position of <tt>indexes</tt>.
+     *
+     * @param keys the keys to index
+     * @param indexes the value of each key, in non-decreasing order
+     * @throws IllegalArgumentException if there are not as many keys as indexes
+     * @throws IllegalStateException if the indexes are not in non-decreasing order
+     */
+    public CharSuffixArray(List<? extends CharSequence> keys, int[] indexes) throws IllegalStateException {
+        super(concat(keys, indexes), indexes);
+    }
+
+    private static int[] concat(List<? extends CharSequence> keys, int[] indexes) {
+        if (keys.size() != indexes.length) {
+            throw new IllegalArgumentException("Got " + keys.size() + " keys and " + indexes.length + " indexes");
+        }
+        long symbols = 0;
+        for (CharSequence key : keys) {
+            symbols += key.length();
+        }
+        int[] text = new int[textLength(keys.size(), symbols)];
+        int pos = 0;
+        for (CharSequence key : keys) {
+            for (int i = 0; i < key.length(); ++i) {
+                text[pos++] = key.charAt(i) + MIN_SYMBOL;
+            }
+            text[pos++] = SEPARATOR;
+        }
+        return text;
+    }
+
+    private static int[] encode(CharSequence word) {
+        int[] ret = new int[word.length()];
+        for (int i = 0; i < ret.length; ++i) {
+            ret[i] = word.charAt(i) + MIN_SYMBOL;
+        }
+        return ret;
+    }
+
+    /**
+     * Searches for the given word within the array.
+     *
+     * Returns all the indexes for which the key contains the <tt>word</tt> that was
+     * supplied as input.
+     *
+     * @param word the key to search for
+     * @return the collection of indexes associated with the input <tt>word</tt>, or null if there is none
+     */
+    public Collection<Integer> search(CharSequence word) {
+        return search(word, -1);
+    }
+
+    /**
+     * Searches for the given word within the array and returns at most the given number of matches.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @return at most <tt>results</tt> values for the given word, or null if there is none
+     */
+    public Collection<Integer> search(CharSequence word, int results) {
+        return collect(encode(word), results);
+    }
+
+    /**
+     * Searches for the given word and stores the indexes whose key contains it into <tt>results</tt>,
+     * replacing its previous content.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     */
+    public int search(CharSequence word, ResultBuffer results) {
+        return collect(encode(word), results);
+    }
+
+    /**
+     * Searches for the given word within the array and returns at most the given number of matches,
+     * together with the total number of matches. The total is counted without visiting the matches.
+     *
+     * @param word the key to search for
+     * @param to the max number of results to return
+     * @return at most <tt>to</tt> values for the given word
+     */
+    public GeneralizedSuffixTree.ResultInfo searchWithCount(CharSequence word, int to) {
+        return collectWithCount(encode(word), to);
+    }
+}
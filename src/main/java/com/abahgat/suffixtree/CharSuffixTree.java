@@ -0,0 +1,374 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A Generalized Suffix Tree whose keys are sequences of chars.
+ *
+ * It behaves exactly like a <tt>GeneralizedSuffixTree&lt;Character&gt;</tt>, but chars are used directly
+ * as symbols: nothing is boxed when keys are added or searched, and labels are compared as primitives.
+ *
+ * Like GeneralizedSuffixTree, it can be searched by any number of threads while a single thread puts keys into it.
+ *
+ * @see GeneralizedSuffixTree
+ */
+public class CharSuffixTree extends AbstractSuffixTree {
+
+    /**
+     * The store holding the keys, two bytes per char
+     */
+    private final CharSymbolStore symbols;
+
+    public CharSuffixTree() {
+        this(new CharSymbolStore());
+    }
+
+    private CharSuffixTree(CharSymbolStore symbols) {
+        super(symbols);
+        this.symbols = symbols;
+    }
+
+    /**
+     * Searches for the given word within the tree.
+     *
+     * Returns all the indexes for which the key contains the <tt>word</tt> that was
+     * supplied as input.
+     *
+     * @param word the key to search for
+     * @return the collection of indexes associated with the input <tt>word</tt>
+     */
+    public Collection<Integer> search(CharSequence word) {
+        return search(word, -1);
+    }
+
+    /**
+     * Searches for the given word within the tree and returns at most the given number of matches.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @return at most <tt>results</tt> values for the given word
+     */
+    public Collection<Integer> search(CharSequence word, int results) {
+        return search(word, results, TraversalOrder.DEPTH_FIRST);
+    }
+
+    /**
+     * Searches for the given word within the tree and returns at most the given number of matches,
+     * choosing which ones by visiting the subtree below the match in the given order.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @param order the order in which candidate matches are visited
+     * @return at most <tt>results</tt> values for the given word
+     * @see GeneralizedSuffixTree#search(java.util.List, int, TraversalOrder)
+     */
+    public Collection<Integer> search(CharSequence word, int results, TraversalOrder order) {
+        return collect(searchNode(word), results, order);
+    }
+
+    /**
+     * Searches for the given word and stores the indexes whose key contains it into <tt>results</tt>,
+     * replacing its previous content.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     * @see GeneralizedSuffixTree#search(java.util.List, ResultBuffer)
+     */
+    public int search(CharSequence word, ResultBuffer results) {
+        return collect(searchNode(word), results);
+    }
+
+    /**
+     * Searches for the given word within the tree and returns at most the given number of matches,
+     * together with the total number of matches.
+     *
+     * @param word the key to search for
+     * @param to the max number of results to return
+     * @return at most <tt>to</tt> values for the given word
+     * @see GeneralizedSuffixTree#searchWithCount(java.util.List, int)
+     */
+    public GeneralizedSuffixTree.ResultInfo searchWithCount(CharSequence word, int to) {
+        return collectWithCount(searchNode(word), to);
+    }
+
+    /**
+     * Searches for the given word and returns where it occurs, as (index, offset) pairs packed in longs,
+     * sorted by index, then by offset.
+     *
+     * @param word the key to search for
+     * @param results the max number of occurrences to return, -1 for all
+     * @return at most <tt>results</tt> occurrences of <tt>word</tt>, empty if there is none
+     * @see GeneralizedSuffixTree#searchPositions(java.util.List, int)
+     * @see Positions
+     */
+    public long[] searchPositions(CharSequence word, int results) {
+        return collectPositions(encode(word), results);
+    }
+
+    /**
+     * Returns where the given word occurs as a lazy stream of packed (index, offset) pairs.
+     *
+     * @param word the key to search for
+     * @return the occurrences of <tt>word</tt>, empty if there is none
+     * @see GeneralizedSuffixTree#searchPositionStream(java.util.List)
+     */
+    public LongStream searchPositionStream(CharSequence word) {
+        return StreamSupport.longStream(positionSpliterator(encode(word)), false);
+    }
+
+    /**
+     * Searches for the given word and returns the indexes whose keys contain it most often, with the number
+     * of times each contains it.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> matching indexes, ordered by decreasing frequency
+     * @see GeneralizedSuffixTree#searchRanked(java.util.List, int)
+     */
+    public RankedMatches searchRanked(CharSequence word, int results) {
+        return collectRanked(searchNode(word), results);
+    }
+
+    /**
+     * Searches for the keys that contain the given word with at most <tt>maxEdits</tt> edits, each an insertion,
+     * deletion or substitution of a symbol, and returns their indexes with the fewest edits each needs.
+     *
+     * @param word the key to search for
+     * @param maxEdits the max number of edits
+     * @return the matching indexes, ordered by increasing number of edits
+     * @throws IllegalArgumentException if maxEdits is negative
+     * @see GeneralizedSuffixTree#searchApproximate(java.util.List, int)
+     */
+    public ApproximateMatches searchApproximate(CharSequence word, int maxEdits) {
+        return searchApproximate(word, maxEdits, -1);
+    }
+
+    /**
+     * Searches for the keys that contain the given word with at most <tt>maxEdits</tt> edits, and returns at most
+     * the given number of indexes, closest first.
+     *
+     * @param word the key to search for
+     * @param maxEdits the max number of edits
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> matching indexes, ordered by increasing number of edits
+     * @throws IllegalArgumentException if maxEdits is negative
+     * @see GeneralizedSuffixTree#searchApproximate(java.util.List, int, int)
+     */
+    public ApproximateMatches searchApproximate(CharSequence word, int maxEdits, int results) {
+        return collectApproximate(encode(word), maxEdits, results);
+    }
+
+    /**
+     * Returns the matching statistics of the given text: for each of its offsets, the length of the longest
+     * run of symbols starting there that is found in the keys of the tree.
+     *
+     * @param text the text to match
+     * @return the length of the longest match at each offset of <tt>text</tt>
+     * @see GeneralizedSuffixTree#matchingStatistics(java.util.List)
+     */
+    public int[] matchingStatistics(CharSequence text) {
+        return computeMatchingStatistics(encode(text));
+    }
+
+    /**
+     * Finds the regions of the given text that keys of the tree share, and passes each of them to the visitor
+     * together with the indexes of the keys that share at least <tt>minLength</tt> symbols of it.
+     *
+     * @param text the text to match
+     * @param minLength the min number of symbols of a match
+     * @param visitor receives the matches, and may stop the search
+     * @see GeneralizedSuffixTree#findMatches(java.util.List, int, MatchVisitor)
+     */
+    public void findMatches(CharSequence text, int minLength, MatchVisitor visitor) {
+        collectMatches(encode(text), minLength, visitor);
+    }
+
+    /**
+     * Searches for each of the given words, and returns their results in the same order.
+     *
+     * @param words the keys to search for
+     * @return the results of each word, null for those that match nothing
+     * @see GeneralizedSuffixTree#searchAll(java.util.Collection)
+     */
+    public List<Collection<Integer>> searchAll(Collection<? extends CharSequence> words) {
+        return searchAll(words, -1, false);
+    }
+
+    /**
+     * Searches for each of the given words and returns at most the given number of matches for each,
+     * in the same order as the words.
+     *
+     * @param words the keys to search for
+     * @param results the max number of results to return for each word
+     * @param parallel whether to search on several threads
+     * @return the results of each word, null for those that match nothing
+     * @see GeneralizedSuffixTree#searchAll(java.util.Collection, int, boolean)
+     */
+    public List<Collection<Integer>> searchAll(Collection<? extends CharSequence> words, int results, boolean parallel) {
+        int[][] encoded = new int[words.size()][];
+        int i = 0;
+        for (CharSequence word : words) {
+            encoded[i++] = encode(word);
+        }
+        return collectAll(encoded, results, parallel);
+    }
+
+    /**
+     * Searches for the given word and returns at most the given number of matching indexes, sorted in the
+     * given order, without duplicates.
+     *
+     * @param word the key to search for
+     * @param order the order of the returned indexes
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> indexes for the given word, empty if there is none
+     * @see GeneralizedSuffixTree#searchSorted(java.util.List, SortOrder, int)
+     */
+    public int[] searchSorted(CharSequence word, SortOrder order, int results) {
+        return collectSorted(searchNode(word), order, results, SortedMerge.first(order));
+    }
+
+    /**
+     * Returns the page of matching indexes that comes after the given index, in the given order.
+     *
+     * @param word the key to search for
+     * @param order the order of the returned indexes
+     * @param results the max number of results to return, -1 for all
+     * @param after the index the page starts after, usually the last one of the previous page
+     * @return at most <tt>results</tt> indexes for the given word, empty if there is none
+     * @see GeneralizedSuffixTree#searchSorted(java.util.List, SortOrder, int, int)
+     */
+    public int[] searchSorted(CharSequence word, SortOrder order, int results, int after) {
+        return collectSorted(searchNode(word), order, results, after);
+    }
+
+    /**
+     * Returns the indexes whose key contains the given word as a lazy stream, each index once.
+     *
+     * @param word the key to search for
+     * @return the indexes associated with the input <tt>word</tt>, empty if there is none
+     * @see GeneralizedSuffixTree#searchStream(java.util.List)
+     */
+    public IntStream searchStream(CharSequence word) {
+        return StreamSupport.intStream(spliterator(searchNode(word)), false);
+    }
+
+    /**
+     * Returns an iterator over the indexes whose key contains the given word, each index once.
+     *
+     * @param word the key to search for
+     * @return the indexes associated with the input <tt>word</tt>
+     * @see GeneralizedSuffixTree#searchIterator(java.util.List)
+     */
+    public PrimitiveIterator.OfInt searchIterator(CharSequence word) {
+        return Spliterators.iterator(spliterator(searchNode(word)));
+    }
+
+    /**
+     * Returns the symbols of the given word
+     */
+    private static int[] encode(CharSequence word) {
+        int[] encoded = new int[word.length()];
+        for (int i = 0; i < encoded.length; ++i) {
+            encoded[i] = word.charAt(i);
+        }
+        return encoded;
+    }
+
+    /**
+     * Adds the specified <tt>index</tt> to the tree under the given <tt>key</tt>.
+     *
+     * Entries must be inserted so that their indexes are in non-decreasing order,
+     * otherwise an IllegalStateException will be raised.
+     *
+     * @param key the string key that will be added to the index
+     * @param index the value that will be added to the index
+     * @throws IllegalStateException if an invalid index is passed as input
+     */
+    public void put(CharSequence key, int index) throws IllegalStateException {
+        checkIndex(index);
+        add(symbols.add(key), index);
+    }
+
+    /**
+     * Adds all the given keys to the tree, each with the index in the same position of <tt>indexes</tt>.
+     *
+     * It has the same effect as putting each key in turn, but large batches are split in parts that are
+     * built on all the cores of the common fork-join pool and then merged.
+     *
+     * Indexes must be in non-decreasing order, and not less than any of the previously inserted ones,
+     * otherwise an IllegalStateException is raised and nothing is added.
+     *
+     * @param keys the keys that will be added to the index
+     * @param indexes the values that will be added to the index
+     * @throws IllegalArgumentException if there are not as many keys as indexes
+     * @throws IllegalStateException if an invalid index is passed as input
+     */
+    public void putAll(List<? extends CharSequence> keys, int[] indexes) throws IllegalStateException {
+        if (keys.size() != indexes.length) {
+            throw new IllegalArgumentException("Got " + keys.size() + " keys and " + indexes.length + " indexes");
+        }
+        checkIndexes(indexes);
+        int firstText = symbols.texts();
+        for (CharSequence key : keys) {
+            symbols.add(key);
+        }
+        insertAll(firstText, indexes);
+    }
+
+    /**
+     * Writes this tree to the given stream, in a form that read(InputStream) loads much faster than
+     * the keys could be put again. The stream is flushed but not closed.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream can't be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        TreeSerializer.write(this, TreeSerializer.CHAR_TREE, data);
+        data.flush();
+    }
+
+    /**
+     * Reads a tree written by write(OutputStream). The returned tree accepts further puts,
+     * with indexes not less than the ones it already holds.
+     *
+     * The stream is read with many small reads, so it should be buffered.
+     *
+     * @param in the stream to read from
+     * @return the tree that was written to the stream
+     * @throws IOException if the stream can't be read, or does not hold a CharSuffixTree
+     */
+    public static CharSuffixTree read(InputStream in) throws IOException {
+        CharSuffixTree tree = new CharSuffixTree();
+        TreeSerializer.read(tree, TreeSerializer.CHAR_TREE, new DataInputStream(in));
+        return tree;
+    }
+}
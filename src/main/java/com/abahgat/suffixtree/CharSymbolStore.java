@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A SymbolStore that keeps its symbols in <tt>char</tt> pages, using two bytes per symbol.
+ */
+class CharSymbolStore extends SymbolStore {
+
+    /**
+     * The pages of symbols. A grown array is published only once its new page is in place, so that
+     * searches never find a missing page.
+     */
+    private volatile char[][] pages = new char[0][];
+
+    int get(int pos) {
+        return pages[pos >>> PAGE_BITS][pos & PAGE_MASK];
+    }
+
+    int symbolBytes() {
+        return 2;
+    }
+
+    void ensurePage(int page) {
+        char[][] grown = grow(pages, page);
+        if (grown[page] == null) {
+            grown[page] = new char[PAGE_SIZE];
+        }
+        pages = grown;
+    }
+
+    /**
+     * Appends the given key as a new text, and returns its id.
+     */
+    int add(CharSequence key) {
+        int pos = beginText(key.length());
+        for (int i = 0; i < key.length(); ++i, ++pos) {
+            pages[pos >>> PAGE_BITS][pos & PAGE_MASK] = key.charAt(i);
+        }
+        return texts() - 1;
+    }
+
+    void writeSymbols(DataOutput out, int begin, int end) throws IOException {
+        for (int pos = begin; pos < end; ++pos) {
+            out.writeChar(pages[pos >>> PAGE_BITS][pos & PAGE_MASK]);
+        }
+    }
+
+    void readSymbols(DataInput in, int begin, int end) throws IOException {
+        for (int pos = begin; pos < end; ++pos) {
+            pages[pos >>> PAGE_BITS][pos & PAGE_MASK] = in.readChar();
+        }
+    }
+}
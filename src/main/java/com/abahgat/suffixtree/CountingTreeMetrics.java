@@ -0,0 +1,165 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Adds up the measures reported by one or more trees.
+ *
+ * Counters are LongAdders, so that searches running on many threads don't contend on them. Totals can be read
+ * at any time, and divided by the number of operations to get averages: getPutNanos() / getPuts() is the
+ * average time of a put, getSearchDepth() / getSearches() the average number of edges followed by a search.
+ * The counters can be exported as an MBean with register().
+ */
+public class CountingTreeMetrics implements TreeMetrics, CountingTreeMetricsMBean {
+
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder putNanos = new LongAdder();
+    private final AtomicLong maxPutNanos = new AtomicLong();
+    private final LongAdder nodesCreated = new LongAdder();
+    private final LongAdder edgesCreated = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder canonizeSteps = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchDepth = new LongAdder();
+    private final LongAdder collections = new LongAdder();
+    private final LongAdder nodesVisited = new LongAdder();
+    private final LongAdder results = new LongAdder();
+    private final LongAdder counts = new LongAdder();
+    private final LongAdder countNanos = new LongAdder();
+
+    public void put(long nanos, int nodes, int edges, int splits, int canonizeSteps) {
+        puts.increment();
+        putNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxPutNanos.get()) && !maxPutNanos.compareAndSet(max, nanos)) {
+            // retry
+        }
+        nodesCreated.add(nodes);
+        edgesCreated.add(edges);
+        this.splits.add(splits);
+        this.canonizeSteps.add(canonizeSteps);
+    }
+
+    public void search(int depth) {
+        searches.increment();
+        searchDepth.add(depth);
+    }
+
+    public void collect(int nodesVisited, int results) {
+        collections.increment();
+        this.nodesVisited.add(nodesVisited);
+        this.results.add(results);
+    }
+
+    public void count(long nanos) {
+        counts.increment();
+        countNanos.add(nanos);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under the domain of this package.
+     *
+     * @param name the name telling these metrics apart from the ones of other trees
+     * @return the name the MBean was registered with
+     * @throws JMException if the MBean can't be registered, for example because the name is taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(getClass().getPackage().getName()
+                + ":type=TreeMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    public long getPutNanos() {
+        return putNanos.sum();
+    }
+
+    public long getMaxPutNanos() {
+        return maxPutNanos.get();
+    }
+
+    public long getNodesCreated() {
+        return nodesCreated.sum();
+    }
+
+    public long getEdgesCreated() {
+        return edgesCreated.sum();
+    }
+
+    public long getSplits() {
+        return splits.sum();
+    }
+
+    public long getCanonizeSteps() {
+        return canonizeSteps.sum();
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getSearchDepth() {
+        return searchDepth.sum();
+    }
+
+    public long getCollections() {
+        return collections.sum();
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited.sum();
+    }
+
+    public long getResults() {
+        return results.sum();
+    }
+
+    public long getCounts() {
+        return counts.sum();
+    }
+
+    public long getCountNanos() {
+        return countNanos.sum();
+    }
+
+    public void reset() {
+        puts.reset();
+        putNanos.reset();
+        maxPutNanos.set(0);
+        nodesCreated.reset();
+        edgesCreated.reset();
+        splits.reset();
+        canonizeSteps.reset();
+        searches.reset();
+        searchDepth.reset();
+        collections.reset();
+        nodesVisited.reset();
+        results.reset();
+        counts.reset();
+        countNanos.reset();
+    }
+}
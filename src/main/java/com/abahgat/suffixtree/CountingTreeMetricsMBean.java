@@ -0,0 +1,55 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * The attributes and operations CountingTreeMetrics exports through JMX.
+ */
+public interface CountingTreeMetricsMBean {
+
+    long getPuts();
+
+    long getPutNanos();
+
+    long getMaxPutNanos();
+
+    long getNodesCreated();
+
+    long getEdgesCreated();
+
+    long getSplits();
+
+    long getCanonizeSteps();
+
+    long getSearches();
+
+    long getSearchDepth();
+
+    long getCollections();
+
+    long getNodesVisited();
+
+    long getResults();
+
+    long getCounts();
+
+    long getCountNanos();
+
+    /**
+     * Sets all the counters back to zero
+     */
+    void reset();
+}
@@ -15,34 +15,48 @@
  */
 package com.abahgat.suffixtree;
 
-import java.util.List;
-
 /**
  * Represents an Edge in the Suffix Tree.
  * It has a label and a destination Node
+ *
+ * The label is stored as the region [begin, end) of the SymbolStore of the tree,
+ * so an edge does not keep any other object reachable besides its destination.
+ *
+ * Edges are immutable: splitting one replaces it with two new edges.
  */
-class Edge<T> {
-    private List<T> label;
-    private Node dest;
+class Edge {
+    private final int begin;
+    private final int end;
+    private final Node dest;
+
+    /**
+     * Returns the position in the store of the first symbol of the label
+     */
+    int getBegin() {
+        return begin;
+    }
 
-    public List<T> getLabel() {
-        return label;
+    /**
+     * Returns the position in the store that follows the last symbol of the label
+     */
+    int getEnd() {
+        return end;
     }
 
-    public void setLabel(List<T> label) {
-        this.label = label;
+    /**
+     * Returns the number of symbols in the label
+     */
+    int length() {
+        return end - begin;
     }
 
     public Node getDest() {
         return dest;
     }
 
-    public void setDest(Node dest) {
-        this.dest = dest;
-    }
-
-    public Edge(List<T> label, Node dest) {
-        this.label = label;
+    public Edge(int begin, int end, Node dest) {
+        this.begin = begin;
+        this.end = end;
         this.dest = dest;
     }
 
@@ -15,52 +15,100 @@
  */
 package com.abahgat.suffixtree;
 
-import java.lang.reflect.Array;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Arrays;
 
-class EdgeBag<T extends Comparable> {
-    private T[] chars;
-    private Edge[] values;
-    private static final int BSEARCH_THRESHOLD = 6;
+/**
+ * The set of edges leaving a node, indexed by the first symbol of their label.
+ *
+ * Edges are kept in arrays sorted by symbol, and a new edge is inserted directly in its place,
+ * so adding n edges costs O(n^2) copying at worst instead of a full sort after each insert.
+ * How an edge is looked up depends on the fan-out of the node:
+ * - up to BSEARCH_THRESHOLD edges, the symbols are scanned linearly;
+ * - above that, they are binary searched;
+ * - above DIRECT_THRESHOLD edges, if the symbols fall in a range no wider than DIRECT_DENSITY times
+ *   their number (as it happens with the chars of most alphabets) edges are also stored in a table
+ *   directly indexed by symbol, so that lookups on the busiest nodes take constant time.
+ *
+ * A bag is immutable: adding an edge to a node replaces its bag with a new one.
+ */
+final class EdgeBag {
+    private static final int[] NO_CHARS = new int[0];
+    private static final Edge[] NO_EDGES = new Edge[0];
+    /**
+     * The fan-out up to which a linear scan beats a binary search, as measured by EdgeBagBenchmark: the scan
+     * is clearly ahead up to 16 symbols, and within the noise of the binary search from 20 to 32
+     */
+    private static final int BSEARCH_THRESHOLD = 16;
+    private static final int DIRECT_THRESHOLD = 16;
+    private static final int DIRECT_DENSITY = 4;
 
-    private final Comparator<T> C = new Comparator<T>() {
-        public int compare(T one, T two)
-        {
-            return one.compareTo(two);
-        }
-    };
+    /**
+     * The bag with no edges, which all nodes start from
+     */
+    static final EdgeBag EMPTY = new EdgeBag(NO_CHARS, NO_EDGES, null, 0);
 
-    void put(T c, Edge e) {
-        if (chars == null) {
-            chars = (T[]) Array.newInstance(c.getClass(), 0);
-            values = new Edge[0];
-        }
+    /**
+     * The first symbols of the edges, in increasing order
+     */
+    private final int[] chars;
+    /**
+     * The edges, in the same order as chars
+     */
+    private final Edge[] values;
+    /**
+     * The edges indexed by (symbol - directBase), or null when the node has too few edges
+     * or when their symbols are too sparse
+     */
+    private final Edge[] direct;
+    private final int directBase;
+
+    private EdgeBag(int[] chars, Edge[] values, Edge[] direct, int directBase) {
+        this.chars = chars;
+        this.values = values;
+        this.direct = direct;
+        this.directBase = directBase;
+    }
+
+    /**
+     * Returns a bag holding the same edges as this one, plus <tt>e</tt> under <tt>c</tt>
+     * in place of any edge that was there.
+     *
+     * Bags are never modified once built, so a bag can be read while a node is being updated with a new one.
+     * The arrays are copied anyway when an edge is inserted, so only replacing an edge costs more than it
+     * would in place.
+     */
+    EdgeBag with(int c, Edge e) {
         int idx = search(c);
 
         if (idx < 0) {
+            int insertion = -(idx + 1);
             int currsize = chars.length;
-            T[] copy = (T[]) Array.newInstance(c.getClass(), currsize + 1);
-            System.arraycopy(chars, 0, copy, 0, currsize);
-            chars = copy;
+            int[] copy = new int[currsize + 1];
+            System.arraycopy(chars, 0, copy, 0, insertion);
+            System.arraycopy(chars, insertion, copy, insertion + 1, currsize - insertion);
+            copy[insertion] = c;
             Edge[] copy1 = new Edge[currsize + 1];
-            System.arraycopy(values, 0, copy1, 0, currsize);
-            values = copy1;
-            chars[currsize] = c;
-            values[currsize] = e;
-            currsize++;
-            if (currsize > BSEARCH_THRESHOLD) {
-                sortArrays();
-            }
+            System.arraycopy(values, 0, copy1, 0, insertion);
+            System.arraycopy(values, insertion, copy1, insertion + 1, currsize - insertion);
+            copy1[insertion] = e;
+            return withDirect(copy, copy1, c, e);
         } else {
-            values[idx] = e;
+            Edge[] copy1 = values.clone();
+            copy1[idx] = e;
+            Edge[] directCopy = null;
+            if (direct != null) {
+                directCopy = direct.clone();
+                directCopy[c - directBase] = e;
+            }
+            return new EdgeBag(chars, copy1, directCopy, directBase);
         }
     }
 
-    Edge get(T c) {
-
+    Edge get(int c) {
+        if (direct != null) {
+            int slot = c - directBase;
+            return slot >= 0 && slot < direct.length ? direct[slot] : null;
+        }
         int idx = search(c);
         if (idx < 0) {
             return null;
@@ -68,44 +116,69 @@ class EdgeBag<T extends Comparable> {
         return values[idx];
     }
 
-    private int search(T c) {
-        if (chars == null)
-            return -1;
-        
+    /**
+     * Returns the position of the given symbol in chars, or (-(insertion point) - 1) if it is not there
+     */
+    private int search(int c) {
         if (chars.length > BSEARCH_THRESHOLD) {
-            return java.util.Arrays.binarySearch(chars, c, C);
+            return Arrays.binarySearch(chars, c);
         }
 
         for (int i = 0; i < chars.length; i++) {
             if (c == chars[i]) {
                 return i;
+            } else if (c < chars[i]) {
+                return -(i + 1);
             }
         }
-        return -1;
+        return -(chars.length + 1);
     }
 
-    Edge[] values() {
-        return values == null ? new Edge[0] : values;
+    /**
+     * Builds the bag that follows this one once the edge starting with <tt>c</tt> has been added,
+     * keeping the direct table in sync.
+     */
+    private EdgeBag withDirect(int[] chars, Edge[] values, int c, Edge e) {
+        int size = chars.length;
+        if (size <= DIRECT_THRESHOLD) {
+            return new EdgeBag(chars, values, null, 0);
+        }
+        if (direct != null && c - directBase >= 0 && c - directBase < direct.length) {
+            Edge[] directCopy = direct.clone();
+            directCopy[c - directBase] = e;
+            return new EdgeBag(chars, values, directCopy, directBase);
+        }
+        long range = (long) chars[size - 1] - chars[0] + 1;
+        if (range > (long) DIRECT_DENSITY * size) {
+            return new EdgeBag(chars, values, null, 0);
+        }
+        // leave some room on both sides, so that nearby symbols don't need a new table
+        int slack = (int) Math.min(range / 4, (long) DIRECT_DENSITY * size - range);
+        int newBase = (int) Math.max(Integer.MIN_VALUE, (long) chars[0] - slack / 2);
+        Edge[] newDirect = new Edge[(int) Math.min(range + slack, (long) Integer.MAX_VALUE - newBase + 1)];
+        for (int i = 0; i < size; i++) {
+            newDirect[chars[i] - newBase] = values[i];
+        }
+        return new EdgeBag(chars, values, newDirect, newBase);
     }
-    
+
     /**
-     * A trivial implementation of sort, used to sort chars[] and values[] according to the data in chars.
-     * 
-     * It was preferred to faster sorts (like qsort) because of the small sizes (<=36) of the collections involved.
+     * Returns the edges in the bag, sorted by their first symbol. The array must not be modified.
      */
-    private void sortArrays() {
-        for (int i = 0; i < chars.length; i++) {
-         for (int j = i; j > 0; j--) {
-            if (chars[j-1].compareTo(chars[j]) > 0) {
-               T swap = chars[j];
-               chars[j] = chars[j-1];
-               chars[j-1] = swap;
+    Edge[] values() {
+        return values;
+    }
 
-               Edge swapEdge = values[j];
-               values[j] = values[j-1];
-               values[j-1] = swapEdge;
-            }
-         }
-      }
+    /**
+     * Returns an estimate of the bytes taken by this bag and its arrays
+     */
+    long estimateBytes() {
+        if (this == EMPTY) {
+            return 0;
+        }
+        return TreeStats.object(3 * TreeStats.REFERENCE + 4)
+                + TreeStats.array(chars.length, 4)
+                + TreeStats.array(values.length, TreeStats.REFERENCE)
+                + (direct == null ? 0 : TreeStats.array(direct.length, TreeStats.REFERENCE));
     }
 }
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A generalized suffix array, whose keys are lists of any symbol.
+ *
+ * It answers the same queries as a GeneralizedSuffixTree holding the same keys in a fraction of the memory,
+ * but all the keys are given when it is built, and searches take O(m log n) time for a word of length m
+ * among n symbols. See AbstractSuffixArray for the structures it is made of.
+ *
+ * Once built, it can be searched by any number of threads.
+ *
+ * @param <T> the type of the symbols of the keys
+ * @see CharSuffixArray
+ */
+public class GeneralizedSuffixArray<T extends Comparable<T>> extends AbstractSuffixArray {
+
+    /**
+     * The codes assigned to the symbols of the keys, in the order they were first seen
+     */
+    private final Map<T, Integer> codes;
+
+    /**
+     * Builds a suffix array holding the given keys, each with the index in the same position of <tt>indexes</tt>.
+     *
+     * @param keys the keys to index
+     * @param indexes the value of each key, in non-decreasing order
+     * @throws IllegalArgumentException if there are not as many keys as indexes
+     * @throws IllegalStateException if the indexes are not in non-decreasing order
+     */
+    public GeneralizedSuffixArray(List<? extends List<T>> keys, int[] indexes) throws IllegalStateException {
+        this(new HashMap<T, Integer>(), keys, indexes);
+    }
+
+    private GeneralizedSuffixArray(Map<T, Integer> codes, List<? extends List<T>> keys, int[] indexes) {
+        super(concat(codes, keys, indexes), indexes);
+        this.codes = codes;
+    }
+
+    private static <T> int[] concat(Map<T, Integer> codes, List<? extends List<T>> keys, int[] indexes) {
+        if (keys.size() != indexes.length) {
+            throw new IllegalArgumentException("Got " + keys.size() + " keys and " + indexes.length + " indexes");
+        }
+        long symbols = 0;
+        for (List<T> key : keys) {
+            symbols += key.size();
+        }
+        int[] text = new int[textLength(keys.size(), symbols)];
+        int pos = 0;
+        for (List<T> key : keys) {
+            for (T symbol : key) {
+                Integer code = codes.get(symbol);
+                if (code == null) {
+                    code = codes.size() + MIN_SYMBOL;
+                    codes.put(symbol, code);
+                }
+                text[pos++] = code;
+            }
+            text[pos++] = SEPARATOR;
+        }
+        return text;
+    }
+
+    /**
+     * Returns the given word mapped to the symbols of the text, or null if it holds a symbol no key has.
+     */
+    private int[] encode(List<T> word) {
+        int[] ret = new int[word.size()];
+        int i = 0;
+        for (T symbol : word) {
+            Integer code = codes.get(symbol);
+            if (code == null) {
+                return null;
+            }
+            ret[i++] = code;
+        }
+        return ret;
+    }
+
+    /**
+     * Searches for the given word within the array.
+     *
+     * Returns all the indexes for which the key contains the <tt>word</tt> that was
+     * supplied as input.
+     *
+     * @param word the key to search for
+     * @return the collection of indexes associated with the input <tt>word</tt>, or null if there is none
+     */
+    public Collection<Integer> search(List<T> word) {
+        return search(word, -1);
+    }
+
+    /**
+     * Searches for the given word within the array and returns at most the given number of matches.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @return at most <tt>results</tt> values for the given word, or null if there is none
+     */
+    public Collection<Integer> search(List<T> word, int results) {
+        return collect(encode(word), results);
+    }
+
+    /**
+     * Searches for the given word and stores the indexes whose key contains it into <tt>results</tt>,
+     * replacing its previous content.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     */
+    public int search(List<T> word, ResultBuffer results) {
+        return collect(encode(word), results);
+    }
+
+    /**
+     * Searches for the given word within the array and returns at most the given number of matches,
+     * together with the total number of matches. The total is counted without visiting the matches.
+     *
+     * @param word the key to search for
+     * @param to the max number of results to return
+     * @return at most <tt>to</tt> values for the given word
+     */
+    public GeneralizedSuffixTree.ResultInfo searchWithCount(List<T> word, int to) {
+        return collectWithCount(encode(word), to);
+    }
+}
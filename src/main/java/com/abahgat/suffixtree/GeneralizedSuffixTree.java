@@ -15,10 +15,26 @@
  */
 package com.abahgat.suffixtree;
 
-import java.util.ArrayList;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A Generalized Suffix Tree, based on the Ukkonen's paper "On-line construction of suffix trees"
@@ -52,22 +68,41 @@ import java.util.List;
  * the labels of the edges starting from the last node of the path.
  *
  * This kind of "implicit path" is important in the testAndSplit method.
- *  
+ *
+ * Symbols are mapped to <tt>int</tt> codes the first time they are seen, and the tree is built over
+ * those codes. When the keys are made of chars or ints, CharSuffixTree and IntSuffixTree avoid
+ * the mapping (and the boxing) altogether.
+ *
+ * Any number of threads may search the tree while a single thread puts keys into it, with no locking:
+ * a search sees every key whose put completed before the search started, and may or may not see the key
+ * being put meanwhile. Puts must not run concurrently with each other.
+ *
+ * @see CharSuffixTree
+ * @see IntSuffixTree
  */
-public class GeneralizedSuffixTree<T extends Comparable<T>> {
+public class GeneralizedSuffixTree<T extends Comparable<T>> extends AbstractSuffixTree {
 
     /**
-     * The index of the last item that was added to the GST
-     */
-    private int last = 0;
-    /**
-     * The root of the suffix tree
+     * The codes assigned to the symbols seen so far.
+     *
+     * The tree itself only deals with <tt>int</tt> codes, so every symbol is boxed at most once here
+     * rather than being stored, and compared, as a <tt>T</tt> on every edge.
+     * It is read by searches while put adds to it, hence a concurrent map.
      */
-    private final Node root = new Node();
+    private final Map<T, Integer> codes = new ConcurrentHashMap<T, Integer>();
     /**
-     * The last leaf that was added during the update operation
+     * The store holding the encoded keys
      */
-    private Node activeLeaf = root;
+    private final IntSymbolStore symbols;
+
+    public GeneralizedSuffixTree() {
+        this(new IntSymbolStore());
+    }
+
+    private GeneralizedSuffixTree(IntSymbolStore symbols) {
+        super(symbols);
+        this.symbols = symbols;
+    }
 
     /**
      * Searches for the given word within the GST.
@@ -90,11 +125,48 @@ public class GeneralizedSuffixTree<T extends Comparable<T>> {
      * @return at most <tt>results</tt> values for the given word
      */
     public Collection<Integer> search(List<T> word, int results) {
-        Node tmpNode = searchNode(word);
-        if (tmpNode == null) {
-            return null;
-        }
-        return tmpNode.getData(results);
+        return search(word, results, TraversalOrder.DEPTH_FIRST);
+    }
+
+    /**
+     * Searches for the given word within the GST and returns at most the given number of matches,
+     * choosing which ones by visiting the subtree below the match in the given order.
+     *
+     * The traversal stops as soon as <tt>results</tt> matches are found, so the cost of this method
+     * is proportional to the length of the word plus the number of results, rather than to the
+     * number of keys containing the word.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @param order the order in which candidate matches are visited
+     * @return at most <tt>results</tt> values for the given word
+     */
+    public Collection<Integer> search(List<T> word, int results, TraversalOrder order) {
+        return collect(searchNode(word), results, order);
+    }
+
+    /**
+     * Searches for the given word and stores the indexes whose key contains it into <tt>results</tt>,
+     * replacing its previous content. At most as many indexes as the buffer accepts are stored.
+     *
+     * Once the buffer has grown to fit the results, this allocates nothing besides the encoded copy of <tt>word</tt>, so it is the
+     * preferred way to run many searches: keep one ResultBuffer per thread and reuse it.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     */
+    public int search(List<T> word, ResultBuffer results) {
+        return collect(searchNode(word), results);
+    }
+
+    /**
+     * Adds the indexes whose key contains the given word to <tt>results</tt>, keeping its previous content.
+     *
+     * @return false if <tt>results</tt> can't accept any more indexes
+     */
+    boolean searchMore(List<T> word, ResultBuffer results) {
+        return collectMore(searchNode(word), results);
     }
 
     /**
@@ -103,40 +175,212 @@ public class GeneralizedSuffixTree<T extends Comparable<T>> {
      * @param word the key to search for
      * @param to the max number of results to return
      * @return at most <tt>results</tt> values for the given word
-\     */
+     */
     public ResultInfo searchWithCount(List<T> word, int to) {
-        Node tmpNode = searchNode(word);
-        if (tmpNode == null) {
-            return new ResultInfo(Collections.EMPTY_LIST, 0);
-        }
+        return collectWithCount(searchNode(word), to);
+    }
 
-        return new ResultInfo(tmpNode.getData(to), tmpNode.getResultCount());
+    /**
+     * Searches for the given word within the GST and returns where it occurs, as (index, offset) pairs packed
+     * in longs, which Positions reads back. Occurrences are sorted by index, then by offset, and may overlap.
+     *
+     * Offsets are worked out from the depth of the nodes below the match and the length of the keys, so the
+     * tree takes no more memory for them, and matches don't have to be searched again in the keys to find them.
+     *
+     * @param word the key to search for
+     * @param results the max number of occurrences to return, -1 for all
+     * @return at most <tt>results</tt> occurrences of <tt>word</tt>, empty if there is none
+     */
+    public long[] searchPositions(List<T> word, int results) {
+        return collectPositions(lookup(word), results);
     }
 
+    /**
+     * Returns where the given word occurs as a lazy stream of packed (index, offset) pairs, sorted like
+     * searchPositions returns them. The occurrences of an index are found when the stream gets to it.
+     *
+     * @param word the key to search for
+     * @return the occurrences of <tt>word</tt>, empty if there is none
+     */
+    public LongStream searchPositionStream(List<T> word) {
+        return StreamSupport.longStream(positionSpliterator(lookup(word)), false);
+    }
 
-    private boolean arrayRegionMatches(List<T> word, List<T> other,
-                                       int toffset,
-                                       int ooffset,
-                                       int len)
-    {
-        List<T> ta = word;
-        int to = toffset;
-        List<T> pa = other;
-        int po = ooffset;
-        // Note: toffset, ooffset, or len might be near -1>>>1.
-        if ((ooffset < 0) || (toffset < 0)
-                || (toffset > (long)word.size() - len)
-                || (ooffset > (long)other.size() - len)) {
-            return false;
-        }
-        while (len-- > 0) {
-            if (!ta.get(to++).equals(pa.get(po++))) {
-                return false;
-            }
+    /**
+     * Searches for the given word within the GST and returns the indexes whose keys contain it most often,
+     * with the number of times each contains it.
+     *
+     * Frequencies are counted while merging the sorted lists of the subtree below the match, and only the best
+     * <tt>results</tt> indexes are kept along the way, so ranking takes memory proportional to <tt>results</tt>
+     * rather than to the number of matches. Occurrences may overlap. Keys sharing an index count together,
+     * except that occurrences followed by the same symbols up to the end of two of those keys count once.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> matching indexes, ordered by decreasing frequency
+     */
+    public RankedMatches searchRanked(List<T> word, int results) {
+        return collectRanked(searchNode(word), results);
+    }
+
+    /**
+     * Searches for the keys that contain the given word with at most <tt>maxEdits</tt> edits, each an insertion,
+     * deletion or substitution of a symbol, and returns their indexes with the fewest edits each needs.
+     *
+     * Only the paths of the tree that stay within <tt>maxEdits</tt> of the word are visited, so the search takes
+     * about as long as the number of parts of the keys close enough to the word, not as the size of the tree.
+     *
+     * @param word the key to search for
+     * @param maxEdits the max number of edits
+     * @return the matching indexes, ordered by increasing number of edits
+     * @throws IllegalArgumentException if maxEdits is negative
+     */
+    public ApproximateMatches searchApproximate(List<T> word, int maxEdits) {
+        return searchApproximate(word, maxEdits, -1);
+    }
+
+    /**
+     * Searches for the keys that contain the given word with at most <tt>maxEdits</tt> edits, and returns at most
+     * the given number of indexes. The indexes needing the fewest edits are returned first, and collecting
+     * indexes stops as soon as enough are found.
+     *
+     * @param word the key to search for
+     * @param maxEdits the max number of edits
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> matching indexes, ordered by increasing number of edits
+     * @throws IllegalArgumentException if maxEdits is negative
+     */
+    public ApproximateMatches searchApproximate(List<T> word, int maxEdits, int results) {
+        return collectApproximate(codesOf(word), maxEdits, results);
+    }
+
+    /**
+     * Returns the matching statistics of the given text: for each of its offsets, the length of the longest
+     * run of symbols starting there that is found in the keys of the tree.
+     *
+     * The text is walked once, following suffix links from one offset to the next, so it takes time linear
+     * in its length instead of a search per offset. Keys that were removed count until they are compacted away.
+     *
+     * @param text the text to match
+     * @return the length of the longest match at each offset of <tt>text</tt>
+     */
+    public int[] matchingStatistics(List<T> text) {
+        return computeMatchingStatistics(codesOf(text));
+    }
+
+    /**
+     * Finds the regions of the given text that keys of the tree share, and passes each of them to the visitor
+     * together with the indexes of the keys that share at least <tt>minLength</tt> symbols of it.
+     *
+     * Matches are maximal: they can't be extended on either side and still be found in the tree.
+     * They are visited from the first offset of the text to the last, as the text is walked, in linear time
+     * besides the cost of collecting indexes. Every index whose key shares at least <tt>minLength</tt> consecutive
+     * symbols with the text is passed with at least one match.
+     *
+     * @param text the text to match
+     * @param minLength the min number of symbols of a match
+     * @param visitor receives the matches, and may stop the search
+     */
+    public void findMatches(List<T> text, int minLength, MatchVisitor visitor) {
+        collectMatches(codesOf(text), minLength, visitor);
+    }
+
+    /**
+     * Searches for each of the given words, and returns their results in the same order.
+     *
+     * It returns what calling search on each word would, but words that share a prefix share the walk
+     * from the root too: the words are sorted, and each one is matched from where the previous one diverged.
+     *
+     * @param words the keys to search for
+     * @return the results of each word, null for those that match nothing
+     */
+    public List<Collection<Integer>> searchAll(Collection<? extends List<T>> words) {
+        return searchAll(words, -1, false);
+    }
+
+    /**
+     * Searches for each of the given words and returns at most the given number of matches for each,
+     * in the same order as the words.
+     *
+     * A parallel search splits the words among the threads of the common fork-join pool.
+     *
+     * @param words the keys to search for
+     * @param results the max number of results to return for each word
+     * @param parallel whether to search on several threads
+     * @return the results of each word, null for those that match nothing
+     */
+    public List<Collection<Integer>> searchAll(Collection<? extends List<T>> words, int results, boolean parallel) {
+        int[][] encoded = new int[words.size()][];
+        int i = 0;
+        for (List<T> word : words) {
+            encoded[i++] = lookup(word);
         }
-        return true;
+        return collectAll(encoded, results, parallel);
+    }
+
+    /**
+     * Searches for the given word and returns at most the given number of matching indexes, sorted in the
+     * given order, without duplicates.
+     *
+     * Only the indexes that are returned are sorted: the lists of the subtree below the match are merged,
+     * and the merge stops once enough indexes are found.
+     *
+     * @param word the key to search for
+     * @param order the order of the returned indexes
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> indexes for the given word, empty if there is none
+     */
+    public int[] searchSorted(List<T> word, SortOrder order, int results) {
+        return collectSorted(searchNode(word), order, results, SortedMerge.first(order));
+    }
+
+    /**
+     * Returns the page of matching indexes that comes after the given index, in the given order: the indexes
+     * greater than <tt>after</tt> when ascending, smaller when descending. Passing the last index of a page
+     * gets the next one, which costs about as much as the first.
+     *
+     * @param word the key to search for
+     * @param order the order of the returned indexes
+     * @param results the max number of results to return, -1 for all
+     * @param after the index the page starts after, usually the last one of the previous page
+     * @return at most <tt>results</tt> indexes for the given word, empty if there is none
+     */
+    public int[] searchSorted(List<T> word, SortOrder order, int results, int after) {
+        return collectSorted(searchNode(word), order, results, after);
     }
 
+    /**
+     * Returns the page of matching indexes that comes after <tt>after</tt>, which may be out of the range of an int
+     * to get the first page, as SortedMerge.first returns.
+     */
+    int[] searchSorted(List<T> word, SortOrder order, int results, long after) {
+        return collectSorted(searchNode(word), order, results, after);
+    }
+
+    /**
+     * Returns the indexes whose key contains the given word as a lazy stream, each index once.
+     *
+     * The subtree below the match is only visited as far as the stream is consumed, so taking the first
+     * few results of a large set costs about as much as finding them. The stream can be made parallel,
+     * in which case the subtree is split among the threads.
+     *
+     * @param word the key to search for
+     * @return the indexes associated with the input <tt>word</tt>, empty if there is none
+     */
+    public IntStream searchStream(List<T> word) {
+        return StreamSupport.intStream(spliterator(searchNode(word)), false);
+    }
+
+    /**
+     * Returns an iterator over the indexes whose key contains the given word, each index once.
+     * Like searchStream, it visits the subtree below the match as it is advanced.
+     *
+     * @param word the key to search for
+     * @return the indexes associated with the input <tt>word</tt>
+     */
+    public PrimitiveIterator.OfInt searchIterator(List<T> word) {
+        return Spliterators.iterator(spliterator(searchNode(word)));
+    }
 
     public boolean startsWith(List<T> str, List<T> prefix, int toffset) {
         List<T> ta = str;
@@ -160,44 +404,35 @@ public class GeneralizedSuffixTree<T extends Comparable<T>> {
         return startsWith(str, prefix, 0);
     }
 
+    /**
+     * Returns the number of indexes the given word matches, as counted on its node
+     */
+    int countMatches(List<T> word) {
+        Node node = searchNode(word);
+        return node == null ? 0 : node.getResultCount();
+    }
+
     /**
      * Returns the tree node (if present) that corresponds to the given string.
      */
     private Node searchNode(List<T> word) {
-        /*
-         * Verifies if exists a path from the root to a node such that the concatenation
-         * of all the labels on the path is a superstring of the given word.
-         * If such a path is found, the last node on it is returned.
-         */
-        Node currentNode = root;
-        Edge currentEdge;
-
-        for (int i = 0; i < word.size(); ++i) {
-            T ch = word.get(i);
-            // follow the edge corresponding to this char
-            currentEdge = currentNode.getEdge(ch);
-            if (null == currentEdge) {
-                // there is no edge starting with this char
-                return null;
-            } else {
-                List<T> label = currentEdge.getLabel();
-                int lenToMatch = Math.min(word.size() - i, label.size());
-                if (arrayRegionMatches(word, label, i, 0, lenToMatch)) {
-                    // the label on the edge does not correspond to the one in the string to search
-                    return null;
-                }
+        int[] encoded = lookup(word);
+        return encoded == null ? null : searchNode(encoded);
+    }
 
-                if (label.size() >= word.size() - i) {
-                    return currentEdge.getDest();
-                } else {
-                    // advance to next node
-                    currentNode = currentEdge.getDest();
-                    i += lenToMatch - 1;
-                }
+    /**
+     * Returns the codes of the symbols of the given word, or null if one of them was never added to the tree
+     */
+    private int[] lookup(List<T> word) {
+        int[] encoded = new int[word.size()];
+        for (int i = 0; i < encoded.length; ++i) {
+            Integer code = codes.get(word.get(i));
+            if (null == code) {
+                return null;
             }
+            encoded[i] = code;
         }
-
-        return null;
+        return encoded;
     }
 
     /**
@@ -211,259 +446,195 @@ public class GeneralizedSuffixTree<T extends Comparable<T>> {
      * @throws IllegalStateException if an invalid index is passed as input
      */
     public void put(List<T> key, int index) throws IllegalStateException {
-        if (index < last) {
-            throw new IllegalStateException("The input index must not be less than any of the previously inserted ones. Got " + index + ", expected at least " + last);
-        } else {
-            last = index;
-        }
-
-        // reset activeLeaf
-        activeLeaf = root;
-
-        List<T> remainder = key;
-        Node s = root;
-
-        // proceed with tree construction (closely related to procedure in
-        // Ukkonen's paper)
-        List<T> text = new ArrayList<T>();
-        // iterate over the string, one char at a time
-        for (int i = 0; i < remainder.size(); i++) {
-            // line 6
-            text.add(remainder.get(i));
-            // use intern to make sure the resulting string is in the pool.
-
-            // line 7: update the tree with the new transitions due to this new char
-            Pair<Node, List<T>> active = update(s, text, remainder.subList(i, remainder.size()), index);
-            // line 8: make sure the active pair is canonical
-            active = canonize(active.getFirst(), active.getSecond());
-            
-            s = active.getFirst();
-            text = active.getSecond();
-        }
+        checkIndex(index);
+        add(symbols.add(encode(key)), index);
+    }
 
-        // add leaf suffix link, is necessary
-        if (null == activeLeaf.getSuffix() && activeLeaf != root && activeLeaf != s) {
-            activeLeaf.setSuffix(s);
+    /**
+     * Returns the codes of the symbols of the given text, with -1 for the symbols never added to the tree
+     */
+    private int[] codesOf(List<T> text) {
+        int[] encoded = new int[text.size()];
+        for (int i = 0; i < encoded.length; ++i) {
+            Integer code = codes.get(text.get(i));
+            encoded[i] = code == null ? -1 : code;
         }
-
+        return encoded;
     }
 
     /**
-     * Tests whether the string stringPart + t is contained in the subtree that has inputs as root.
-     * If that's not the case, and there exists a path of edges e1, e2, ... such that
-     *     e1.label + e2.label + ... + $end = stringPart
-     * and there is an edge g such that
-     *     g.label = stringPart + rest
-     * 
-     * Then g will be split in two different edges, one having $end as label, and the other one
-     * having rest as label.
-     *
-     * @param inputs the starting node
-     * @param stringPart the string to search
-     * @param t the following character
-     * @param remainder the remainder of the string to add to the index
-     * @param value the value to add to the index
-     * @return a pair containing
-     *                  true/false depending on whether (stringPart + t) is contained in the subtree starting in inputs
-     *                  the last node that can be reached by following the path denoted by stringPart starting from inputs
-     *         
-     */
-    private Pair<Boolean, Node<T>> testAndSplit(final Node inputs, final List<T> stringPart, final T t, final List<T> remainder, final int value) {
-        // descend the tree as far as possible
-        Pair<Node, List<T>> ret = canonize(inputs, stringPart);
-        Node s = ret.getFirst();
-        List<T> str = ret.getSecond();
-
-        if (!str.isEmpty()) {
-            Edge<T> g = s.getEdge(str.get(0));
-
-            List<T> label = g.getLabel();
-            // must see whether "str" is substring of the label of an edge
-            if (label.size() > str.size() && label.get(str.size()).equals(t)) {
-                return new Pair<Boolean, Node<T>>(true, s);
-            } else {
-                // need to split the edge
-                List<T> newlabel = label.subList(str.size(), label.size());
-                assert (startsWith(label, str));
-
-                // build a new node
-                Node r = new Node();
-                // build a new edge
-                Edge<T> newedge = new Edge<T>(str, r);
-
-                g.setLabel(newlabel);
-
-                // link s -> r
-                r.addEdge(newlabel.get(0), g);
-                s.addEdge(str.get(0), newedge);
-
-                return new Pair<Boolean, Node<T>>(false, r);
-            }
-
-        } else {
-            Edge<T> e = s.getEdge(t);
-            if (null == e) {
-                // if there is no t-transtion from s
-                return new Pair<Boolean, Node<T>>(false, s);
-            } else {
-                if (remainder.equals(e.getLabel())) {
-                    // update payload of destination node
-                    e.getDest().addRef(value);
-                    return new Pair<Boolean, Node<T>>(true, s);
-                } else if (startsWith(remainder, e.getLabel())) {
-                    return new Pair<Boolean, Node<T>>(true, s);
-                } else if (startsWith(e.getLabel(), remainder)) {
-                    // need to split as above
-                    Node<T> newNode = new Node<T>();
-                    newNode.addRef(value);
-
-                    Edge<T> newEdge = new Edge<T>(remainder, newNode);
-
-                    e.setLabel(e.getLabel().subList(remainder.size(), e.getLabel().size()));
-
-                    newNode.addEdge(e.getLabel().get(0), e);
-
-                    s.addEdge(t, newEdge);
-
-                    return new Pair<Boolean, Node<T>>(false, s);
-                } else {
-                    // they are different words. No prefix. but they may still share some common substr
-                    return new Pair<Boolean, Node<T>>(true, s);
-                }
+     * Returns the codes of the symbols of the given key, assigning new codes to the symbols never seen before.
+     */
+    private int[] encode(List<T> key) {
+        int[] encoded = new int[key.size()];
+        for (int i = 0; i < encoded.length; ++i) {
+            T symbol = key.get(i);
+            Integer code = codes.get(symbol);
+            if (null == code) {
+                code = codes.size();
+                codes.put(symbol, code);
             }
+            encoded[i] = code;
         }
-
+        return encoded;
     }
 
     /**
-     * Return a (Node, String) (n, remainder) pair such that n is a farthest descendant of
-     * s (the input node) that can be reached by following a path of edges denoting
-     * a prefix of inputstr and remainder will be string that must be
-     * appended to the concatenation of labels from s to n to get inpustr.
+     * Adds all the given keys to the GST, each with the index in the same position of <tt>indexes</tt>.
+     *
+     * It has the same effect as putting each key in turn, but large batches are split in parts that are
+     * built on all the cores of the common fork-join pool and then merged.
+     *
+     * Indexes must be in non-decreasing order, and not less than any of the previously inserted ones,
+     * otherwise an IllegalStateException is raised and nothing is added.
+     *
+     * @param keys the keys that will be added to the index
+     * @param indexes the values that will be added to the index
+     * @throws IllegalArgumentException if there are not as many keys as indexes
+     * @throws IllegalStateException if an invalid index is passed as input
      */
-    private Pair<Node, List<T>> canonize(final Node s, final List<T> inputstr) {
-
-        if (inputstr.isEmpty()) {
-            return new Pair<Node, List<T>>(s, inputstr);
-        } else {
-            Node currentNode = s;
-            List<T> str = new ArrayList<T>(inputstr);
-            Edge g = s.getEdge(str.get(0));
-            // descend the tree as long as a proper label is found
-            while (g != null && startsWith(str, g.getLabel())) {
-                str = str.subList(g.getLabel().size(), str.size());
-                currentNode = g.getDest();
-                if (str.size() > 0) {
-                    g = currentNode.getEdge(str.get(0));
-                }
-            }
-
-            return new Pair<Node, List<T>>(currentNode, str);
+    public void putAll(List<? extends List<T>> keys, int[] indexes) throws IllegalStateException {
+        if (keys.size() != indexes.length) {
+            throw new IllegalArgumentException("Got " + keys.size() + " keys and " + indexes.length + " indexes");
         }
+        checkIndexes(indexes);
+        int firstText = symbols.texts();
+        for (List<T> key : keys) {
+            symbols.add(encode(key));
+        }
+        insertAll(firstText, indexes);
     }
 
     /**
-     * Updates the tree starting from inputNode and by adding stringPart.
-     * 
-     * Returns a reference (Node, String) pair for the string that has been added so far.
-     * This means:
-     * - the Node will be the Node that can be reached by the longest path string (S1)
-     *   that can be obtained by concatenating consecutive edges in the tree and
-     *   that is a substring of the string added so far to the tree.
-     * - the String will be the remainder that must be added to S1 to get the string
-     *   added so far.
-     * 
-     * @param inputNode the node to start from
-     * @param stringPart the string to add to the tree
-     * @param rest the rest of the string
-     * @param value the value to add to the index
-     */
-    private Pair<Node, List<T>> update(final Node inputNode, final List<T> stringPart, final List<T> rest, final int value) {
-        Node s = inputNode;
-        List<T> tempstr = stringPart;
-        T newChar = stringPart.get(stringPart.size() - 1);
-
-        // line 1
-        Node oldroot = root;
-
-        // line 1b
-        Pair<Boolean, Node<T>> ret = testAndSplit(s, tempstr.subList(0, tempstr.size() - 1), newChar, rest, value);
-
-        Node<T> r = ret.getSecond();
-        boolean endpoint = ret.getFirst();
-
-        Node leaf;
-        // line 2
-        while (!endpoint) {
-            // line 3
-            Edge tempEdge = r.getEdge(newChar);
-            if (null != tempEdge) {
-                // such a node is already present. This is one of the main differences from Ukkonen's case:
-                // the tree can contain deeper nodes at this stage because different strings were added by previous iterations.
-                leaf = tempEdge.getDest();
-            } else {
-                // must build a new leaf
-                leaf = new Node();
-                leaf.addRef(value);
-                Edge newedge = new Edge(rest, leaf);
-                r.addEdge(newChar, newedge);
-            }
-
-            // update suffix link for newly created leaf
-            if (activeLeaf != root) {
-                activeLeaf.setSuffix(leaf);
+     * Builds a tree holding the keys of all the given trees that were not removed, so that it answers
+     * searches like all of them together. The given trees must not change meanwhile.
+     *
+     * Keys are added in increasing order of index, so the given trees may hold indexes in any order:
+     * each one only needs to hold them in non-decreasing order, as usual.
+     */
+    static <T extends Comparable<T>> GeneralizedSuffixTree<T> merge(List<GeneralizedSuffixTree<T>> trees) {
+        GeneralizedSuffixTree<T> ret = new GeneralizedSuffixTree<T>();
+        // map the codes of each tree to the codes of the merged one
+        int[][] remaps = new int[trees.size()][];
+        int[] firstEntries = new int[trees.size() + 1];
+        for (int k = 0; k < trees.size(); ++k) {
+            GeneralizedSuffixTree<T> tree = trees.get(k);
+            int[] remap = new int[tree.codes.size()];
+            for (Map.Entry<T, Integer> e : tree.codes.entrySet()) {
+                Integer code = ret.codes.get(e.getKey());
+                if (null == code) {
+                    code = ret.codes.size();
+                    ret.codes.put(e.getKey(), code);
+                }
+                remap[e.getValue()] = code;
             }
-            activeLeaf = leaf;
+            remaps[k] = remap;
+            firstEntries[k + 1] = firstEntries[k] + tree.texts();
+        }
 
-            // line 4
-            if (oldroot != root) {
-                oldroot.setSuffix(r);
+        // sort the live texts by index, and then by position, as (index, entry) pairs
+        long[] entries = new long[firstEntries[trees.size()]];
+        int size = 0;
+        for (int k = 0; k < trees.size(); ++k) {
+            GeneralizedSuffixTree<T> tree = trees.get(k);
+            for (int t = 0; t < tree.texts(); ++t) {
+                int index = tree.textIndex(t);
+                if (!tree.removed.contains(index)) {
+                    entries[size++] = (long) index << 32 | (firstEntries[k] + t);
+                }
             }
-
-            // line 5
-            oldroot = r;
-
-            // line 6
-            if (null == s.getSuffix()) { // root node
-                assert (root == s);
-                // this is a special case to handle what is referred to as node _|_ on the paper
-                tempstr = tempstr.subList(1, tempstr.size());
+        }
+        Arrays.sort(entries, 0, size);
+
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; ++i) {
+            int entry = (int) entries[i];
+            int k = Arrays.binarySearch(firstEntries, entry);
+            // several trees start at the same entry when all but the last are empty: the entry belongs to the last one
+            if (k < 0) {
+                k = -k - 2;
             } else {
-                Pair<Node, List<T>> canret = canonize(s.getSuffix(), safeCutLastChar(tempstr));
-                s = canret.getFirst();
-                // use intern to ensure that tempstr is a reference from the string pool
-                canret.getSecond().add(tempstr.get(tempstr.size() - 1));
+                while (firstEntries[k + 1] == entry) {
+                    k++;
+                }
             }
-
-            // line 7
-            ret = testAndSplit(s, safeCutLastChar(tempstr), newChar, rest, value);
-            r = ret.getSecond();
-            endpoint = ret.getFirst();
-
-        }
-
-        // line 8
-        if (oldroot != root) {
-            oldroot.setSuffix(r);
+            GeneralizedSuffixTree<T> tree = trees.get(k);
+            int text = entry - firstEntries[k];
+            int begin = tree.store.textBegin(text);
+            int[] key = new int[tree.store.textEnd(text) - begin];
+            for (int j = 0; j < key.length; ++j) {
+                key[j] = remaps[k][tree.store.get(begin + j)];
+            }
+            ret.symbols.add(key);
+            indexes[i] = (int) (entries[i] >>> 32);
         }
-        oldroot = root;
-
-        return new Pair<Node, List<T>>(s, tempstr);
+        ret.checkIndexes(indexes);
+        ret.insertAll(0, indexes);
+        return ret;
     }
 
-    Node getRoot() {
-        return root;
+    /**
+     * Writes this tree to the given stream, in a form that read(InputStream) loads much faster than
+     * the keys could be put again. The stream is flushed but not closed.
+     *
+     * The symbols seen so far are written with Java serialization, so they must be Serializable.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream can't be written, or a symbol is not Serializable
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        TreeSerializer.write(this, TreeSerializer.GENERIC_TREE, data);
+        ObjectOutputStream objects = new ObjectOutputStream(data);
+        objects.writeObject(new HashMap<T, Integer>(codes));
+        objects.flush();
     }
 
-    private List<T> safeCutLastChar(List<T> seq) {
-        if (seq.size() == 0) {
-            return Collections.emptyList();
-        }
-        return seq.subList(0, seq.size() - 1);
+    /**
+     * Reads a tree written by write(OutputStream). The returned tree accepts further puts,
+     * with indexes not less than the ones it already holds.
+     *
+     * The stream is read with many small reads, so it should be buffered.
+     *
+     * @param in the stream to read from
+     * @return the tree that was written to the stream
+     * @throws IOException if the stream can't be read, or does not hold a GeneralizedSuffixTree
+     * @throws ClassNotFoundException if the class of a symbol can't be found
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> GeneralizedSuffixTree<T> read(InputStream in) throws IOException, ClassNotFoundException {
+        GeneralizedSuffixTree<T> tree = new GeneralizedSuffixTree<T>();
+        DataInputStream data = new DataInputStream(in);
+        TreeSerializer.read(tree, TreeSerializer.GENERIC_TREE, data);
+        tree.codes.putAll((Map<T, Integer>) new ObjectInputStream(data).readObject());
+        return tree;
     }
 
-    public int computeCount() {
-        return root.computeAndCacheCount();
+    /**
+     * Writes this tree to the given stream in the format read by MappedSuffixTree, which searches it in place
+     * without loading it on the heap. The stream is flushed but not closed.
+     *
+     * The symbols seen so far are written with Java serialization, so they must be Serializable.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream can't be written, or a symbol is not Serializable
+     * @see MappedSuffixTree#open(java.io.File)
+     */
+    public void writeMapped(OutputStream out) throws IOException {
+        // the symbols and the tree are written from the same state
+        lock();
+        try {
+            ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+            ObjectOutputStream objects = new ObjectOutputStream(trailer);
+            objects.writeObject(new HashMap<T, Integer>(codes));
+            objects.close();
+
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            TreeSerializer.writeMapped(this, TreeSerializer.GENERIC_TREE, data, trailer.toByteArray());
+            data.flush();
+        } finally {
+            unlock();
+        }
     }
 
     /**
@@ -487,26 +658,4 @@ public class GeneralizedSuffixTree<T extends Comparable<T>> {
             this.results = results;
         }
     }
-
-    /**
-     * A private class used to return a tuples of two elements
-     */
-    private class Pair<A, B> {
-
-        private final A first;
-        private final B second;
-
-        public Pair(A first, B second) {
-            this.first = first;
-            this.second = second;
-        }
-
-        public A getFirst() {
-            return first;
-        }
-
-        public B getSecond() {
-            return second;
-        }
-    }
 }
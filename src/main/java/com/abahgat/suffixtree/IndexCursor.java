@@ -0,0 +1,80 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * Reads the indexes stored on a node one at a time, in increasing order, whether they are kept in an int[]
+ * or packed. Unlike visitData, the caller decides when to read the next one.
+ *
+ * A cursor reads the snapshot of the list it was reset to, so indexes appended meanwhile are not returned.
+ */
+final class IndexCursor {
+
+    private static final int[] NO_INDEXES = new int[0];
+
+    private int[] indexes = NO_INDEXES;
+    private int size = 0;
+    private byte[] bytes;
+    /**
+     * The position of the next index in indexes, or of its gap in bytes
+     */
+    private int pos = 0;
+    /**
+     * The last index read from bytes
+     */
+    private int value = 0;
+
+    /**
+     * Makes the cursor read the first <tt>size</tt> indexes of the given array
+     */
+    void reset(int[] indexes, int size) {
+        this.indexes = indexes;
+        this.size = size;
+        this.bytes = null;
+        this.pos = 0;
+    }
+
+    /**
+     * Makes the cursor read the gaps encoded in the first <tt>length</tt> bytes of the given array,
+     * as in PackedPostings
+     */
+    void reset(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.size = length;
+        this.pos = 0;
+        this.value = 0;
+    }
+
+    boolean hasNext() {
+        return pos < size;
+    }
+
+    int next() {
+        if (bytes == null) {
+            return indexes[pos++];
+        }
+        int gap = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[pos++];
+            gap |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        value += gap;
+        return value;
+    }
+}
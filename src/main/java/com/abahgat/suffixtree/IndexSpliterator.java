@@ -0,0 +1,178 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Lazily visits the indexes stored under a node, depth first, returning each of them once.
+ *
+ * Nothing is visited up front: subtrees are entered as indexes are requested, so a caller that stops
+ * after a few results only pays for the nodes it went through. Indexes already returned are kept in
+ * the hash set of a ResultBuffer, without boxing them, and sized by their number rather than their values.
+ *
+ * Splitting hands half of the subtrees still to visit to the new spliterator, so large result sets can be
+ * consumed by parallel streams. Split spliterators share a concurrent set of the indexes returned.
+ * Like a search, a spliterator can be used while keys are put into the tree: it returns the indexes of the
+ * keys that were put before it got to their nodes, and skips those put after it was first split.
+ */
+final class IndexSpliterator implements Spliterator.OfInt {
+
+    private final AbstractSuffixTree tree;
+    /**
+     * The roots of the subtrees yet to visit, the next one on top
+     */
+    private final ArrayDeque<Node> pending;
+    /**
+     * Reads the indexes of the node being visited
+     */
+    private final IndexCursor cursor = new IndexCursor();
+    private final Seen seen;
+    private long estimate;
+
+    /**
+     * Creates a spliterator over the indexes stored under the given node, which may be null
+     */
+    IndexSpliterator(AbstractSuffixTree tree, Node node) {
+        this.tree = tree;
+        this.pending = new ArrayDeque<Node>();
+        this.seen = new Seen();
+        if (node != null) {
+            pending.push(node);
+            estimate = node.getResultCount();
+        }
+    }
+
+    private IndexSpliterator(AbstractSuffixTree tree, ArrayDeque<Node> pending, Seen seen, long estimate) {
+        this.tree = tree;
+        this.pending = pending;
+        this.seen = seen;
+        this.estimate = estimate;
+    }
+
+    public boolean tryAdvance(IntConsumer action) {
+        Tombstones removed = tree.removed;
+        while (true) {
+            while (cursor.hasNext()) {
+                int index = cursor.next();
+                if (!removed.contains(index) && seen.add(index)) {
+                    action.accept(index);
+                    return true;
+                }
+            }
+            Node node = pending.poll();
+            if (node == null) {
+                return false;
+            }
+            enter(node);
+        }
+    }
+
+    /**
+     * Makes the cursor read the indexes of the given node, and pushes its children so that they are
+     * visited next, in the order of their edges
+     */
+    private void enter(Node node) {
+        Edge[] edges = node.getEdges().values();
+        for (int i = edges.length - 1; i >= 0; --i) {
+            pending.push(edges[i].getDest());
+        }
+        node.openData(cursor);
+    }
+
+    public Spliterator.OfInt trySplit() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        if (pending.size() == 1 && !cursor.hasNext()) {
+            // only one subtree left: visit its root here and split its children
+            enter(pending.pop());
+        }
+        int half = pending.size() / 2;
+        if (half == 0) {
+            return null;
+        }
+        ArrayDeque<Node> given = new ArrayDeque<Node>(half);
+        for (int i = 0; i < half; ++i) {
+            given.push(pending.pollLast());
+        }
+        seen.share(tree.getLast());
+        estimate -= estimate / 2;
+        return new IndexSpliterator(tree, given, seen, estimate);
+    }
+
+    public long estimateSize() {
+        return estimate;
+    }
+
+    public int characteristics() {
+        return DISTINCT | NONNULL | CONCURRENT;
+    }
+
+    /**
+     * The indexes already returned. It starts as the hash set of a ResultBuffer, and turns into a concurrent
+     * set when it is shared by split spliterators.
+     */
+    private static final class Seen {
+
+        private ResultBuffer local = new ResultBuffer();
+        private Set<Integer> shared;
+        /**
+         * The greatest index in the tree when the set was shared
+         */
+        private int last;
+
+        /**
+         * Adds the given index to the set.
+         *
+         * @return true if the index was not in the set, and can be returned
+         */
+        boolean add(int index) {
+            Set<Integer> s = shared;
+            if (s == null) {
+                int size = local.size();
+                local.add(index);
+                return local.size() != size;
+            }
+            if (index > last) {
+                // put after the set was shared
+                return false;
+            }
+            return s.add(index);
+        }
+
+        /**
+         * Makes the set safe to use from several threads, accepting indexes up to <tt>last</tt>.
+         * It is called by the thread that owns the set, before handing it to others.
+         */
+        void share(int last) {
+            if (shared != null) {
+                return;
+            }
+            Set<Integer> s = ConcurrentHashMap.newKeySet(Math.max(16, 2 * local.size()));
+            for (int i = 0; i < local.size(); ++i) {
+                s.add(local.get(i));
+            }
+            this.last = last;
+            local = null;
+            shared = s;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A generalized suffix array whose keys are sequences of ints, such as token ids.
+ *
+ * It answers the same queries as an IntSuffixTree holding the same keys in a fraction of the memory,
+ * but all the keys are given when it is built, and searches take O(m log n) time for a word of length m
+ * among n ints.
+ *
+ * Once built, it can be searched by any number of threads.
+ *
+ * @see CharSuffixArray
+ */
+public class IntSuffixArray extends AbstractSuffixArray {
+
+    /**
+     * The distinct symbols of the keys, in ascending order: each is mapped to its position plus MIN_SYMBOL
+     */
+    private final int[] alphabet;
+
+    /**
+     * Builds a suffix array holding the given keys, each with the index in the same position of <tt>indexes</tt>.
+     *
+     * @param keys the keys to index
+     * @param indexes the value of each key, in non-decreasing order
+     * @throws IllegalArgumentException if there are not as many keys as indexes
+     * @throws IllegalStateException if the indexes are not in non-decreasing order
+     */
+    public IntSuffixArray(List<int[]> keys, int[] indexes) throws IllegalStateException {
+        this(alphabet(keys), keys, indexes);
+    }
+
+    private IntSuffixArray(int[] alphabet, List<int[]> keys, int[] indexes) {
+        super(concat(alphabet, keys, indexes), indexes);
+        this.alphabet = alphabet;
+    }
+
+    private static int[] alphabet(List<int[]> keys) {
+        long symbols = 0;
+        for (int[] key : keys) {
+            symbols += key.length;
+        }
+        int[] ret = new int[textLength(keys.size(), symbols)];
+        int size = 0;
+        for (int[] key : keys) {
+            System.arraycopy(key, 0, ret, size, key.length);
+            size += key.length;
+        }
+        Arrays.sort(ret, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; ++i) {
+            if (distinct == 0 || ret[i] != ret[distinct - 1]) {
+                ret[distinct++] = ret[i];
+            }
+        }
+        return Arrays.copyOf(ret, distinct);
+    }
+
+    private static int[] concat(int[] alphabet, List<int[]> keys, int[] indexes) {
+        if (keys.size() != indexes.length) {
+            throw new IllegalArgumentException("Got " + keys.size() + " keys and " + indexes.length + " indexes");
+        }
+        long symbols = 0;
+        for (int[] key : keys) {
+            symbols += key.length;
+        }
+        int[] text = new int[textLength(keys.size(), symbols)];
+        int pos = 0;
+        for (int[] key : keys) {
+            for (int symbol : key) {
+                text[pos++] = Arrays.binarySearch(alphabet, symbol) + MIN_SYMBOL;
+            }
+            text[pos++] = SEPARATOR;
+        }
+        return text;
+    }
+
+    /**
+     * Returns the given word mapped to the symbols of the text, or null if it holds a symbol no key has.
+     */
+    private int[] encode(int[] word) {
+        int[] ret = new int[word.length];
+        for (int i = 0; i < word.length; ++i) {
+            int code = Arrays.binarySearch(alphabet, word[i]);
+            if (code < 0) {
+                return null;
+            }
+            ret[i] = code + MIN_SYMBOL;
+        }
+        return ret;
+    }
+
+    /**
+     * Searches for the given word within the array.
+     *
+     * Returns all the indexes for which the key contains the <tt>word</tt> that was
+     * supplied as input.
+     *
+     * @param word the key to search for
+     * @return the collection of indexes associated with the input <tt>word</tt>, or null if there is none
+     */
+    public Collection<Integer> search(int[] word) {
+        return search(word, -1);
+    }
+
+    /**
+     * Searches for the given word within the array and returns at most the given number of matches.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @return at most <tt>results</tt> values for the given word, or null if there is none
+     */
+    public Collection<Integer> search(int[] word, int results) {
+        return collect(encode(word), results);
+    }
+
+    /**
+     * Searches for the given word and stores the indexes whose key contains it into <tt>results</tt>,
+     * replacing its previous content.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     */
+    public int search(int[] word, ResultBuffer results) {
+        return collect(encode(word), results);
+    }
+
+    /**
+     * Searches for the given word within the array and returns at most the given number of matches,
+     * together with the total number of matches. The total is counted without visiting the matches.
+     *
+     * @param word the key to search for
+     * @param to the max number of results to return
+     * @return at most <tt>to</tt> values for the given word
+     */
+    public GeneralizedSuffixTree.ResultInfo searchWithCount(int[] word, int to) {
+        return collectWithCount(encode(word), to);
+    }
+}
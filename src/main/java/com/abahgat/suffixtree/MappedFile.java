@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped in memory, addressed by <tt>long</tt> offsets.
+ *
+ * A single MappedByteBuffer can't span more than 2GB, so the file is mapped in chunks. Chunks are
+ * a multiple of 8 bytes long, so that values stored at offsets aligned to their size never straddle two of them.
+ */
+final class MappedFile {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    MappedFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; ++i) {
+                long begin = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, begin, Math.min(size - begin, CHUNK_MASK + 1));
+            }
+        } finally {
+            // the mappings stay valid once the channel is closed
+            raf.close();
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte getByte(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & CHUNK_MASK));
+    }
+
+    /**
+     * Returns the int at the given position, which must be a multiple of 4
+     */
+    int getInt(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+    }
+
+    /**
+     * Returns the long at the given position, which must be a multiple of 8
+     */
+    long getLong(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+    }
+
+    /**
+     * Copies <tt>len</tt> bytes from the given position
+     */
+    byte[] getBytes(long pos, int len) {
+        byte[] ret = new byte[len];
+        for (int i = 0; i < len; ++i) {
+            ret[i] = getByte(pos + i);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.abahgat.suffixtree.TreeSerializer.*;
+
+/**
+ * A read-only GeneralizedSuffixTree that is searched in place, in a file written by
+ * GeneralizedSuffixTree.writeMapped(OutputStream).
+ *
+ * Nodes, edges and posting lists are read from the memory-mapped file as needed, and no object is created
+ * for them: the only data kept on the heap is the table of the codes assigned to the symbols. Opening a tree
+ * takes the same time whatever its size, and processes mapping the same file share its pages in the page cache.
+ *
+ * It offers the same search methods as GeneralizedSuffixTree, with the same results. Being read-only, it is
+ * safe to search it from many threads at once.
+ *
+ * @see GeneralizedSuffixTree#writeMapped(java.io.OutputStream)
+ */
+public class MappedSuffixTree<T extends Comparable<T>> {
+
+    private final MappedFile file;
+    private final Map<T, Integer> codes;
+    private final long symbolsPos;
+    private final long nodesPos;
+    private final long edgesPos;
+
+    private MappedSuffixTree(MappedFile file, Map<T, Integer> codes) {
+        this.file = file;
+        this.codes = codes;
+        this.symbolsPos = file.getLong(H_SYMBOLS_POS);
+        this.nodesPos = file.getLong(H_NODES_POS);
+        this.edgesPos = file.getLong(H_EDGES_POS);
+    }
+
+    /**
+     * Maps the given file, written by GeneralizedSuffixTree.writeMapped(OutputStream).
+     *
+     * The file must not be modified while the returned tree is in use.
+     *
+     * @param file the file to map
+     * @return the tree stored in the file
+     * @throws IOException if the file can't be read, or does not hold a GeneralizedSuffixTree in the mapped format
+     * @throws ClassNotFoundException if the class of a symbol can't be found
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Comparable<T>> MappedSuffixTree<T> open(File file) throws IOException, ClassNotFoundException {
+        MappedFile mapped = new MappedFile(file);
+        if (mapped.size() < HEADER_SIZE || mapped.getInt(H_MAGIC) != MAPPED_MAGIC) {
+            throw new IOException("Not a mapped suffix tree");
+        }
+        int version = mapped.getInt(H_VERSION);
+        if (version < FIRST_MAPPED_VERSION || version > VERSION) {
+            throw new IOException("Unsupported format version " + version + ", expected " + FIRST_MAPPED_VERSION
+                    + " to " + VERSION);
+        }
+        int kind = mapped.getInt(H_KIND);
+        if (kind != GENERIC_TREE) {
+            throw new IOException("Unexpected kind of tree " + kind + ", expected " + GENERIC_TREE);
+        }
+        long trailerPos = mapped.getLong(H_TRAILER_POS);
+        int trailerLength = mapped.getInt(H_TRAILER_LENGTH);
+        if (trailerPos + trailerLength != mapped.size()) {
+            throw new IOException("Truncated mapped suffix tree, expected " + (trailerPos + trailerLength) + " bytes, found " + mapped.size());
+        }
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(mapped.getBytes(trailerPos, trailerLength)));
+        return new MappedSuffixTree<T>(mapped, (Map<T, Integer>) in.readObject());
+    }
+
+    /**
+     * Searches for the given word within the tree.
+     *
+     * @param word the key to search for
+     * @return the collection of indexes associated with the input <tt>word</tt>
+     * @see GeneralizedSuffixTree#search(java.util.List)
+     */
+    public Collection<Integer> search(List<T> word) {
+        return search(word, -1);
+    }
+
+    /**
+     * Searches for the given word within the tree and returns at most the given number of matches.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @return at most <tt>results</tt> values for the given word
+     * @see GeneralizedSuffixTree#search(java.util.List, int)
+     */
+    public Collection<Integer> search(List<T> word, int results) {
+        int node = searchNode(word);
+        if (node < 0) {
+            return null;
+        }
+        return getData(node, results);
+    }
+
+    /**
+     * Searches for the given word and stores the indexes whose key contains it into <tt>results</tt>,
+     * replacing its previous content.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     * @see GeneralizedSuffixTree#search(java.util.List, ResultBuffer)
+     */
+    public int search(List<T> word, ResultBuffer results) {
+        results.clear();
+        int node = searchNode(word);
+        if (node >= 0) {
+            collect(node, results.adder);
+        }
+        return results.size();
+    }
+
+    /**
+     * Searches for the given word within the tree and returns at most the given number of matches,
+     * together with the total number of matches.
+     *
+     * @param word the key to search for
+     * @param to the max number of results to return
+     * @see GeneralizedSuffixTree#searchWithCount(java.util.List, int)
+     */
+    public GeneralizedSuffixTree.ResultInfo searchWithCount(List<T> word, int to) {
+        int node = searchNode(word);
+        if (node < 0) {
+            return new GeneralizedSuffixTree.ResultInfo(Collections.<Integer>emptyList(), 0);
+        }
+        return new GeneralizedSuffixTree.ResultInfo(getData(node, to), file.getInt(nodePos(node) + N_RESULT_COUNT));
+    }
+
+    /**
+     * Returns the number of distinct indexes in the tree
+     */
+    public int computeCount() {
+        return file.getInt(nodePos(0) + N_RESULT_COUNT);
+    }
+
+    /**
+     * Returns the id of the node (if present) that corresponds to the given word, or -1.
+     */
+    private int searchNode(List<T> word) {
+        int node = 0;
+        for (int i = 0; i < word.size(); ) {
+            Integer code = codes.get(word.get(i));
+            if (null == code) {
+                // this symbol was never added to the tree
+                return -1;
+            }
+            long edge = findEdge(node, code);
+            if (edge < 0) {
+                return -1;
+            }
+            int begin = file.getInt(edge + E_BEGIN);
+            int labelLength = file.getInt(edge + E_END) - begin;
+            int lenToMatch = Math.min(word.size() - i, labelLength);
+            // the first symbol was matched by findEdge
+            for (int j = 1; j < lenToMatch; ++j) {
+                code = codes.get(word.get(i + j));
+                if (null == code || file.getInt(symbolsPos + 4L * (begin + j)) != code) {
+                    return -1;
+                }
+            }
+            node = file.getInt(edge + E_DEST);
+            i += lenToMatch;
+        }
+        // nodes whose indexes were all removed are kept until the tree is compacted
+        return word.isEmpty() || file.getInt(nodePos(node) + N_RESULT_COUNT) == 0 ? -1 : node;
+    }
+
+    /**
+     * Returns the position of the edge leaving <tt>node</tt> whose label starts with <tt>symbol</tt>, or -1.
+     */
+    private long findEdge(int node, int symbol) {
+        long pos = nodePos(node);
+        int low = file.getInt(pos + N_FIRST_EDGE);
+        int high = low + file.getInt(pos + N_EDGE_COUNT) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long edge = edgesPos + (long) EDGE_SIZE * mid;
+            int midSymbol = file.getInt(edge + E_SYMBOL);
+            if (midSymbol < symbol) {
+                low = mid + 1;
+            } else if (midSymbol > symbol) {
+                high = mid - 1;
+            } else {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    private long nodePos(int node) {
+        return nodesPos + (long) NODE_SIZE * node;
+    }
+
+    /**
+     * Returns the first <tt>numElements</tt> indexes associated to the given node and its subtree.
+     */
+    private Collection<Integer> getData(int node, final int numElements) {
+        final Set<Integer> ret = new HashSet<Integer>();
+        if (numElements == 0) {
+            return ret;
+        }
+        collect(node, new IndexVisitor() {
+            public boolean visit(int index) {
+                ret.add(index);
+                return ret.size() != numElements;
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Passes the indexes associated to the given node and its subtree to <tt>visitor</tt>, depth first.
+     *
+     * Nodes are stored in depth-first order, so the subtree is just the range of nodes starting from this one.
+     *
+     * @return false if the visitor stopped the visit
+     */
+    private boolean collect(int node, IndexVisitor visitor) {
+        int end = node + file.getInt(nodePos(node) + N_SUBTREE_SIZE);
+        for (int id = node; id < end; ++id) {
+            if (!visitData(id, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Passes the indexes stored on the given node only to the visitor, decoding them as PackedPostings does.
+     *
+     * @return false if the visitor stopped the visit
+     */
+    private boolean visitData(int node, IndexVisitor visitor) {
+        long pos = file.getLong(nodePos(node) + N_POSTINGS_POS);
+        long end = pos + file.getInt(nodePos(node) + N_POSTINGS_LENGTH);
+        int value = 0;
+        while (pos < end) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = file.getByte(pos++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += gap;
+            if (!visitor.visit(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
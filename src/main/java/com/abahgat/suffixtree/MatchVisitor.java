@@ -0,0 +1,34 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * Receives the maximal matches between a text and the keys of a tree, as found by findMatches.
+ */
+public interface MatchVisitor {
+
+    /**
+     * Called for each region of the text that is found in the tree, cannot be extended to the left or to the right,
+     * and is at least as long as required.
+     *
+     * @param begin the offset of the match in the text
+     * @param length the number of symbols of the match
+     * @param indexes the indexes whose key shares at least the required number of symbols of the match.
+     * The buffer is reused for the next match, and must not be kept after the call returns.
+     * @return false to stop the search
+     */
+    boolean visit(int begin, int length, ResultBuffer indexes);
+}
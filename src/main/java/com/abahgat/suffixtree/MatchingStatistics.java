@@ -0,0 +1,214 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Finds the regions of a text that are found in a tree, walking the text once with the help of suffix links.
+ *
+ * The matching statistics of a text are, for each of its offsets, the length of the longest prefix of the text
+ * from there that is found in the tree. Following Chang and Lawler, they are computed by matching the text from
+ * offset 0, and moving from the match at an offset to the next one through the suffix link of the last node
+ * on its path: the symbols of the match but the first are known to be in the tree, so they are walked again
+ * one edge at a time, comparing only the first symbol of each edge. The whole text takes linear time.
+ *
+ * A match of length m at offset i is maximal on the left unless the match at i - 1 has length m + 1.
+ * The keys that share at least L symbols with a maximal match are those found below the first L symbols of the
+ * matches at its following offsets, which a second walk, never going deeper than L, keeps track of.
+ */
+final class MatchingStatistics {
+
+    private MatchingStatistics() {
+    }
+
+    /**
+     * Returns the length of the longest match found in the tree at each offset of the given text.
+     */
+    static int[] compute(AbstractSuffixTree tree, int[] text) {
+        int[] ret = new int[text.length];
+        Walker walker = new Walker(tree.store, tree.getRoot(), text, Integer.MAX_VALUE);
+        for (int i = 0; i < text.length; ++i) {
+            walker.extend();
+            ret[i] = walker.length;
+            walker.next();
+        }
+        return ret;
+    }
+
+    /**
+     * Passes each maximal match of at least <tt>minLength</tt> symbols between the text and the tree
+     * to the visitor, from the first to the last offset.
+     */
+    static void find(AbstractSuffixTree tree, int[] text, int minLength, MatchVisitor visitor) {
+        if (minLength < 1) {
+            throw new IllegalArgumentException("The min length of a match must be positive: " + minLength);
+        }
+        Node root = tree.getRoot();
+        Walker full = new Walker(tree.store, root, text, Integer.MAX_VALUE);
+        Walker window = new Walker(tree.store, root, text, minLength);
+        ResultBuffer indexes = new ResultBuffer();
+        // the same symbols may come up more than once in a match
+        Set<Node> collected = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        int matchBegin = -1;
+        int matchLength = 0;
+        int previous = 0;
+        for (int i = 0; i < text.length; ++i) {
+            full.extend();
+            window.extend();
+            int length = full.length;
+            if (matchBegin >= 0 && (length < minLength || previous != length + 1)) {
+                if (!report(visitor, matchBegin, matchLength, indexes)) {
+                    return;
+                }
+                matchBegin = -1;
+            }
+            if (length >= minLength) {
+                if (matchBegin < 0) {
+                    matchBegin = i;
+                    matchLength = length;
+                    indexes.clear();
+                    collected.clear();
+                }
+                Node locus = window.locus();
+                if (collected.add(locus)) {
+                    tree.collectMore(locus, indexes);
+                }
+            }
+            previous = length;
+            full.next();
+            window.next();
+        }
+        if (matchBegin >= 0) {
+            report(visitor, matchBegin, matchLength, indexes);
+        }
+    }
+
+    /**
+     * Passes a match to the visitor, unless all the keys holding it were removed
+     *
+     * @return false if the visitor stopped the search
+     */
+    private static boolean report(MatchVisitor visitor, int begin, int length, ResultBuffer indexes) {
+        return indexes.size() == 0 || visitor.visit(begin, length, indexes);
+    }
+
+    /**
+     * The longest match in the tree, of at most <tt>cap</tt> symbols, of the text from a given offset
+     */
+    private static final class Walker {
+
+        private final SymbolStore store;
+        private final Node root;
+        private final int[] text;
+        private final int cap;
+        /**
+         * The last node on the path of the match, and the number of symbols from the root to it
+         */
+        private Node node;
+        private int depth = 0;
+        /**
+         * The edge the match ends into, and the number of its symbols in the match, or null if it ends at node
+         */
+        private Edge edge = null;
+        private int offset = 0;
+        /**
+         * The offset of the match in the text
+         */
+        int begin = 0;
+        /**
+         * The number of symbols of the match
+         */
+        int length = 0;
+
+        Walker(SymbolStore store, Node root, int[] text, int cap) {
+            this.store = store;
+            this.root = root;
+            this.text = text;
+            this.cap = cap;
+            this.node = root;
+        }
+
+        /**
+         * Extends the match as far as the tree and cap allow
+         */
+        void extend() {
+            while (length < cap && begin + length < text.length) {
+                int c = text[begin + length];
+                if (edge == null) {
+                    edge = node.getEdge(c);
+                    if (edge == null) {
+                        return;
+                    }
+                } else if (store.get(edge.getBegin() + offset) != c) {
+                    return;
+                }
+                length++;
+                if (++offset == edge.length()) {
+                    depth += offset;
+                    node = edge.getDest();
+                    edge = null;
+                    offset = 0;
+                }
+            }
+        }
+
+        /**
+         * Returns the node below the match, as searchNode would
+         */
+        Node locus() {
+            return edge == null ? node : edge.getDest();
+        }
+
+        /**
+         * Moves to the next offset, keeping the symbols of the match but the first one
+         */
+        void next() {
+            begin++;
+            if (length == 0) {
+                return;
+            }
+            length--;
+            Node link = node.getSuffix();
+            if (node == root || link == null) {
+                node = root;
+                depth = 0;
+            } else {
+                node = link;
+                depth--;
+            }
+            edge = null;
+            offset = 0;
+            while (depth < length) {
+                Edge e = node.getEdge(text[begin + depth]);
+                if (e == null) {
+                    // the tree is being changed: only keep what was checked
+                    length = depth;
+                    return;
+                }
+                if (e.length() > length - depth) {
+                    edge = e;
+                    offset = length - depth;
+                    return;
+                }
+                depth += e.length();
+                node = e.getDest();
+            }
+        }
+    }
+}
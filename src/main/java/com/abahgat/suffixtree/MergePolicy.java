@@ -0,0 +1,35 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * Chooses which segments of a SegmentedSuffixTree are merged into one.
+ *
+ * It is asked again after each merge, until it chooses none, so it only needs to pick one run of segments
+ * at a time. Implementations must be thread safe: they are called from the thread running the merges.
+ *
+ * @see TieredMergePolicy
+ */
+public interface MergePolicy {
+
+    /**
+     * Picks a run of consecutive segments to merge.
+     *
+     * @param sizes the number of symbols held by each sealed segment, from the oldest to the newest
+     * @return the bounds [begin, end) of the segments to merge, holding at least two of them, or null to merge none
+     */
+    int[] select(long[] sizes);
+}
@@ -15,70 +15,117 @@
  */
 package com.abahgat.suffixtree;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Queue;
 import java.util.Set;
 
 /**
  * Represents a node of the generalized suffix tree graph
  * @see GeneralizedSuffixTree
  */
-class Node<T extends Comparable<T>> {
+class Node {
 
     /**
      * The payload array used to store the data (indexes) associated with this node.
      * In this case, it is used to store all property indexes.
      * 
      * As it is handled, it resembles an ArrayList: when it becomes full it 
-     * is copied to another bigger array (whose size is equals to data.length +
-     * INCREMENT).
+     * is copied to another array, half as big again as the previous one, so
+     * that adding k indexes only takes O(k) copying overall.
      * 
      * Originally it was a List<Integer> but it took too much memory, changing
      * it to int[] take less memory because indexes are stored using native
      * types.
+     *
+     * Once a node holds PACK_THRESHOLD indexes, they are moved to <tt>packed</tt>
+     * and this array is no longer used.
+     *
+     * Searches may read the indexes while a put adds new ones: an index is written before lastIdx
+     * is increased, and a grown array is published before either, so readers that read lastIdx first
+     * and data next always find the first lastIdx indexes in place.
      */
-    private int[] data;
+    private volatile int[] data;
     /**
      * Represents index of the last position used in the data int[] array.
      * 
-     * It should always be less than data.length
+     * It should always be less than data.length, until the indexes are packed.
+     */
+    private volatile int lastIdx = 0;
+    /**
+     * The indexes associated with this node, once there are too many of them to be kept in an int[].
      */
-    private int lastIdx = 0;
+    private volatile PackedPostings packed;
     /**
-     * The starting size of the int[] array containing the payload
+     * The payload array shared by all the nodes that have no data yet
      */
-    private static final int START_SIZE = 0;
+    private static final int[] EMPTY = new int[0];
     /**
-     * The increment in size used when the payload array is full
+     * The size of the payload array when the first index is added to it
      */
-    private static final int INCREMENT = 1;
+    private static final int START_SIZE = 2;
     /**
-     * The set of edges starting from this node
+     * The number of indexes after which the payload is packed.
+     *
+     * Smaller lists stay in a plain int[], which is cheaper to read and to append to.
      */
-    private final EdgeBag<T> edges;
+    private static final int PACK_THRESHOLD = 64;
+    /**
+     * The set of edges starting from this node.
+     *
+     * Bags are immutable and replaced as a whole, so a search sees the edges either before or after
+     * an update, along with everything the update had built before.
+     */
+    private volatile EdgeBag edges = EdgeBag.EMPTY;
     /**
      * The suffix link as described in Ukkonen's paper.
      * if str is the string denoted by the path from the root to this, this.suffix
      * is the node denoted by the path that corresponds to str without the first char.
+     *
+     * Volatile, as are the counts below, so that searches following links while a put runs,
+     * as MatchingStatistics does, see each link either unset or complete.
+     */
+    private volatile Node suffix;
+    /**
+     * The node this one hangs from, or null for the root.
      */
-    private Node suffix;
+    private Node parent;
     /**
      * The total number of <em>different</em> results that are stored in this
      * node and in underlying ones (i.e. nodes that can be reached through paths
      * starting from <tt>this</tt>.
-     * 
-     * This must be calculated explicitly using computeAndCacheCount
-     * @see Node#computeAndCacheCount() 
+     *
+     * It is kept up to date as indexes are added: since they are added in non-decreasing order,
+     * an index is new to a subtree exactly when it is greater than lastCounted.
+     *
+     * Only the thread holding the write lock of the tree changes the counts. Each is read on its own, and
+     * reflects every put that returned before the read; the counts of a node may disagree while a put that
+     * is still running updates them, one at a time. A put counts an index in resultCount before setting
+     * lastCounted to it, so a search that finds the index in lastCounted finds it counted as well.
+     */
+    private volatile int resultCount = 0;
+    /**
+     * The greatest index accounted for in resultCount, or -1 if there is none.
+     *
+     * When a node holds the greatest index added so far, so do all its ancestors.
+     */
+    private volatile int lastCounted = -1;
+    /**
+     * A lower bound of the indexes in this subtree: the first index counted in it, or Integer.MAX_VALUE
+     * if there is none. Since indexes are added in non-decreasing order, it is the least one, and stays
+     * a lower bound when indexes are removed.
      */
-    private int resultCount = -1;
+    private volatile int firstCounted = Integer.MAX_VALUE;
 
     /**
      * Creates a new Node
      */
     Node() {
-        edges = new EdgeBag();
-        suffix = null;
-        data = new int[START_SIZE];
+        data = EMPTY;
     }
 
     /**
@@ -94,31 +141,198 @@ class Node<T extends Comparable<T>> {
      *
      * Gets data from the payload of both this node and its children, the string representation
      * of the path to this node is a substring of the one of the children nodes.
-     * 
+     *
      * @param numElements the number of results to return. Use -1 to get all
      * @return the first <tt>numElements</tt> associated to this node and children
      */
     Collection<Integer> getData(int numElements) {
+        return getData(numElements, TraversalOrder.DEPTH_FIRST);
+    }
+
+    /**
+     * Returns the first <tt>numElements</tt> elements from the ones associated to this node,
+     * visiting its subtree in the given order.
+     *
+     * The traversal stops as soon as <tt>numElements</tt> elements are found, so no subtree is
+     * visited further than needed.
+     *
+     * @param numElements the number of results to return. Use -1 to get all
+     * @param order the order in which the subtree is visited
+     * @return the first <tt>numElements</tt> associated to this node and children
+     */
+    Collection<Integer> getData(int numElements, TraversalOrder order) {
+        return getData(numElements, order, Tombstones.NONE);
+    }
+
+    /**
+     * Returns the first <tt>numElements</tt> elements from the ones associated to this node that were
+     * not removed, visiting its subtree in the given order.
+     *
+     * @param numElements the number of results to return. Use -1 to get all
+     * @param order the order in which the subtree is visited
+     * @param removed the indexes to leave out
+     * @return the first <tt>numElements</tt> associated to this node and children
+     */
+    Collection<Integer> getData(int numElements, TraversalOrder order, Tombstones removed) {
+        return getData(numElements, order, removed, null);
+    }
+
+    /**
+     * Same as getData(int, TraversalOrder, Tombstones), counting the nodes whose indexes are read
+     * into <tt>visited[0]</tt> unless it is null.
+     */
+    Collection<Integer> getData(int numElements, TraversalOrder order, Tombstones removed, int[] visited) {
         Set<Integer> ret = new HashSet<Integer>();
-        for (int num : data) {
-            ret.add(num);
-            if (ret.size() == numElements) {
-                return ret;
+        if (numElements == 0) {
+            return ret;
+        }
+        if (order == TraversalOrder.BREADTH_FIRST) {
+            Queue<Node> queue = new ArrayDeque<Node>();
+            queue.add(this);
+            Node node;
+            while ((node = queue.poll()) != null) {
+                if (visited != null) {
+                    visited[0]++;
+                }
+                if (!node.addData(numElements, ret, removed)) {
+                    return ret;
+                }
+                for (Edge e : node.edges.values()) {
+                    queue.add(e.getDest());
+                }
             }
+        } else {
+            getDataRecursive(numElements, ret, removed, visited);
+        }
+        return ret;
+    }
+
+    /**
+     * Adds the elements associated to this node and its children to <tt>ret</tt>, depth first.
+     *
+     * @return false if <tt>ret</tt> already holds <tt>numElements</tt> elements
+     */
+    private boolean getDataRecursive(int numElements, Set<Integer> ret, Tombstones removed, int[] visited) {
+        if (visited != null) {
+            visited[0]++;
+        }
+        if (!addData(numElements, ret, removed)) {
+            return false;
         }
         // need to get more matches from child nodes. This is what may waste time
         for (Edge e : edges.values()) {
-            if (-1 == numElements || ret.size() < numElements) {
-                Collection<Integer> s = e.getDest().getData();
-                for (int num : s) {
-                    ret.add(num);
-                    if (ret.size() == numElements) {
-                        return ret;
+            if (!e.getDest().getDataRecursive(numElements, ret, removed, visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the elements stored on this node only to <tt>ret</tt>
+     *
+     * @return false if <tt>ret</tt> already holds <tt>numElements</tt> elements
+     */
+    private boolean addData(final int numElements, final Set<Integer> ret, final Tombstones removed) {
+        return visitData(new IndexVisitor() {
+            public boolean visit(int index) {
+                if (removed.contains(index)) {
+                    return true;
+                }
+                ret.add(index);
+                return ret.size() != numElements;
+            }
+        });
+    }
+
+    /**
+     * Passes the indexes stored on this node only to the given visitor, in increasing order.
+     *
+     * @return false if the visitor stopped the visit
+     */
+    boolean visitData(IndexVisitor visitor) {
+        PackedPostings p = packed;
+        if (p == null) {
+            int size = lastIdx;
+            int[] d = data;
+            if (size <= d.length) {
+                for (int i = 0; i < size; i++) {
+                    if (!visitor.visit(d[i])) {
+                        return false;
                     }
                 }
+                return true;
             }
+            // the indexes have been packed since packed was read
+            p = packed;
         }
-        return ret;
+        return p.visit(visitor);
+    }
+
+    /**
+     * Makes the given cursor read the indexes stored on this node only, in increasing order.
+     */
+    void openData(IndexCursor cursor) {
+        PackedPostings p = packed;
+        if (p == null) {
+            int size = lastIdx;
+            int[] d = data;
+            if (size <= d.length) {
+                cursor.reset(d, size);
+                return;
+            }
+            // the indexes have been packed since packed was read
+            p = packed;
+        }
+        p.open(cursor);
+    }
+
+    /**
+     * Makes the given cursor read the indexes stored on this node only, which it can do in either direction.
+     */
+    void openSorted(SortedMerge.Cursor cursor) {
+        PackedPostings p = packed;
+        if (p == null) {
+            int size = lastIdx;
+            int[] d = data;
+            if (size <= d.length) {
+                cursor.reset(d, size);
+                return;
+            }
+            // the indexes have been packed since packed was read
+            p = packed;
+        }
+        p.open(cursor);
+    }
+
+    /**
+     * Adds the indexes associated to this node and its children that were not removed to <tt>results</tt>,
+     * stopping as soon as it is full.
+     *
+     * Unlike getData, nothing is allocated besides what the buffer may need to grow, as long as
+     * no index was removed.
+     *
+     * @return false if <tt>results</tt> can't accept any more indexes
+     */
+    boolean collect(ResultBuffer results, Tombstones removed) {
+        return visitAll(removed.filter(results.adder));
+    }
+
+    /**
+     * Passes the indexes stored on this node and its children to the given visitor, depth first.
+     *
+     * @return false if the visitor stopped the visit
+     */
+    private boolean visitAll(IndexVisitor visitor) {
+        if (!visitData(visitor)) {
+            return false;
+        }
+        for (Edge e : edges.values()) {
+            if (!e.getDest().visitAll(visitor)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -146,83 +360,182 @@ class Node<T extends Comparable<T>> {
     /**
      * Tests whether a node contains a reference to the given index.
      * 
-     * <b>IMPORTANT</b>: it works because the array is sorted by construction
+     * <b>IMPORTANT</b>: it works because indexes are added in non-decreasing order,
+     * so the given index can only be the last one that was added
      * 
      * @param index the index to look for
      * @return true <tt>this</tt> contains a reference to index
      */
     private boolean contains(int index) {
-        int low = 0;
-        int high = lastIdx - 1;
+        if (packed != null) {
+            return packed.last() == index;
+        }
+        return lastIdx > 0 && data[lastIdx - 1] == index;
+    }
+
+    /**
+     * Returns the number of indexes stored on this node only
+     */
+    int getDataSize() {
+        PackedPostings p = packed;
+        return p != null ? p.size() : lastIdx;
+    }
 
-        while (low <= high) {
-            int mid = (low + high) >>> 1;
-            int midVal = data[mid];
+    /**
+     * Returns whether the indexes stored on this node are packed
+     */
+    boolean isPacked() {
+        return packed != null;
+    }
 
-            if (midVal < index)
-            low = mid + 1;
-            else if (midVal > index)
-            high = mid - 1;
-            else
-            return true;
+    /**
+     * Returns an estimate of the bytes taken by the indexes stored on this node
+     */
+    long estimateDataBytes() {
+        PackedPostings p = packed;
+        if (p != null) {
+            return p.estimateBytes();
         }
-        return false;
-        // Java 5 equivalent to
-        // return java.util.Arrays.binarySearch(data, 0, lastIdx, index) >= 0;
+        int[] d = data;
+        return d == EMPTY ? 0 : TreeStats.array(d.length, 4);
     }
 
     /**
-     * Computes the number of results that are stored on this node and on its
-     * children, and caches the result.
-     * 
-     * Performs the same operation on subnodes as well
-     * @return the number of results
+     * Returns the number of results that are stored on this node and on its
+     * children.
      */
-    protected int computeAndCacheCount() {
-        computeAndCacheCountRecursive();
+    public int getResultCount() {
         return resultCount;
     }
 
-    private Set<Integer> computeAndCacheCountRecursive() {
-        Set<Integer> ret = new HashSet<Integer>();
-        for (int num : data) {
-            ret.add(num);
+    /**
+     * Makes this node take over the count of <tt>child</tt>.
+     *
+     * Used when a new node is inserted right above an existing one by splitting an edge,
+     * before anything else is added below it: at that point both subtrees hold the same indexes.
+     */
+    void copyCount(Node child) {
+        resultCount = child.resultCount;
+        lastCounted = child.lastCounted;
+        firstCounted = child.firstCounted;
+    }
+
+    /**
+     * Adds the indexes stored on <tt>other</tt> to the ones stored on this node, leaving the counts alone.
+     * They must all be greater than the indexes already stored here.
+     */
+    void appendData(Node other) {
+        other.visitData(new IndexVisitor() {
+            public boolean visit(int index) {
+                appendIndex(index);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Adds the count of <tt>other</tt> to the count of this node, as when the subtree of <tt>other</tt>
+     * is moved below this node. The indexes it holds must all be greater than the ones held here.
+     */
+    void addCount(Node other) {
+        if (other.resultCount > 0) {
+            resultCount += other.resultCount;
+            lastCounted = other.lastCounted;
+            firstCounted = Math.min(firstCounted, other.firstCounted);
         }
-        for (Edge e : edges.values()) {
-            Set<Integer> s = e.getDest().computeAndCacheCountRecursive();
-            for (int num : s) {
-                ret.add(num);
+    }
+
+    /**
+     * Takes an index that was removed out of the count of this node, whose subtree holds it.
+     */
+    void uncount() {
+        resultCount--;
+    }
+
+    int getLastCounted() {
+        return lastCounted;
+    }
+
+    int getFirstCounted() {
+        return firstCounted;
+    }
+
+    /**
+     * Restores the counts of a node that is being loaded
+     */
+    void setCount(int resultCount, int lastCounted) {
+        this.resultCount = resultCount;
+        this.lastCounted = lastCounted;
+    }
+
+    /**
+     * Restores the lower bound of the indexes of a node that is being loaded, out of its own indexes and
+     * the bounds of its children, which must be restored already.
+     */
+    void restoreFirstCounted() {
+        final int[] first = {Integer.MAX_VALUE};
+        visitData(new IndexVisitor() {
+            public boolean visit(int index) {
+                first[0] = index;
+                return false;
             }
+        });
+        for (Edge e : edges.values()) {
+            first[0] = Math.min(first[0], e.getDest().firstCounted);
         }
+        firstCounted = first[0];
+    }
 
-        resultCount = ret.size();
-        return ret;
+    /**
+     * Writes the indexes stored on this node only, always in their packed form.
+     */
+    void writeData(DataOutput out) throws IOException {
+        packData().write(out);
     }
 
     /**
-     * Returns the number of results that are stored on this node and on its
-     * children.
-     * Should be called after having called computeAndCacheCount.
-     * 
-     * @throws IllegalStateException when this method is called without having called
-     * computeAndCacheCount first
-     * @see Node#computeAndCacheCount() 
-     * @todo this should raise an exception when the subtree is changed but count
-     * wasn't updated
+     * Returns the indexes stored on this node only in their packed form, packing them if they are not already.
+     * The returned list must not be modified.
      */
-    public int getResultCount() throws IllegalStateException {
-        if (-1 == resultCount) {
-            throw new IllegalStateException("getResultCount() shouldn't be called without calling computeCount() first");
+    PackedPostings packData() {
+        if (packed != null) {
+            return packed;
+        }
+        PackedPostings tmp = new PackedPostings(lastIdx * 5);
+        for (int i = 0; i < lastIdx; i++) {
+            tmp.add(data[i]);
         }
+        return tmp;
+    }
 
-        return resultCount;
+    /**
+     * Reads the indexes written by writeData(DataOutput), replacing the ones stored on this node.
+     */
+    void readData(DataInput in) throws IOException {
+        PackedPostings read = PackedPostings.read(in);
+        if (read.size() >= PACK_THRESHOLD) {
+            packed = read;
+            data = EMPTY;
+            lastIdx = 0;
+        } else {
+            packed = null;
+            data = read.size() == 0 ? EMPTY : new int[read.size()];
+            lastIdx = 0;
+            read.visit(new IndexVisitor() {
+                public boolean visit(int index) {
+                    data[lastIdx++] = index;
+                    return true;
+                }
+            });
+        }
     }
 
-    void addEdge(T ch, Edge e) {
-        edges.put(ch, e);
+    void addEdge(int ch, Edge e) {
+        e.getDest().parent = this;
+        edges = edges.with(ch, e);
     }
 
-    Edge getEdge(T ch) {
+    Edge getEdge(int ch) {
         return edges.get(ch);
     }
 
@@ -238,12 +551,49 @@ class Node<T extends Comparable<T>> {
         this.suffix = suffix;
     }
 
+    Node getParent() {
+        return parent;
+    }
+
     private void addIndex(int index) {
-        if (lastIdx == data.length) {
-            int[] copy = new int[data.length + INCREMENT];
-            System.arraycopy(data, 0, copy, 0, data.length);
-            data = copy;
+        appendIndex(index);
+
+        // count the new index in this subtree and in the enclosing ones, stopping at the first that has it already
+        for (Node n = this; n != null && n.lastCounted != index; n = n.parent) {
+            if (n.firstCounted > index) {
+                n.firstCounted = index;
+            }
+            n.resultCount++;
+            n.lastCounted = index;
+        }
+    }
+
+    /**
+     * Adds the given index to the ones stored on this node, leaving the counts alone.
+     */
+    private void appendIndex(int index) {
+        if (packed != null) {
+            packed.add(index);
+        } else if (lastIdx == PACK_THRESHOLD) {
+            PackedPostings p = new PackedPostings(2 * PACK_THRESHOLD);
+            for (int i = 0; i < lastIdx; i++) {
+                p.add(data[i]);
+            }
+            p.add(index);
+            packed = p;
+            // lastIdx is left as it is: readers that find it greater than the length of data know they must look at packed
+            data = EMPTY;
+        } else {
+            int[] d = data;
+            int size = lastIdx;
+            if (size == d.length) {
+                int[] copy = new int[Math.max(START_SIZE, d.length + (d.length >> 1))];
+                System.arraycopy(d, 0, copy, 0, d.length);
+                data = copy;
+                d = copy;
+            }
+            d[size] = index;
+            lastIdx = size + 1;
         }
-        data[lastIdx++] = index;
     }
 }
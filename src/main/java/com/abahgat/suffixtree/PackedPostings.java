@@ -0,0 +1,258 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A sorted list of indexes, stored as the variable-length encoding of the gaps between them.
+ *
+ * Nodes close to the root are associated with a large number of indexes, which are close to each other:
+ * most gaps then fit in a single byte, instead of the four taken by each entry of an int[].
+ * Gaps are written seven bits at a time, least significant first, with the high bit of each byte
+ * telling whether more bytes follow.
+ *
+ * Indexes can only be appended in increasing order, and are read back sequentially.
+ * Every BLOCK indexes, the list records where the next gap starts and the index it is added to,
+ * so that a reader can start from any block, in either direction, instead of from the first index.
+ */
+final class PackedPostings {
+
+    /**
+     * The encoded gaps. Like in Node, a grown array is published before length is increased,
+     * so the list can be visited while indexes are appended.
+     */
+    private volatile byte[] bytes;
+    private volatile int length = 0;
+    private int size = 0;
+    private int last = 0;
+    /**
+     * The start of each block, as pairs of (offset in bytes, index its first gap is added to).
+     * An entry is written before skipCount, which is increased before length.
+     */
+    private volatile int[] skips = new int[4];
+    private volatile int skipCount = 0;
+
+    /**
+     * The number of indexes in each block
+     */
+    static final int BLOCK = 128;
+
+    PackedPostings(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    /**
+     * Writes the list to the given output, in its packed form.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(last);
+        out.writeInt(length);
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * Reads a list written by write(DataOutput)
+     */
+    static PackedPostings read(DataInput in) throws IOException {
+        int size = in.readInt();
+        int last = in.readInt();
+        int length = in.readInt();
+        PackedPostings ret = new PackedPostings(length);
+        in.readFully(ret.bytes, 0, length);
+        ret.size = size;
+        ret.last = last;
+        ret.length = length;
+        ret.indexBlocks();
+        return ret;
+    }
+
+    /**
+     * Returns the number of indexes in the list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes taken by the encoded list
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Returns an estimate of the bytes taken by the list and its arrays
+     */
+    long estimateBytes() {
+        return TreeStats.object(2 * TreeStats.REFERENCE + 4 * 4)
+                + TreeStats.array(bytes.length, 1)
+                + TreeStats.array(skips.length, 4);
+    }
+
+    /**
+     * Writes the encoded list alone, as read by MappedSuffixTree
+     */
+    void writeBytes(DataOutput out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * Returns the greatest index in the list
+     */
+    int last() {
+        return last;
+    }
+
+    /**
+     * Appends the given index, which must be greater than any other in the list.
+     */
+    void add(int index) {
+        byte[] b = bytes;
+        int pos = length;
+        if (pos + 5 > b.length) {
+            b = Arrays.copyOf(b, Math.max(pos + 5, b.length + (b.length >> 1)));
+            bytes = b;
+        }
+        if (size % BLOCK == 0) {
+            addSkip(pos, size == 0 ? 0 : last);
+        }
+        int gap = size == 0 ? index : index - last;
+        while ((gap & ~0x7F) != 0) {
+            b[pos++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        b[pos++] = (byte) gap;
+        last = index;
+        size++;
+        length = pos;
+    }
+
+    /**
+     * Records that a block starts at the given offset, with its first gap added to <tt>base</tt>
+     */
+    private void addSkip(int offset, int base) {
+        int[] s = skips;
+        int count = skipCount;
+        if (2 * count == s.length) {
+            s = Arrays.copyOf(s, 2 * s.length);
+            skips = s;
+        }
+        s[2 * count] = offset;
+        s[2 * count + 1] = base;
+        skipCount = count + 1;
+    }
+
+    /**
+     * Rebuilds the start of the blocks of a list that was read as a whole
+     */
+    private void indexBlocks() {
+        int pos = 0;
+        int value = 0;
+        for (int i = 0; pos < length; ++i) {
+            if (i % BLOCK == 0) {
+                addSkip(pos, value);
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += gap;
+        }
+    }
+
+    /**
+     * Makes the given cursor read the blocks of the list, as they are now
+     */
+    void open(SortedMerge.Cursor cursor) {
+        int length = this.length;
+        int count = skipCount;
+        int[] skips = this.skips;
+        // blocks started after length was read are left out
+        while (count > 0 && skips[2 * (count - 1)] >= length) {
+            count--;
+        }
+        cursor.reset(bytes, length, skips, count);
+    }
+
+    /**
+     * Decodes the gaps found between the given offsets, adding the first one to <tt>base</tt>,
+     * into <tt>into</tt>, which must be large enough.
+     *
+     * @return the number of indexes decoded
+     */
+    static int decode(byte[] bytes, int from, int to, int base, int[] into) {
+        int pos = from;
+        int value = base;
+        int n = 0;
+        while (pos < to) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += gap;
+            into[n++] = value;
+        }
+        return n;
+    }
+
+    /**
+     * Makes the given cursor read the indexes in the list, as they are now
+     */
+    void open(IndexCursor cursor) {
+        int length = this.length;
+        cursor.reset(bytes, length);
+    }
+
+    /**
+     * Passes all the indexes in the list to the given visitor, in increasing order.
+     *
+     * @return false if the visitor stopped the visit
+     */
+    boolean visit(IndexVisitor visitor) {
+        int length = this.length;
+        byte[] bytes = this.bytes;
+        int pos = 0;
+        int value = 0;
+        while (pos < length) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += gap;
+            if (!visitor.visit(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Adds many keys to a tree at once, using several threads.
+ *
+ * Ukkonen's construction is inherently sequential, so the keys are split in parts, each part is built into
+ * a separate tree by a fork-join task, and the trees are then merged. Parts hold consecutive keys and never
+ * share an index, so the indexes below any node of a part tree are all greater than the ones below the
+ * nodes of the parts before it: merging a node just appends its indexes, and adds up the counts.
+ *
+ * Merging two trees walks the paths they have in common, grafting the subtrees that only one of them has
+ * and splitting edges where their labels diverge, as testAndSplit does. The subtrees of each first symbol
+ * are disjoint, so they are merged in parallel as well. The suffix links of a part are cleared once it is
+ * built, and the nodes of the tree keep theirs, since a merge never changes the path of a node: once the whole
+ * tree is in place, only the nodes the last merge split off or grafted are linked, from their path, so that
+ * further keys can be put into the tree as usual. Searches running meanwhile find either no link on those
+ * nodes, and start again from the root, or the right one.
+ *
+ * The result answers every search exactly like a tree built by putting the same keys one at a time.
+ */
+final class ParallelBuilder {
+
+    /**
+     * The minimum number of keys worth building in a separate part
+     */
+    static final int MIN_PART_SIZE = 1000;
+    /**
+     * The minimum number of threads worth splitting the keys for: merging the parts and linking them again
+     * takes about as much work as building them, so fewer threads would only make the build slower.
+     */
+    static final int MIN_PARALLELISM = 3;
+
+    private final SymbolStore store;
+
+    private ParallelBuilder(SymbolStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Adds the texts of the store starting from <tt>firstText</tt> to <tt>tree</tt>, each with the index in
+     * the same position of <tt>indexes</tt>, split in at most <tt>parts</tt> parts built in parallel.
+     * The indexes must have been checked already.
+     */
+    static void insertAll(AbstractSuffixTree tree, int firstText, int[] indexes, int parts) {
+        int begin = 0;
+        // the keys sharing the index that the tree already holds can't go in a separate part
+        while (begin < indexes.length && tree.getRoot().getResultCount() > 0 && indexes[begin] == tree.getRoot().getLastCounted()) {
+            tree.insert(firstText + begin, indexes[begin]);
+            begin++;
+        }
+        if (parts <= 1) {
+            for (int i = begin; i < indexes.length; ++i) {
+                tree.insert(firstText + i, indexes[i]);
+            }
+            return;
+        }
+
+        // split the keys in parts of about the same size, without splitting keys with the same index
+        List<int[]> bounds = new ArrayList<int[]>();
+        for (int p = 0; p < parts && begin < indexes.length; ++p) {
+            int end = Math.max(begin + 1, (int) ((long) indexes.length * (p + 1) / parts));
+            while (end < indexes.length && indexes[end] == indexes[end - 1]) {
+                end++;
+            }
+            bounds.add(new int[] {begin, end});
+            begin = end;
+        }
+
+        ParallelBuilder builder = new ParallelBuilder(tree.store);
+        Node built = new BuildTask(builder, firstText, indexes, bounds, 0, bounds.size()).invoke();
+        builder.relink(tree.getRoot(), builder.mergeRoots(tree.getRoot(), built));
+    }
+
+    /**
+     * Builds the parts in [from, to) and merges them, returning the root of the result.
+     */
+    private static final class BuildTask extends RecursiveTask<Node> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelBuilder builder;
+        private final int firstText;
+        private final int[] indexes;
+        private final List<int[]> bounds;
+        private final int from;
+        private final int to;
+
+        BuildTask(ParallelBuilder builder, int firstText, int[] indexes, List<int[]> bounds, int from, int to) {
+            this.builder = builder;
+            this.firstText = firstText;
+            this.indexes = indexes;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Node compute() {
+            if (to - from == 1) {
+                Part part = new Part(builder.store);
+                int[] range = bounds.get(from);
+                for (int i = range[0]; i < range[1]; ++i) {
+                    part.insert(firstText + i, indexes[i]);
+                }
+                unlink(part.getRoot());
+                return part.getRoot();
+            }
+            int middle = (from + to) >>> 1;
+            BuildTask left = new BuildTask(builder, firstText, indexes, bounds, from, middle);
+            left.fork();
+            Node right = new BuildTask(builder, firstText, indexes, bounds, middle, to).compute();
+            Node ret = left.join();
+            builder.mergeRoots(ret, right);
+            return ret;
+        }
+    }
+
+    /**
+     * A tree built over a shared store, holding one part of the keys, or the ones left by a compaction
+     */
+    static final class Part extends AbstractSuffixTree {
+        Part(SymbolStore store) {
+            super(store);
+        }
+    }
+
+    /**
+     * Clears the suffix links of the nodes below <tt>root</tt>, which lead into a tree about to be merged away
+     */
+    private static void unlink(Node root) {
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            node.setSuffix(null);
+            for (Edge e : node.getEdges().values()) {
+                stack.push(e.getDest());
+            }
+        }
+    }
+
+    /**
+     * The edges that a merge added below one edge of the root, or below the root itself, leading to nodes
+     * with no suffix link yet
+     */
+    private static final class Added {
+        /**
+         * The edges to the nodes split off edges of the tree, each after the ones to the nodes above it
+         */
+        final List<Edge> splits = new ArrayList<Edge>();
+        /**
+         * The edges to the subtrees grafted whole, below nodes of the tree or split off its edges
+         */
+        final List<Edge> grafts = new ArrayList<Edge>();
+    }
+
+    /**
+     * Moves the content of the root <tt>b</tt> into the root <tt>a</tt>, as merge does,
+     * merging the subtrees of each first symbol in a separate task.
+     *
+     * @return the edges added below <tt>a</tt>, one group for each task
+     */
+    private List<Added> mergeRoots(Node a, Node b) {
+        a.appendData(b);
+        a.addCount(b);
+        Added grafts = new Added();
+        List<MergeTask> tasks = new ArrayList<MergeTask>();
+        for (Edge e : b.getEdges().values()) {
+            Edge g = a.getEdge(store.get(e.getBegin()));
+            if (g == null) {
+                grafts.grafts.add(e);
+            } else {
+                tasks.add(new MergeTask(this, g, e));
+            }
+        }
+        ForkJoinTask.invokeAll(tasks);
+        // only this thread updates the root
+        List<Added> ret = new ArrayList<Added>();
+        for (MergeTask task : tasks) {
+            Edge merged = task.join();
+            if (merged != task.g) {
+                a.addEdge(store.get(merged.getBegin()), merged);
+            }
+            ret.add(task.added);
+        }
+        for (Edge e : grafts.grafts) {
+            a.addEdge(store.get(e.getBegin()), e);
+        }
+        ret.add(grafts);
+        return ret;
+    }
+
+    /**
+     * Merges an edge leaving a root into the edge leaving the other root with the same first symbol
+     */
+    private static final class MergeTask extends RecursiveTask<Edge> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelBuilder builder;
+        private final Edge g;
+        private final Edge e;
+        private final Added added = new Added();
+
+        MergeTask(ParallelBuilder builder, Edge g, Edge e) {
+            this.builder = builder;
+            this.g = g;
+            this.e = e;
+        }
+
+        @Override
+        protected Edge compute() {
+            return builder.mergeInto(g, e, added);
+        }
+    }
+
+    /**
+     * Moves the content of <tt>b</tt> into <tt>a</tt>, which denotes the same path in another tree.
+     * All the indexes below <tt>b</tt> must be greater than the ones below <tt>a</tt>.
+     */
+    private void merge(Node a, Node b, Added added) {
+        a.appendData(b);
+        a.addCount(b);
+        for (Edge e : b.getEdges().values()) {
+            mergeEdge(a, e, added);
+        }
+    }
+
+    /**
+     * Moves the path denoted by <tt>e</tt>, and the subtree it leads to, below <tt>a</tt>.
+     * The count of <tt>a</tt> must already account for the indexes below <tt>e</tt>.
+     */
+    private void mergeEdge(Node a, Edge e, Added added) {
+        int c = store.get(e.getBegin());
+        Edge g = a.getEdge(c);
+        if (g == null) {
+            added.grafts.add(e);
+            a.addEdge(c, e);
+        } else {
+            Edge merged = mergeInto(g, e, added);
+            if (merged != g) {
+                a.addEdge(c, merged);
+            }
+        }
+    }
+
+    /**
+     * Moves the path denoted by <tt>e</tt> below the edge <tt>g</tt>, whose label starts with the same symbol.
+     * Nothing above <tt>g</tt> is changed.
+     *
+     * @return the edge that must replace <tt>g</tt>, which is <tt>g</tt> itself unless it had to be split
+     */
+    private Edge mergeInto(Edge g, Edge e, Added added) {
+        // find where the labels diverge, knowing that they start with the same symbol
+        int max = Math.min(g.length(), e.length());
+        int k = 1;
+        while (k < max && store.get(g.getBegin() + k) == store.get(e.getBegin() + k)) {
+            k++;
+        }
+
+        if (k == g.length() && k == e.length()) {
+            merge(g.getDest(), e.getDest(), added);
+            return g;
+        } else if (k == g.length()) {
+            // e goes on past the end of g
+            g.getDest().addCount(e.getDest());
+            mergeEdge(g.getDest(), new Edge(e.getBegin() + k, e.getEnd(), e.getDest()), added);
+            return g;
+        }
+
+        // split g as testAndSplit does, leaving it untouched for searches running meanwhile
+        Node r = new Node();
+        Edge upper = new Edge(g.getBegin(), g.getBegin() + k, r);
+        added.splits.add(upper);
+        Edge lower = new Edge(g.getBegin() + k, g.getEnd(), g.getDest());
+        r.copyCount(g.getDest());
+        r.addEdge(store.get(lower.getBegin()), lower);
+        if (k == e.length()) {
+            merge(r, e.getDest(), added);
+        } else {
+            Edge rest = new Edge(e.getBegin() + k, e.getEnd(), e.getDest());
+            added.grafts.add(rest);
+            r.addCount(e.getDest());
+            r.addEdge(store.get(rest.getBegin()), rest);
+        }
+        return upper;
+    }
+
+    /**
+     * Sets the suffix link of the nodes a merge added below <tt>root</tt>, one group per task: split nodes
+     * first, from the top, then whole grafted subtrees.
+     *
+     * The link of a node is found by following the label of its incoming edge from the link of its parent,
+     * skipping whole edges at a time: the node it leads to always exists, since all nodes are either branching
+     * or the end of a suffix of some key. The parent of a node is either one the tree already had, which is
+     * linked, or one added before it.
+     */
+    private void relink(final Node root, List<Added> added) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (final Added a : added) {
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    for (Edge e : a.splits) {
+                        link(root, e);
+                    }
+                    Deque<Node> stack = new ArrayDeque<Node>();
+                    for (Edge e : a.grafts) {
+                        link(root, e);
+                        stack.push(e.getDest());
+                        while (!stack.isEmpty()) {
+                            Node node = stack.pop();
+                            for (Edge child : node.getEdges().values()) {
+                                child.getDest().setSuffix(descend(node.getSuffix(), child.getBegin(), child.getEnd()));
+                                stack.push(child.getDest());
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Sets the suffix link of the node <tt>e</tt> leads to, from the link of its parent.
+     */
+    private void link(Node root, Edge e) {
+        Node parent = e.getDest().getParent();
+        if (parent == root) {
+            e.getDest().setSuffix(descend(root, e.getBegin() + 1, e.getEnd()));
+        } else {
+            e.getDest().setSuffix(descend(parent.getSuffix(), e.getBegin(), e.getEnd()));
+        }
+    }
+
+    /**
+     * Returns the node reached by following the symbols in [begin, end) from <tt>node</tt>.
+     */
+    private Node descend(Node node, int begin, int end) {
+        while (begin < end) {
+            Edge e = node.getEdge(store.get(begin));
+            begin += e.length();
+            node = e.getDest();
+        }
+        if (begin != end) {
+            throw new IllegalStateException("No node at the end of the path");
+        }
+        return node;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Finds where a word occurs in the keys, as (index, offset) pairs packed by Positions.
+ *
+ * No offset is stored in the tree: a suffix of a key ends at a node holding its index, so each node below the
+ * match that holds an index stands for an occurrence of the word in its key, as many symbols from the end of
+ * the key as there are on the path to the node. The lists of the subtree are merged in index order, keeping
+ * track of the depth of the node each entry comes from, and the occurrences of an index are worked out from
+ * the end of its key once all its entries are read. Occurrences come out sorted, and only as they are asked for.
+ *
+ * A node holds an index once even if the suffix ending there is shared by several keys put with it. When an
+ * index has more than one key, every depth met is tried against each of them, and kept where the word is found.
+ */
+final class PositionalSearch implements PrimitiveIterator.OfLong {
+
+    private final AbstractSuffixTree tree;
+    private final int[] word;
+    private final SortedMerge merge;
+
+    /**
+     * The entry read from the merge that starts the next run, if any
+     */
+    private boolean held;
+    private int heldIndex;
+    private int heldDepth;
+
+    /**
+     * The depths of the nodes holding the index being resolved
+     */
+    private int[] depths = new int[16];
+    /**
+     * The occurrences of the last index resolved
+     */
+    private long[] ready = new long[16];
+    private int readySize = 0;
+    private int readyPos = 0;
+
+    PositionalSearch(AbstractSuffixTree tree, int[] word) {
+        this.tree = tree;
+        this.word = word;
+        SortedMerge m = null;
+        if (word != null && word.length > 0) {
+            Node node = tree.getRoot();
+            int depth = 0;
+            for (int i = 0; node != null && i < word.length; ) {
+                Edge e = node.getEdge(word[i]);
+                int len = e == null ? 0 : Math.min(e.length(), word.length - i);
+                if (e == null || !tree.store.regionMatches(e.getBegin(), word, i, len)) {
+                    node = null;
+                } else {
+                    node = e.getDest();
+                    depth += e.length();
+                    i += len;
+                }
+            }
+            if (node != null && node.getResultCount() > 0) {
+                m = new SortedMerge(node, depth, SortOrder.ASCENDING, SortedMerge.first(SortOrder.ASCENDING));
+            }
+        }
+        merge = m;
+        pull();
+    }
+
+    /**
+     * Returns at most <tt>results</tt> of the occurrences left
+     *
+     * @param results the max number of occurrences to return, -1 for all
+     */
+    long[] take(int results) {
+        long[] ret = new long[results < 0 ? 16 : Math.min(results, 1024)];
+        int size = 0;
+        while (size != results && hasNext()) {
+            if (size == ret.length) {
+                ret = Arrays.copyOf(ret, 2 * size);
+            }
+            ret[size++] = nextLong();
+        }
+        return size == ret.length ? ret : Arrays.copyOf(ret, size);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (readyPos == readySize) {
+            if (!held) {
+                return false;
+            }
+            resolveNext();
+        }
+        return true;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ready[readyPos++];
+    }
+
+    /**
+     * Reads the next entry of the merge, if any
+     */
+    private void pull() {
+        held = merge != null && merge.hasNext();
+        if (held) {
+            heldIndex = merge.next();
+            heldDepth = merge.depth();
+        }
+    }
+
+    /**
+     * Reads all the entries of the next index, and finds its occurrences unless it was removed
+     */
+    private void resolveNext() {
+        int index = heldIndex;
+        int count = 0;
+        do {
+            if (count == depths.length) {
+                depths = Arrays.copyOf(depths, 2 * count);
+            }
+            depths[count++] = heldDepth;
+            pull();
+        } while (held && heldIndex == index);
+
+        readyPos = 0;
+        readySize = 0;
+        if (tree.removed.contains(index)) {
+            return;
+        }
+        // the deepest nodes are the occurrences closest to the start of the key
+        Arrays.sort(depths, 0, count);
+        int texts = tree.texts();
+        int first = tree.firstText(index);
+        boolean shared = first + 1 < texts && tree.textIndex(first + 1) == index;
+        int start = tree.textBegin(first);
+        for (int t = first; t < texts && tree.textIndex(t) == index; ++t) {
+            int end = tree.textEnd(t);
+            int length = end - tree.textBegin(t);
+            for (int i = count - 1; i >= 0; --i) {
+                int depth = depths[i];
+                if (depth > length || (i + 1 < count && depths[i + 1] == depth)) {
+                    continue;
+                }
+                if (shared && !tree.store.regionMatches(end - depth, word, 0, word.length)) {
+                    continue;
+                }
+                if (readySize == ready.length) {
+                    ready = Arrays.copyOf(ready, 2 * readySize);
+                }
+                ready[readySize++] = Positions.pack(index, end - depth - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * Reads the occurrences returned by positional searches, each packed in a long: the index of the key in the
+ * upper 32 bits, and the offset of the occurrence in the lower 32. Packed occurrences sort by index first,
+ * then by offset.
+ */
+public final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * Returns the occurrence of the given index at the given offset, packed
+     */
+    public static long pack(int index, int offset) {
+        return ((long) index << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the index of the key of the given occurrence
+     */
+    public static int index(long position) {
+        return (int) (position >>> 32);
+    }
+
+    /**
+     * Returns the offset of the given occurrence from the start of the key. When several keys were put with
+     * the same index, offsets count from the start of the first of them, as if they were put one after another.
+     */
+    public static int offset(long position) {
+        return (int) position;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+
+/**
+ * Finds the indexes in which a word occurs most often.
+ *
+ * No frequency has to be stored: a suffix of a key ends at a node, which holds the index of the key, so the
+ * nodes below the match that hold an index are as many as the suffixes of its key starting with the word,
+ * that is the occurrences of the word. Merging the lists of the subtree in index order brings all the entries
+ * of an index next to each other, so each frequency is known as soon as its run ends, and only the best
+ * <tt>results</tt> of them are kept, in a min-heap whose root is the first to be dropped.
+ *
+ * Keys sharing an index are counted together, except that a suffix they have in common is counted once.
+ */
+final class RankedSearch {
+
+    private long[] heap;
+    private int size = 0;
+    private final int results;
+
+    private RankedSearch(int results) {
+        this.results = results;
+        heap = new long[results < 0 ? 16 : Math.min(results, 1024)];
+    }
+
+    /**
+     * Returns at most <tt>results</tt> indexes stored under the given node that were not removed, by decreasing
+     * number of occurrences.
+     *
+     * @param results the max number of indexes to return, -1 for all
+     */
+    static RankedMatches top(Node node, Tombstones removed, int results) {
+        RankedSearch ranked = new RankedSearch(results);
+        if (results != 0) {
+            SortedMerge merge = new SortedMerge(node, SortOrder.ASCENDING, SortedMerge.first(SortOrder.ASCENDING));
+            int current = -1;
+            int count = 0;
+            while (merge.hasNext()) {
+                int index = merge.next();
+                if (index != current) {
+                    if (count > 0 && !removed.contains(current)) {
+                        ranked.offer(current, count);
+                    }
+                    current = index;
+                    count = 0;
+                }
+                count++;
+            }
+            if (count > 0 && !removed.contains(current)) {
+                ranked.offer(current, count);
+            }
+        }
+        return ranked.toMatches();
+    }
+
+    /**
+     * Returns the entry of the heap for the given index, which is greater the better the index ranks
+     */
+    private static long key(int index, int frequency) {
+        return ((long) frequency << 32) | (Integer.MAX_VALUE - index);
+    }
+
+    private void offer(int index, int frequency) {
+        long key = key(index, frequency);
+        if (size == results) {
+            if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+            return;
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, results < 0 ? 2 * size : Math.min(2 * size, results));
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private void siftDown(int i) {
+        long key = heap[i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+
+    private RankedMatches toMatches() {
+        Arrays.sort(heap, 0, size);
+        int[] indexes = new int[size];
+        int[] frequencies = new int[size];
+        for (int i = 0; i < size; ++i) {
+            long key = heap[size - 1 - i];
+            indexes[i] = Integer.MAX_VALUE - (int) key;
+            frequencies[i] = (int) (key >>> 32);
+        }
+        return new RankedMatches(indexes, frequencies);
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+
+/**
+ * A reusable container for the indexes returned by a search.
+ *
+ * It keeps the distinct indexes it is given in primitive arrays, and uses an open addressing hash set to discard
+ * duplicates, so its memory depends on the number of indexes it holds, not on how large they are.
+ * Clearing it only touches the slots that were set, so the same buffer can be passed to any number of
+ * searches: once it has grown to fit the largest result set, searching with it allocates nothing.
+ *
+ * A buffer is not thread safe, callers should keep one per thread.
+ */
+public class ResultBuffer {
+
+    /**
+     * The distinct indexes added so far, in the order they were added
+     */
+    private int[] results = new int[16];
+    /**
+     * The number of indexes in results
+     */
+    private int size = 0;
+    /**
+     * The hash set of the indexes in results, with linear probing: each slot holds the position of an index
+     * in results plus one, or 0 if it is free. It is kept at most half full.
+     */
+    private int[] slots = new int[32];
+    /**
+     * The max number of indexes this buffer will accept, or -1 for no limit
+     */
+    private final int limit;
+    /**
+     * Adds the indexes it visits to this buffer, so that nodes can fill it without allocating a visitor each time
+     */
+    final IndexVisitor adder = new IndexVisitor() {
+        public boolean visit(int index) {
+            return add(index);
+        }
+    };
+
+    /**
+     * Creates a buffer that accepts any number of indexes.
+     */
+    public ResultBuffer() {
+        this(-1);
+    }
+
+    /**
+     * Creates a buffer that accepts at most <tt>limit</tt> indexes.
+     *
+     * @param limit the max number of results to keep. Use -1 to keep all
+     */
+    public ResultBuffer(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a buffer that accepts at most <tt>limit</tt> indexes, with room for <tt>expected</tt> of them.
+     *
+     * @param limit the max number of results to keep. Use -1 to keep all
+     * @param expected the number of indexes the buffer is expected to hold
+     */
+    ResultBuffer(int limit, int expected) {
+        this(limit);
+        int capacity = Math.min(limit < 0 ? expected : Math.min(expected, limit), 1 << 28);
+        if (capacity > results.length) {
+            results = new int[capacity];
+            slots = new int[Integer.highestOneBit(2 * capacity - 1) << 1];
+        }
+    }
+
+    /**
+     * Returns the number of indexes in this buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the i-th index in this buffer
+     *
+     * @throws IndexOutOfBoundsException if i is not less than size()
+     */
+    public int get(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return results[i];
+    }
+
+    /**
+     * Returns whether this buffer already holds as many indexes as it can accept
+     */
+    public boolean isFull() {
+        return size == limit;
+    }
+
+    /**
+     * Returns a copy of the indexes in this buffer
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(results, size);
+    }
+
+    /**
+     * Removes all the indexes from this buffer, keeping the memory it has allocated so far.
+     */
+    public void clear() {
+        // freeing the slots in the reverse order they were taken leaves the probe sequences of the others intact
+        for (int i = size - 1; i >= 0; --i) {
+            int slot = slot(results[i]);
+            while (slots[slot] != i + 1) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the first slot to probe for the given index
+     */
+    private int slot(int index) {
+        int h = index * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (slots.length - 1);
+    }
+
+    /**
+     * Doubles the hash set, putting the indexes back in the order they were added
+     */
+    private void grow() {
+        slots = new int[2 * slots.length];
+        for (int i = 0; i < size; ++i) {
+            int slot = slot(results[i]);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Adds the given index, unless it is already contained in this buffer.
+     *
+     * @return false if the buffer can't accept any more indexes
+     */
+    boolean add(int index) {
+        if (size == limit) {
+            return false;
+        }
+        int slot = slot(index);
+        int taken;
+        while ((taken = slots[slot]) != 0) {
+            if (results[taken - 1] == index) {
+                return size != limit;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        if (size == results.length) {
+            results = Arrays.copyOf(results, results.length * 2);
+        }
+        results[size++] = index;
+        slots[slot] = size;
+        if (2 * size > slots.length) {
+            grow();
+        }
+        return size != limit;
+    }
+}
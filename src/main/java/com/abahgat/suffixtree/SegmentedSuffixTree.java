@@ -0,0 +1,497 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An index made of several GeneralizedSuffixTrees, called segments, which is searched as a whole.
+ *
+ * Keys are put into a small tree, which is sealed into a read-only segment once it holds the given
+ * number of symbols, and replaced by a new one. Sealed segments are merged in the background, as chosen
+ * by a MergePolicy, so that their number stays low while no tree ever has to grow past what was merged.
+ * Searches run on every segment, and return the union of their results.
+ *
+ * Indexes only need to be in non-decreasing order within a segment: a put with an index less than the
+ * ones in the current tree seals it, and starts a new one. Keys put in increasing order of index make
+ * for fewer, larger segments, and keep searchWithCount from having to collect all the results to count
+ * them: it only does when the index ranges of the segments overlap.
+ *
+ * Like GeneralizedSuffixTree, it can be searched by any number of threads while a single thread puts
+ * keys into it.
+ *
+ * @param <T> the type of the symbols of the keys
+ */
+public class SegmentedSuffixTree<T extends Comparable<T>> {
+
+    /**
+     * The default number of symbols after which the current tree is sealed
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+    /**
+     * The default number of segments merged at once
+     */
+    public static final int DEFAULT_MERGE_FACTOR = 4;
+
+    private final long segmentSize;
+    private final MergePolicy policy;
+    /**
+     * The segments, replaced as a whole when a tree is sealed or segments are merged
+     */
+    private volatile Segments<T> segments = new Segments<T>(Collections.<Segment<T>>emptyList(), new Segment<T>());
+    /**
+     * Taken to replace segments, by the writer when it seals a tree and by merges when they are over
+     */
+    private final ReentrantLock segmentsLock = new ReentrantLock();
+    /**
+     * Taken while segments are merged, so that only one merge runs at a time
+     */
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    /**
+     * Whether merges have been started in the background and are not over yet
+     */
+    private volatile boolean mergeScheduled;
+    /**
+     * Where the trees of the segments report measures of their work
+     */
+    private volatile TreeMetrics metrics = TreeMetrics.NONE;
+
+    /**
+     * Creates an index whose trees are sealed every DEFAULT_SEGMENT_SIZE symbols, and merged
+     * DEFAULT_MERGE_FACTOR at a time.
+     */
+    public SegmentedSuffixTree() {
+        this(DEFAULT_SEGMENT_SIZE, new TieredMergePolicy(DEFAULT_MERGE_FACTOR, DEFAULT_SEGMENT_SIZE));
+    }
+
+    /**
+     * @param segmentSize the number of symbols after which the current tree is sealed
+     * @param policy the policy choosing which segments are merged
+     */
+    public SegmentedSuffixTree(long segmentSize, MergePolicy policy) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("The segment size must be positive, got " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds the specified <tt>index</tt> to the index under the given <tt>key</tt>.
+     *
+     * If index is less than the ones in the current tree, the tree is sealed first.
+     *
+     * @param key the key that will be added to the index
+     * @param index the value that will be added to the index
+     * @throws IllegalArgumentException if index is negative
+     */
+    public void put(List<T> key, int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Indexes must not be negative, got " + index);
+        }
+        Segment<T> current = segments.current;
+        if (current.keys > 0 && (index < current.tree.getLast() || current.symbols >= segmentSize)) {
+            seal();
+            current = segments.current;
+        }
+        // the range of indexes is widened first, so that searches never find an index outside of it
+        current.add(key.size(), index);
+        current.tree.put(key, index);
+    }
+
+    /**
+     * Seals the current tree, if it holds any key, and starts merging segments in the background
+     * if the policy chooses some.
+     */
+    public void seal() {
+        segmentsLock.lock();
+        try {
+            Segments<T> s = segments;
+            if (s.current.keys == 0) {
+                return;
+            }
+            List<Segment<T>> sealed = new ArrayList<Segment<T>>(s.sealed);
+            sealed.add(s.current);
+            segments = new Segments<T>(sealed, newSegment());
+        } finally {
+            segmentsLock.unlock();
+        }
+        if (!mergeScheduled && selectMerge(segments.sealed) != null) {
+            mergeScheduled = true;
+            ForkJoinPool.commonPool().execute(new Runnable() {
+                public void run() {
+                    try {
+                        merge();
+                    } finally {
+                        mergeScheduled = false;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges the segments chosen by the policy, until it chooses none, and waits for it to finish.
+     * Searches and puts are not blocked meanwhile.
+     */
+    public void merge() {
+        mergeLock.lock();
+        try {
+            while (true) {
+                // only merges remove sealed segments, so the chosen ones stay where they are until replaced
+                List<Segment<T>> sealed = segments.sealed;
+                int[] range = selectMerge(sealed);
+                if (range == null) {
+                    return;
+                }
+                List<GeneralizedSuffixTree<T>> trees = new ArrayList<GeneralizedSuffixTree<T>>();
+                Segment<T> merged = new Segment<T>();
+                for (Segment<T> segment : sealed.subList(range[0], range[1])) {
+                    trees.add(segment.tree);
+                    merged.add(segment);
+                }
+                merged.tree = GeneralizedSuffixTree.merge(trees);
+
+                segmentsLock.lock();
+                try {
+                    merged.tree.setMetrics(metrics);
+                    Segments<T> s = segments;
+                    List<Segment<T>> replaced = new ArrayList<Segment<T>>(s.sealed.subList(0, range[0]));
+                    replaced.add(merged);
+                    replaced.addAll(s.sealed.subList(range[1], s.sealed.size()));
+                    segments = new Segments<T>(replaced, s.current);
+                } finally {
+                    segmentsLock.unlock();
+                }
+            }
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    private int[] selectMerge(List<Segment<T>> sealed) {
+        long[] sizes = new long[sealed.size()];
+        for (int i = 0; i < sizes.length; ++i) {
+            sizes[i] = sealed.get(i).symbols;
+        }
+        int[] range = policy.select(sizes);
+        if (range != null && (range[0] < 0 || range[1] > sizes.length || range[1] - range[0] < 2)) {
+            throw new IllegalStateException("Invalid range of segments to merge [" + range[0] + ", " + range[1] + ") out of " + sizes.length);
+        }
+        return range;
+    }
+
+    /**
+     * Makes the trees of all the segments, present and to come, report measures of their work to the given metrics.
+     *
+     * @param metrics where measures are reported, TreeMetrics.NONE to stop measuring
+     * @see GeneralizedSuffixTree#setMetrics(TreeMetrics)
+     */
+    public void setMetrics(TreeMetrics metrics) {
+        if (metrics == null) {
+            throw new NullPointerException("metrics");
+        }
+        segmentsLock.lock();
+        try {
+            // set first, so that merges finishing from now on pick it up
+            this.metrics = metrics;
+            for (Segment<T> segment : segments.all()) {
+                segment.tree.setMetrics(metrics);
+            }
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a segment for a new current tree
+     */
+    private Segment<T> newSegment() {
+        Segment<T> ret = new Segment<T>();
+        ret.tree.setMetrics(metrics);
+        return ret;
+    }
+
+    /**
+     * Returns the number of segments, counting the tree keys are put into
+     */
+    public int getSegmentCount() {
+        return segments.sealed.size() + 1;
+    }
+
+    /**
+     * Searches for the given word in all the segments.
+     *
+     * @param word the key to search for
+     * @return the collection of indexes whose key contains <tt>word</tt>, or null if there is none
+     * @see GeneralizedSuffixTree#search(java.util.List)
+     */
+    public Collection<Integer> search(List<T> word) {
+        return search(word, -1);
+    }
+
+    /**
+     * Searches for the given word in all the segments and returns at most the given number of matches.
+     *
+     * @param word the key to search for
+     * @param results the max number of results to return
+     * @return at most <tt>results</tt> values for the given word, or null if there is none
+     */
+    public Collection<Integer> search(List<T> word, int results) {
+        // the buffer drops the indexes found in several segments, so that they count once against the limit
+        ResultBuffer found = new ResultBuffer(results);
+        search(word, found);
+        if (found.size() == 0) {
+            return null;
+        }
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int i = 0; i < found.size(); ++i) {
+            ret.add(found.get(i));
+        }
+        return ret;
+    }
+
+    /**
+     * Searches for the given word in all the segments and stores the matching indexes into <tt>results</tt>,
+     * replacing its previous content.
+     *
+     * @param word the key to search for
+     * @param results the buffer the matching indexes are stored into
+     * @return the number of indexes stored into <tt>results</tt>
+     */
+    public int search(List<T> word, ResultBuffer results) {
+        results.clear();
+        for (Segment<T> segment : segments.all()) {
+            if (!segment.tree.searchMore(word, results)) {
+                break;
+            }
+        }
+        return results.size();
+    }
+
+    /**
+     * Searches for the given word in all the segments and returns at most the given number of matching indexes,
+     * sorted in the given order, without duplicates.
+     *
+     * @param word the key to search for
+     * @param order the order of the returned indexes
+     * @param results the max number of results to return, -1 for all
+     * @return at most <tt>results</tt> indexes for the given word, empty if there is none
+     * @see GeneralizedSuffixTree#searchSorted(java.util.List, SortOrder, int)
+     */
+    public int[] searchSorted(List<T> word, SortOrder order, int results) {
+        return searchSorted(word, order, results, SortedMerge.first(order));
+    }
+
+    /**
+     * Returns the page of matching indexes that comes after the given index, in the given order, from all
+     * the segments. Each segment returns its own page, and the pages are merged.
+     *
+     * @param word the key to search for
+     * @param order the order of the returned indexes
+     * @param results the max number of results to return, -1 for all
+     * @param after the index the page starts after, usually the last one of the previous page
+     * @return at most <tt>results</tt> indexes for the given word, empty if there is none
+     * @see GeneralizedSuffixTree#searchSorted(java.util.List, SortOrder, int, int)
+     */
+    public int[] searchSorted(List<T> word, SortOrder order, int results, int after) {
+        return searchSorted(word, order, results, (long) after);
+    }
+
+    private int[] searchSorted(List<T> word, SortOrder order, int results, long after) {
+        int[] ret = new int[0];
+        for (Segment<T> segment : segments.all()) {
+            ret = mergeSorted(ret, segment.tree.searchSorted(word, order, results, after), order, results);
+        }
+        return ret;
+    }
+
+    /**
+     * Merges two arrays sorted in the given order into one holding at most <tt>results</tt> distinct values
+     */
+    private static int[] mergeSorted(int[] a, int[] b, SortOrder order, int results) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int length = a.length + b.length;
+        int[] ret = new int[results < 0 ? length : Math.min(length, results)];
+        boolean descending = order == SortOrder.DESCENDING;
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (size < ret.length && (i < a.length || j < b.length)) {
+            int next;
+            if (j == b.length || (i < a.length && (descending ? a[i] >= b[j] : a[i] <= b[j]))) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (size == 0 || ret[size - 1] != next) {
+                ret[size++] = next;
+            }
+        }
+        return size == ret.length ? ret : Arrays.copyOf(ret, size);
+    }
+
+    /**
+     * Searches for the given word in all the segments and returns at most the given number of matches,
+     * together with the total number of matches.
+     *
+     * When segments hold disjoint ranges of indexes, the total is the sum of the counts of the segments.
+     * Otherwise all the matches are collected to count them.
+     *
+     * @param word the key to search for
+     * @param to the max number of results to return
+     * @return at most <tt>to</tt> values for the given word
+     */
+    public GeneralizedSuffixTree.ResultInfo searchWithCount(List<T> word, int to) {
+        Segments<T> s = segments;
+        if (!s.disjoint()) {
+            long expected = 0;
+            for (Segment<T> segment : s.all()) {
+                expected += segment.tree.countMatches(word);
+            }
+            ResultBuffer all = new ResultBuffer(-1, (int) Math.min(expected, Integer.MAX_VALUE));
+            search(word, all);
+            Set<Integer> ret = new HashSet<Integer>();
+            for (int i = 0; i < all.size() && ret.size() != to; ++i) {
+                ret.add(all.get(i));
+            }
+            return new GeneralizedSuffixTree.ResultInfo(ret, all.size());
+        }
+        Set<Integer> ret = new HashSet<Integer>();
+        int total = 0;
+        for (Segment<T> segment : s.all()) {
+            // ask each segment for as many as needed, and stop adding once the union is full
+            GeneralizedSuffixTree.ResultInfo info = segment.tree.searchWithCount(word, ret.size() == to ? 0 : to);
+            for (Integer index : info.results) {
+                if (ret.size() == to) {
+                    break;
+                }
+                ret.add(index);
+            }
+            total += info.totalResults;
+        }
+        return new GeneralizedSuffixTree.ResultInfo(ret, total);
+    }
+
+    /**
+     * Returns the number of different values stored in all the segments.
+     */
+    public int computeCount() {
+        Segments<T> s = segments;
+        if (!s.disjoint()) {
+            long expected = 0;
+            for (Segment<T> segment : s.all()) {
+                expected += segment.tree.getRoot().getResultCount();
+            }
+            ResultBuffer all = new ResultBuffer(-1, (int) Math.min(expected, Integer.MAX_VALUE));
+            for (Segment<T> segment : s.all()) {
+                segment.tree.collectMore(segment.tree.getRoot(), all);
+            }
+            return all.size();
+        }
+        int ret = 0;
+        for (Segment<T> segment : s.all()) {
+            ret += segment.tree.computeCount();
+        }
+        return ret;
+    }
+
+    /**
+     * A tree, and what is known of its keys
+     */
+    private static final class Segment<T extends Comparable<T>> {
+
+        GeneralizedSuffixTree<T> tree = new GeneralizedSuffixTree<T>();
+        /**
+         * The number of keys in the tree
+         */
+        int keys;
+        /**
+         * The number of symbols in the keys of the tree
+         */
+        volatile long symbols;
+        /**
+         * The range of the indexes in the tree, empty if it holds none
+         */
+        volatile int minIndex = Integer.MAX_VALUE;
+        volatile int maxIndex = -1;
+
+        void add(int length, int index) {
+            keys++;
+            symbols += length;
+            maxIndex = Math.max(maxIndex, index);
+            minIndex = Math.min(minIndex, index);
+        }
+
+        void add(Segment<T> other) {
+            keys += other.keys;
+            symbols += other.symbols;
+            minIndex = Math.min(minIndex, other.minIndex);
+            maxIndex = Math.max(maxIndex, other.maxIndex);
+        }
+    }
+
+    /**
+     * The sealed segments, from the oldest to the newest, and the tree keys are put into
+     */
+    private static final class Segments<T extends Comparable<T>> {
+
+        final List<Segment<T>> sealed;
+        final Segment<T> current;
+
+        Segments(List<Segment<T>> sealed, Segment<T> current) {
+            this.sealed = sealed;
+            this.current = current;
+        }
+
+        List<Segment<T>> all() {
+            List<Segment<T>> ret = new ArrayList<Segment<T>>(sealed.size() + 1);
+            ret.addAll(sealed);
+            ret.add(current);
+            return ret;
+        }
+
+        /**
+         * Returns whether no two segments hold indexes in overlapping ranges, so that no index is in two of them
+         */
+        boolean disjoint() {
+            List<Segment<T>> all = all();
+            for (int i = 0; i < all.size(); ++i) {
+                for (int j = i + 1; j < all.size(); ++j) {
+                    Segment<T> a = all.get(i);
+                    Segment<T> b = all.get(j);
+                    if (a.minIndex <= b.maxIndex && b.minIndex <= a.maxIndex) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
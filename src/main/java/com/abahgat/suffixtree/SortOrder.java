@@ -0,0 +1,31 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * The order in which sorted searches return indexes.
+ */
+public enum SortOrder {
+
+    /**
+     * Smallest indexes first
+     */
+    ASCENDING,
+    /**
+     * Greatest indexes first. When indexes are assigned as keys come in, the latest keys come first.
+     */
+    DESCENDING
+}
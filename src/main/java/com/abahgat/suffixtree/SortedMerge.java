@@ -0,0 +1,354 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+
+/**
+ * Returns the indexes stored under a node in sorted order, by merging the lists of all the nodes of its subtree.
+ *
+ * The lists are sorted already, since indexes are added in increasing order, and a heap yields their indexes
+ * in order. Duplicates come out next to each other and are dropped as they are met, so no set of the indexes
+ * returned is kept.
+ *
+ * Subtrees are expanded lazily, best first: each enters the heap unopened, keyed by a bound on the indexes it
+ * holds, the greatest one counted in it when descending and the first one when ascending. A node's own list is
+ * only read, and its children only pushed, once its bound comes to the top of the heap, so a page only opens
+ * the nodes that may hold its indexes.
+ *
+ * A page can start after any index: cursors jump to it by binary search, within an int[] or over the blocks
+ * of packed lists, and subtrees whose indexes are all on the wrong side of it, in either order, are not
+ * visited at all. Deep pages then cost about as much as the first one.
+ */
+final class SortedMerge {
+
+    private final boolean descending;
+    private final long after;
+    private Cursor[] heap = new Cursor[16];
+    private int heapSize = 0;
+    private int depth;
+
+    /**
+     * Starts merging the indexes stored under the given node that come after <tt>after</tt> in the given order.
+     */
+    SortedMerge(Node node, SortOrder order, long after) {
+        this(node, 0, order, after);
+    }
+
+    /**
+     * Starts merging the indexes stored under the given node that come after <tt>after</tt> in the given order,
+     * keeping track of the number of symbols on the path to each node.
+     *
+     * @param depth the number of symbols on the path from the root to <tt>node</tt>
+     */
+    SortedMerge(Node node, int depth, SortOrder order, long after) {
+        this.descending = order == SortOrder.DESCENDING;
+        this.after = after;
+        push(node, depth);
+    }
+
+    /**
+     * Adds the subtree of the given node to the heap, unopened, unless it holds no index of the page
+     */
+    private void push(Node node, int depth) {
+        if (node.getResultCount() == 0) {
+            // all removed
+            return;
+        }
+        int bound;
+        if (descending) {
+            if (node.getFirstCounted() >= after) {
+                return;
+            }
+            bound = (int) Math.min(node.getLastCounted(), after - 1);
+        } else {
+            if (node.getLastCounted() <= after) {
+                return;
+            }
+            bound = (int) Math.max(node.getFirstCounted(), after + 1);
+        }
+        Cursor c = new Cursor(descending, depth);
+        c.node = node;
+        c.value = bound;
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heapSize);
+        }
+        heap[heapSize] = c;
+        siftUp(heap, heapSize++);
+    }
+
+    /**
+     * Opens the subtrees at the top of the heap, until the top is a cursor on indexes or the heap is empty
+     */
+    private void expand() {
+        Cursor top;
+        while (heapSize > 0 && (top = heap[0]).node != null) {
+            Node node = top.node;
+            top.node = null;
+            node.openSorted(top);
+            if (!top.seek(after)) {
+                heap[0] = heap[--heapSize];
+                heap[heapSize] = null;
+            }
+            siftDown(heap, 0, heapSize);
+            for (Edge e : node.getEdges().values()) {
+                push(e.getDest(), top.depth + e.length());
+            }
+        }
+    }
+
+    /**
+     * Returns the value to pass as <tt>after</tt> to collect to get the first page in the given order
+     */
+    static long first(SortOrder order) {
+        return order == SortOrder.DESCENDING ? Integer.MAX_VALUE + 1L : -1L;
+    }
+
+    /**
+     * Returns whether any index is left to merge
+     */
+    boolean hasNext() {
+        expand();
+        return heapSize > 0;
+    }
+
+    /**
+     * Returns the next index in the order of the merge, removed or not. An index comes out once for each
+     * node of the subtree that holds it, all the times in a row.
+     */
+    int next() {
+        expand();
+        Cursor top = heap[0];
+        int index = top.value;
+        depth = top.depth;
+        if (!top.advance()) {
+            heap[0] = heap[--heapSize];
+            heap[heapSize] = null;
+        }
+        siftDown(heap, 0, heapSize);
+        return index;
+    }
+
+    /**
+     * Returns the number of symbols on the path to the node that held the index last returned by next()
+     */
+    int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns at most <tt>results</tt> indexes stored under the given node that were not removed, in the
+     * given order, starting with the first one that comes after <tt>after</tt>.
+     *
+     * @param results the max number of indexes to return, -1 for all
+     * @param after the index the page starts after, which need not be stored in the tree
+     */
+    static int[] collect(Node node, Tombstones removed, SortOrder order, int results, long after) {
+        SortedMerge merge = new SortedMerge(node, order, after);
+        int[] ret = new int[results < 0 ? 16 : Math.min(results, 1024)];
+        int size = 0;
+        long previous = after;
+        while (merge.hasNext() && size != results) {
+            int index = merge.next();
+            if (index != previous && !removed.contains(index)) {
+                if (size == ret.length) {
+                    ret = Arrays.copyOf(ret, 2 * size);
+                }
+                ret[size++] = index;
+            }
+            previous = index;
+        }
+        return size == ret.length ? ret : Arrays.copyOf(ret, size);
+    }
+
+    private static void siftUp(Cursor[] heap, int i) {
+        Cursor c = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!c.before(heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = c;
+    }
+
+    private static void siftDown(Cursor[] heap, int i, int size) {
+        if (size == 0) {
+            return;
+        }
+        Cursor c = heap[i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && heap[child + 1].before(heap[child])) {
+                child++;
+            }
+            if (!heap[child].before(c)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = c;
+    }
+
+    /**
+     * Reads the indexes stored on a node in either direction, from any position.
+     *
+     * Packed lists are decoded one block at a time into a buffer, so the cursor reads an int[] either way.
+     */
+    static final class Cursor {
+
+        private final boolean descending;
+        /**
+         * The number of symbols on the path to the node read
+         */
+        final int depth;
+        /**
+         * The current index, or the bound of the indexes of node while it is not opened
+         */
+        int value;
+        /**
+         * The node whose subtree is yet to be opened, null once it is
+         */
+        Node node;
+        /**
+         * The indexes being read: those of the node, or the current block of a packed list
+         */
+        private int[] indexes;
+        private int size;
+        private int pos;
+
+        private byte[] bytes;
+        private int length;
+        private int[] skips;
+        private int blocks;
+        private int block;
+
+        Cursor(boolean descending, int depth) {
+            this.descending = descending;
+            this.depth = depth;
+        }
+
+        /**
+         * Makes the cursor read the first <tt>size</tt> indexes of the given array
+         */
+        void reset(int[] indexes, int size) {
+            this.indexes = indexes;
+            this.size = size;
+            this.bytes = null;
+            this.blocks = 0;
+        }
+
+        /**
+         * Makes the cursor read the first <tt>blocks</tt> blocks of a packed list, which end at <tt>length</tt>
+         */
+        void reset(byte[] bytes, int length, int[] skips, int blocks) {
+            this.bytes = bytes;
+            this.length = length;
+            this.skips = skips;
+            this.blocks = blocks;
+            this.indexes = new int[PackedPostings.BLOCK];
+            this.size = 0;
+        }
+
+        /**
+         * Returns whether this cursor's index comes first in the order of the merge
+         */
+        boolean before(Cursor other) {
+            if (value == other.value) {
+                // open subtrees first, so that equal indexes come out in a row
+                return node != null && other.node == null;
+            }
+            return descending ? value > other.value : value < other.value;
+        }
+
+        /**
+         * Moves to the first index that comes after the given one.
+         *
+         * @return false if there is none
+         */
+        boolean seek(long after) {
+            if (bytes != null) {
+                if (blocks == 0) {
+                    return false;
+                }
+                // the last block whose first index may come after the given one
+                int lo = 0;
+                int hi = blocks - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi + 1) >>> 1;
+                    int base = skips[2 * mid + 1];
+                    if (descending ? base < after : base <= after) {
+                        lo = mid;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                load(lo);
+            }
+            // the number of indexes up to the given one, excluded when descending
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (descending ? indexes[mid] < after : indexes[mid] <= after) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            if (descending) {
+                pos = lo;
+                return advance();
+            }
+            pos = lo - 1;
+            return advance();
+        }
+
+        /**
+         * Moves to the next index in the order of the merge.
+         *
+         * @return false if there is none
+         */
+        boolean advance() {
+            if (descending) {
+                if (--pos < 0) {
+                    if (block == 0 || bytes == null) {
+                        return false;
+                    }
+                    load(block - 1);
+                    pos = size - 1;
+                }
+            } else if (++pos >= size) {
+                if (bytes == null || block + 1 >= blocks) {
+                    return false;
+                }
+                load(block + 1);
+                pos = 0;
+            }
+            value = indexes[pos];
+            return true;
+        }
+
+        private void load(int block) {
+            this.block = block;
+            int to = block + 1 < blocks ? skips[2 * block + 2] : length;
+            size = PackedPostings.decode(bytes, skips[2 * block], to, skips[2 * block + 1], indexes);
+        }
+    }
+}
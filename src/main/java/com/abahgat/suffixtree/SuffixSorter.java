@@ -0,0 +1,208 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+
+/**
+ * Builds suffix arrays with the SA-IS algorithm by Nong, Zhang and Chan, "Two Efficient Algorithms for
+ * Linear Time Suffix Array Construction", and the LCP array with the algorithm by Kasai et al.
+ *
+ * Texts are arrays of ints in [0, alphabetSize), ending with a 0 that appears nowhere else.
+ */
+final class SuffixSorter {
+
+    private SuffixSorter() {
+    }
+
+    /**
+     * Returns the suffix array of the given text: the starting positions of its suffixes, in lexicographic order.
+     */
+    static int[] sort(int[] text, int alphabetSize) {
+        int[] sa = new int[text.length];
+        // the sentinel alone is not an LMS suffix, and would not be induced
+        if (text.length == 1) {
+            return sa;
+        }
+        sais(text, sa, text.length, alphabetSize);
+        return sa;
+    }
+
+    /**
+     * Returns the LCP array of the given text: lcp[i] is the length of the common prefix of the suffixes
+     * in sa[i - 1] and sa[i], and lcp[0] is 0. Symbols less than <tt>minSymbol</tt> never match, so that
+     * common prefixes stop at separators.
+     */
+    static int[] lcp(int[] text, int[] sa, int minSymbol) {
+        int n = text.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; ++i) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        int h = 0;
+        for (int i = 0; i < n; ++i) {
+            if (rank[i] > 0) {
+                int j = sa[rank[i] - 1];
+                while (i + h < n && j + h < n && text[i + h] == text[j + h] && text[i + h] >= minSymbol) {
+                    h++;
+                }
+                lcp[rank[i]] = h;
+                if (h > 0) {
+                    h--;
+                }
+            } else {
+                h = 0;
+            }
+        }
+        return lcp;
+    }
+
+    private static void sais(int[] text, int[] sa, int n, int alphabetSize) {
+        // classify the suffixes: true for S-type, false for L-type
+        boolean[] types = new boolean[n];
+        types[n - 1] = true;
+        for (int i = n - 2; i >= 0; --i) {
+            types[i] = text[i] < text[i + 1] || (text[i] == text[i + 1] && types[i + 1]);
+        }
+        int[] buckets = new int[alphabetSize];
+
+        // stage 1: sort the LMS substrings, by inducing from their unsorted positions
+        bucketEnds(text, buckets, n, alphabetSize);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = 1; i < n; ++i) {
+            if (isLms(types, i)) {
+                sa[--buckets[text[i]]] = i;
+            }
+        }
+        induceL(text, sa, types, buckets, n, alphabetSize);
+        induceS(text, sa, types, buckets, n, alphabetSize);
+
+        // move the sorted LMS substrings to the beginning of sa
+        int n1 = 0;
+        for (int i = 0; i < n; ++i) {
+            if (isLms(types, sa[i])) {
+                sa[n1++] = sa[i];
+            }
+        }
+
+        // name the LMS substrings, so that equal substrings get the same name
+        Arrays.fill(sa, n1, n, -1);
+        int name = 0;
+        int prev = -1;
+        for (int i = 0; i < n1; ++i) {
+            int pos = sa[i];
+            boolean diff = false;
+            for (int d = 0; d < n; ++d) {
+                if (prev == -1 || text[pos + d] != text[prev + d] || types[pos + d] != types[prev + d]) {
+                    diff = true;
+                    break;
+                } else if (d > 0 && (isLms(types, pos + d) || isLms(types, prev + d))) {
+                    break;
+                }
+            }
+            if (diff) {
+                name++;
+                prev = pos;
+            }
+            // LMS positions are at least two apart, so pos / 2 is a distinct slot for each
+            sa[n1 + pos / 2] = name - 1;
+        }
+        int[] reduced = new int[n1];
+        for (int i = n - 1, j = n1 - 1; i >= n1; --i) {
+            if (sa[i] >= 0) {
+                reduced[j--] = sa[i];
+            }
+        }
+
+        // stage 2: sort the reduced text, recursing unless all names are different
+        int[] reducedSa = new int[n1];
+        if (name < n1) {
+            sais(reduced, reducedSa, n1, name);
+        } else {
+            for (int i = 0; i < n1; ++i) {
+                reducedSa[reduced[i]] = i;
+            }
+        }
+
+        // stage 3: induce the whole suffix array from the sorted LMS suffixes
+        for (int i = 1, j = 0; i < n; ++i) {
+            if (isLms(types, i)) {
+                reduced[j++] = i;
+            }
+        }
+        for (int i = 0; i < n1; ++i) {
+            reducedSa[i] = reduced[reducedSa[i]];
+        }
+        bucketEnds(text, buckets, n, alphabetSize);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = n1 - 1; i >= 0; --i) {
+            int j = reducedSa[i];
+            sa[--buckets[text[j]]] = j;
+        }
+        induceL(text, sa, types, buckets, n, alphabetSize);
+        induceS(text, sa, types, buckets, n, alphabetSize);
+    }
+
+    private static boolean isLms(boolean[] types, int i) {
+        return i > 0 && types[i] && !types[i - 1];
+    }
+
+    private static void induceL(int[] text, int[] sa, boolean[] types, int[] buckets, int n, int alphabetSize) {
+        bucketStarts(text, buckets, n, alphabetSize);
+        for (int i = 0; i < n; ++i) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !types[j]) {
+                sa[buckets[text[j]]++] = j;
+            }
+        }
+    }
+
+    private static void induceS(int[] text, int[] sa, boolean[] types, int[] buckets, int n, int alphabetSize) {
+        bucketEnds(text, buckets, n, alphabetSize);
+        for (int i = n - 1; i >= 0; --i) {
+            int j = sa[i] - 1;
+            if (j >= 0 && types[j]) {
+                sa[--buckets[text[j]]] = j;
+            }
+        }
+    }
+
+    private static void bucketStarts(int[] text, int[] buckets, int n, int alphabetSize) {
+        Arrays.fill(buckets, 0, alphabetSize, 0);
+        for (int i = 0; i < n; ++i) {
+            buckets[text[i]]++;
+        }
+        int sum = 0;
+        for (int c = 0; c < alphabetSize; ++c) {
+            int count = buckets[c];
+            buckets[c] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int[] text, int[] buckets, int n, int alphabetSize) {
+        Arrays.fill(buckets, 0, alphabetSize, 0);
+        for (int i = 0; i < n; ++i) {
+            buckets[text[i]]++;
+        }
+        int sum = 0;
+        for (int c = 0; c < alphabetSize; ++c) {
+            sum += buckets[c];
+            buckets[c] = sum;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An append-only store holding, one after the other, all the keys that were added to a tree.
+ *
+ * Each key becomes a <em>text</em>, identified by the order in which it was added, and every edge label
+ * is just a region of the store. Symbols are kept in fixed-size pages, so the store never needs to copy
+ * the symbols it already holds when it grows, and reading any position is a constant time operation.
+ *
+ * Positions are <tt>int</tt>s, so a store can hold up to Integer.MAX_VALUE symbols.
+ */
+abstract class SymbolStore {
+
+    /**
+     * The number of bits of a position that are used to address a symbol within its page
+     */
+    static final int PAGE_BITS = 16;
+    /**
+     * The number of symbols held by each page
+     */
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /**
+     * The mask used to get the offset of a position within its page
+     */
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * The position at which each text starts. The text with id <tt>i</tt> ends where text <tt>i + 1</tt> starts.
+     */
+    private int[] textBegins = new int[16];
+    /**
+     * The number of texts in the store
+     */
+    private int texts = 0;
+    /**
+     * The number of symbols in the store
+     */
+    private int size = 0;
+
+    /**
+     * Returns the symbol stored at the given position
+     */
+    abstract int get(int pos);
+
+    /**
+     * Makes sure that the page containing the given position is allocated.
+     */
+    abstract void ensurePage(int page);
+
+    /**
+     * Writes the symbols in [begin, end) to the given output
+     */
+    abstract void writeSymbols(DataOutput out, int begin, int end) throws IOException;
+
+    /**
+     * Reads the symbols in [begin, end) from the given input
+     */
+    abstract void readSymbols(DataInput in, int begin, int end) throws IOException;
+
+    /**
+     * Writes the content of the store to the given output.
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(texts);
+        for (int i = 0; i < texts; ++i) {
+            out.writeInt(textEnd(i) - textBegin(i));
+        }
+        writeSymbols(out, 0, size);
+    }
+
+    /**
+     * Appends the texts written by write(DataOutput) to this store.
+     */
+    void read(DataInput in) throws IOException {
+        int count = in.readInt();
+        int first = size;
+        for (int i = 0; i < count; ++i) {
+            beginText(in.readInt());
+        }
+        readSymbols(in, first, size);
+    }
+
+    /**
+     * Returns the number of symbols in the store
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns an estimate of the bytes taken by the pages of the store, and by the beginnings of its texts
+     */
+    long estimateBytes() {
+        long pages = (size + (long) PAGE_MASK) >>> PAGE_BITS;
+        return TreeStats.array(pages, TreeStats.REFERENCE)
+                + pages * TreeStats.array(PAGE_SIZE, symbolBytes())
+                + TreeStats.array(textBegins.length, 4);
+    }
+
+    /**
+     * Returns the number of bytes taken by each symbol
+     */
+    abstract int symbolBytes();
+
+    /**
+     * Returns the number of texts in the store
+     */
+    int texts() {
+        return texts;
+    }
+
+    /**
+     * Returns the position of the first symbol of the given text
+     */
+    int textBegin(int text) {
+        return textBegins[text];
+    }
+
+    /**
+     * Returns the position following the last symbol of the given text
+     */
+    int textEnd(int text) {
+        return text + 1 < texts ? textBegins[text + 1] : size;
+    }
+
+    /**
+     * Tests whether the <tt>len</tt> symbols starting at <tt>pos</tt> are equal to the ones in
+     * <tt>other</tt> starting at <tt>otherOffset</tt>.
+     */
+    boolean regionMatches(int pos, int[] other, int otherOffset, int len) {
+        // Note: otherOffset, or len might be near -1>>>1.
+        if ((otherOffset < 0) || (otherOffset > (long) other.length - len)) {
+            return false;
+        }
+        while (len-- > 0) {
+            if (get(pos++) != other[otherOffset++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests whether the <tt>len</tt> symbols starting at <tt>pos</tt> are equal to the chars in
+     * <tt>other</tt> starting at <tt>otherOffset</tt>.
+     */
+    boolean regionMatches(int pos, CharSequence other, int otherOffset, int len) {
+        // Note: otherOffset, or len might be near -1>>>1.
+        if ((otherOffset < 0) || (otherOffset > (long) other.length() - len)) {
+            return false;
+        }
+        while (len-- > 0) {
+            if (get(pos++) != other.charAt(otherOffset++)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests whether the <tt>len</tt> symbols starting at <tt>pos</tt> are equal to the ones
+     * starting at <tt>otherPos</tt>.
+     */
+    boolean regionMatches(int pos, int otherPos, int len) {
+        while (len-- > 0) {
+            if (get(pos++) != get(otherPos++)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts a new text of the given length, and returns the position its first symbol must be written at.
+     *
+     * @throws IllegalStateException if the store cannot hold that many more symbols
+     */
+    int beginText(int length) throws IllegalStateException {
+        if (length > Integer.MAX_VALUE - size) {
+            throw new IllegalStateException("The symbol store cannot hold more than " + Integer.MAX_VALUE + " symbols");
+        }
+        if (texts == textBegins.length) {
+            int[] copy = new int[textBegins.length * 2];
+            System.arraycopy(textBegins, 0, copy, 0, texts);
+            textBegins = copy;
+        }
+        int begin = size;
+        if (length > 0) {
+            for (int page = begin >>> PAGE_BITS; page <= (begin + length - 1) >>> PAGE_BITS; ++page) {
+                ensurePage(page);
+            }
+        }
+        textBegins[texts++] = begin;
+        size += length;
+        return begin;
+    }
+
+    /**
+     * Returns a new page table, big enough to hold the given page
+     */
+    static <A> A[] grow(A[] pages, int page) {
+        if (page < pages.length) {
+            return pages;
+        }
+        return Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+    }
+}
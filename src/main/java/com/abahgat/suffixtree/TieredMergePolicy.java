@@ -0,0 +1,59 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * A merge policy that merges runs of segments of about the same size, so that every symbol is merged
+ * a logarithmic number of times.
+ *
+ * It picks the oldest run of <tt>factor</tt> consecutive segments where the largest is at most <tt>factor</tt>
+ * times as large as the smallest. Segments smaller than <tt>floor</tt> count as that large, so that the
+ * small segments left by early seals are merged with the others.
+ */
+public class TieredMergePolicy implements MergePolicy {
+
+    private final int factor;
+    private final long floor;
+
+    /**
+     * @param factor the number of segments merged at once, and the ratio between the sizes of successive tiers
+     * @param floor the size below which segments are all considered alike
+     * @throws IllegalArgumentException if factor is less than 2
+     */
+    public TieredMergePolicy(int factor, long floor) {
+        if (factor < 2) {
+            throw new IllegalArgumentException("At least 2 segments must be merged at once, got " + factor);
+        }
+        this.factor = factor;
+        this.floor = Math.max(1, floor);
+    }
+
+    public int[] select(long[] sizes) {
+        for (int begin = 0; begin + factor <= sizes.length; ++begin) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int i = begin; i < begin + factor; ++i) {
+                long size = Math.max(floor, sizes[i]);
+                min = Math.min(min, size);
+                max = Math.max(max, size);
+            }
+            if (max / factor <= min) {
+                return new int[] {begin, begin + factor};
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The set of indexes that were removed from a tree, as a bitmap.
+ *
+ * Removed indexes stay in the nodes until the tree is compacted, so searches filter them out through this set.
+ * It is written by the single writer of the tree and read by any number of searches: a bit is set before the
+ * array holding it is published again, so a search that starts after remove returns never sees the index.
+ */
+final class Tombstones {
+
+    /**
+     * A set that is always empty
+     */
+    static final Tombstones NONE = new Tombstones();
+
+    /**
+     * The bitmap of the removed indexes
+     */
+    private volatile long[] words = new long[0];
+    /**
+     * The number of removed indexes
+     */
+    private volatile int size = 0;
+
+    /**
+     * Returns whether no index was ever removed
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of removed indexes
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the given index was removed
+     */
+    boolean contains(int index) {
+        long[] w = words;
+        int word = index >>> 6;
+        return word < w.length && (w[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns an estimate of the bytes taken by the bitmap
+     */
+    long estimateBytes() {
+        return TreeStats.array(words.length, 8);
+    }
+
+    /**
+     * Marks the given index, which must be non-negative, as removed.
+     *
+     * @return false if it was already removed
+     */
+    boolean add(int index) {
+        if (contains(index)) {
+            return false;
+        }
+        long[] w = words;
+        int word = index >>> 6;
+        if (word >= w.length) {
+            w = Arrays.copyOf(w, Math.max(word + 1, w.length * 2));
+        }
+        w[word] |= 1L << index;
+        // publish again even if the array is the same one, so that readers see the new bit
+        words = w;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns a visitor passing to <tt>target</tt> the indexes it visits that were not removed.
+     */
+    IndexVisitor filter(final IndexVisitor target) {
+        if (isEmpty()) {
+            return target;
+        }
+        return new IndexVisitor() {
+            public boolean visit(int index) {
+                return contains(index) || target.visit(index);
+            }
+        };
+    }
+
+    void write(DataOutput out) throws IOException {
+        long[] w = words;
+        out.writeInt(w.length);
+        for (long word : w) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Replaces the content of this set with the one written by write(DataOutput)
+     */
+    void read(DataInput in) throws IOException {
+        long[] w = new long[in.readInt()];
+        int count = 0;
+        for (int i = 0; i < w.length; ++i) {
+            w[i] = in.readLong();
+            count += Long.bitCount(w[i]);
+        }
+        words = w;
+        size = count;
+    }
+}
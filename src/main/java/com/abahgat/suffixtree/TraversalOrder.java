@@ -0,0 +1,37 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * The order in which the subtree below a match is visited when collecting a limited number of results.
+ *
+ * The order only decides <em>which</em> results are returned when there are more than requested:
+ * the traversal stops as soon as enough results have been found in either case.
+ */
+public enum TraversalOrder {
+
+    /**
+     * Visits each child subtree completely before moving to the next one.
+     * It needs no extra memory besides the call stack, and it is the default.
+     */
+    DEPTH_FIRST,
+    /**
+     * Visits nodes level by level, so results stored closer to the matching node come first.
+     * Those are the keys where the word is followed by the fewest branching points, which
+     * tends to favor the shortest matches.
+     */
+    BREADTH_FIRST
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * Receives measures of the work done by a tree, as it is done.
+ *
+ * Trees report to NONE unless told otherwise, and skip taking measures altogether in that case. Methods are
+ * called by the threads using the tree, so implementations must be thread safe and quick.
+ *
+ * @see CountingTreeMetrics
+ */
+public interface TreeMetrics {
+
+    /**
+     * Ignores all measures
+     */
+    TreeMetrics NONE = new TreeMetrics() {
+        public void put(long nanos, int nodes, int edges, int splits, int canonizeSteps) {
+        }
+
+        public void search(int depth) {
+        }
+
+        public void collect(int nodesVisited, int results) {
+        }
+
+        public void count(long nanos) {
+        }
+    };
+
+    /**
+     * Called after a key is put into the tree.
+     *
+     * @param nanos the time the put took
+     * @param nodes the number of nodes created
+     * @param edges the number of edges created, including those replacing a split edge
+     * @param splits the number of edges split
+     * @param canonizeSteps the number of edges descended while looking for the active point
+     */
+    void put(long nanos, int nodes, int edges, int splits, int canonizeSteps);
+
+    /**
+     * Called after a word is looked for in the tree.
+     *
+     * @param depth the number of edges followed
+     */
+    void search(int depth);
+
+    /**
+     * Called after the indexes below a match are collected into a collection.
+     *
+     * @param nodesVisited the number of nodes whose indexes were read
+     * @param results the number of indexes returned
+     */
+    void collect(int nodesVisited, int results);
+
+    /**
+     * Called after the number of indexes in the tree is computed.
+     *
+     * @param nanos the time it took
+     */
+    void count(long nanos);
+}
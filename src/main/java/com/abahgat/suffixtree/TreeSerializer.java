@@ -0,0 +1,373 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a built tree in a compact binary form and reads it back.
+ *
+ * The format is a header (magic, version, kind of tree, last index) followed by the symbol store, the index
+ * of each text and the removed indexes, and by the nodes in depth-first order. Each node holds its counts, the id of its suffix link, its own indexes
+ * (in the varint form of PackedPostings) and its edges as (begin, end, destination id) triples.
+ *
+ * Reading rebuilds the nodes and edges as they were, without running the construction algorithm again,
+ * so it takes time linear in the size of the file. A loaded tree accepts further puts.
+ *
+ * Trees can also be written in the mapped format, which is laid out to be searched in place by MappedSuffixTree.
+ * All its values are big-endian, and aligned to their size. It is made of:
+ * <ul>
+ * <li>a header of HEADER_SIZE bytes, whose fields are at the offsets named H_*;</li>
+ * <li>the symbols of the store, one int each;</li>
+ * <li>the nodes, NODE_SIZE bytes each, in depth-first order so that the subtree of a node is a range of ids
+ * starting from the node itself: the position of its posting list (long), the number of indexes in the list,
+ * its length in bytes, the count of distinct indexes in the subtree, the id of its first edge, its number of
+ * edges and the number of nodes in the subtree;</li>
+ * <li>the edges, EDGE_SIZE bytes each, sorted by first symbol within each node: the first symbol of the label,
+ * the label bounds in the symbols and the id of the destination node;</li>
+ * <li>the posting lists, encoded as in PackedPostings, without the removed indexes;</li>
+ * <li>a trailer of bytes left to the caller.</li>
+ * </ul>
+ */
+final class TreeSerializer {
+
+    /**
+     * The first bytes of every file: "GST" and a zero byte
+     */
+    static final int MAGIC = 0x47535400;
+    /**
+     * The version of the format, to be bumped on every incompatible change
+     */
+    static final int VERSION = 2;
+    /**
+     * The oldest version of the mapped format that can still be read. Version 2 only left the removed indexes
+     * out of the posting lists, which version 1 trees could not have, so the layout is the same.
+     *
+     * The streaming format of version 1 can't be read anymore: it does not record the index each key was put
+     * with, which remove, compaction and positional searches need, and its nodes lack the ones added since for
+     * suffixes left implicit by the construction.
+     */
+    static final int FIRST_MAPPED_VERSION = 1;
+    /**
+     * The kinds of tree, so that a file is only loaded by the class that wrote it
+     */
+    static final byte CHAR_TREE = 1;
+    static final byte INT_TREE = 2;
+    static final byte GENERIC_TREE = 3;
+
+    /**
+     * The first bytes of files in the mapped format: "GSTM"
+     */
+    static final int MAPPED_MAGIC = 0x4753544D;
+    /**
+     * Offsets of the fields in the header of the mapped format
+     */
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_KIND = 8;
+    static final int H_LAST = 12;
+    static final int H_NODES = 16;
+    static final int H_EDGES = 20;
+    static final int H_SYMBOLS = 24;
+    static final int H_TRAILER_LENGTH = 28;
+    static final int H_SYMBOLS_POS = 32;
+    static final int H_NODES_POS = 40;
+    static final int H_EDGES_POS = 48;
+    static final int H_POSTINGS_POS = 56;
+    static final int H_TRAILER_POS = 64;
+    static final int HEADER_SIZE = 72;
+    /**
+     * Offsets of the fields of a node record in the mapped format
+     */
+    static final int N_POSTINGS_POS = 0;
+    static final int N_POSTINGS_SIZE = 8;
+    static final int N_POSTINGS_LENGTH = 12;
+    static final int N_RESULT_COUNT = 16;
+    static final int N_FIRST_EDGE = 20;
+    static final int N_EDGE_COUNT = 24;
+    static final int N_SUBTREE_SIZE = 28;
+    static final int NODE_SIZE = 32;
+    /**
+     * Offsets of the fields of an edge record in the mapped format
+     */
+    static final int E_SYMBOL = 0;
+    static final int E_BEGIN = 4;
+    static final int E_END = 8;
+    static final int E_DEST = 12;
+    static final int EDGE_SIZE = 16;
+
+    private TreeSerializer() {
+    }
+
+    /**
+     * Writes the given tree to <tt>out</tt>. The tree is locked meanwhile, so that it does not change.
+     */
+    static void write(AbstractSuffixTree tree, byte kind, DataOutput out) throws IOException {
+        tree.lock();
+        try {
+            writeLocked(tree, kind, out);
+        } finally {
+            tree.unlock();
+        }
+    }
+
+    private static void writeLocked(AbstractSuffixTree tree, byte kind, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(kind);
+        out.writeInt(tree.getLast());
+        tree.store.write(out);
+        tree.writeTexts(out);
+
+        // assign ids in the same order the nodes are written, so that the root is 0
+        Map<Node, Integer> ids = new IdentityHashMap<Node, Integer>();
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            ids.put(node, ids.size());
+            Edge[] edges = node.getEdges().values();
+            for (int i = edges.length - 1; i >= 0; --i) {
+                stack.push(edges[i].getDest());
+            }
+        }
+
+        out.writeInt(ids.size());
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            out.writeInt(node.getResultCount());
+            out.writeInt(node.getLastCounted());
+            Node suffix = node.getSuffix();
+            out.writeInt(suffix == null ? -1 : ids.get(suffix));
+            node.writeData(out);
+            Edge[] edges = node.getEdges().values();
+            out.writeInt(edges.length);
+            for (Edge e : edges) {
+                out.writeInt(e.getBegin());
+                out.writeInt(e.getEnd());
+                out.writeInt(ids.get(e.getDest()));
+            }
+            for (int i = edges.length - 1; i >= 0; --i) {
+                stack.push(edges[i].getDest());
+            }
+        }
+    }
+
+    /**
+     * Reads a tree written by write(AbstractSuffixTree, byte, DataOutput) into <tt>tree</tt>,
+     * which must be empty.
+     *
+     * @throws IOException if the input is not a tree of the given kind, or was written by an unsupported version
+     */
+    static void read(AbstractSuffixTree tree, byte kind, DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a suffix tree");
+        }
+        int version = in.readInt();
+        if (version < VERSION) {
+            throw new IOException("Format version " + version + " is no longer supported, expected " + VERSION
+                    + ": the tree must be built again from its keys");
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version + ", expected " + VERSION);
+        }
+        byte actual = in.readByte();
+        if (actual != kind) {
+            throw new IOException("Unexpected kind of tree " + actual + ", expected " + kind);
+        }
+        tree.setLast(in.readInt());
+        SymbolStore store = tree.store;
+        store.read(in);
+        tree.readTexts(in);
+
+        Node[] nodes = new Node[in.readInt()];
+        nodes[0] = tree.getRoot();
+        for (int id = 0; id < nodes.length; ++id) {
+            Node node = node(nodes, id);
+            int resultCount = in.readInt();
+            int lastCounted = in.readInt();
+            node.setCount(resultCount, lastCounted);
+            int suffix = in.readInt();
+            if (suffix >= 0) {
+                node.setSuffix(node(nodes, suffix));
+            }
+            node.readData(in);
+            int edges = in.readInt();
+            for (int i = 0; i < edges; ++i) {
+                int begin = in.readInt();
+                int end = in.readInt();
+                node.addEdge(store.get(begin), new Edge(begin, end, node(nodes, in.readInt())));
+            }
+        }
+        // children come after their parent
+        for (int id = nodes.length - 1; id >= 0; --id) {
+            if (nodes[id] != null) {
+                nodes[id].restoreFirstCounted();
+            }
+        }
+    }
+
+    /**
+     * Returns the node with the given id, creating it on first use: suffix links may point forward.
+     */
+    private static Node node(Node[] nodes, int id) throws IOException {
+        if (id >= nodes.length) {
+            throw new IOException("Node " + id + " out of range, there are " + nodes.length);
+        }
+        if (nodes[id] == null) {
+            nodes[id] = new Node();
+        }
+        return nodes[id];
+    }
+
+    /**
+     * Writes the given tree to <tt>out</tt> in the mapped format, followed by <tt>trailer</tt>.
+     * The tree is locked meanwhile, so that the offsets written agree with the nodes and postings that follow.
+     */
+    static void writeMapped(AbstractSuffixTree tree, byte kind, DataOutput out, byte[] trailer) throws IOException {
+        tree.lock();
+        try {
+            writeMappedLocked(tree, kind, out, trailer);
+        } finally {
+            tree.unlock();
+        }
+    }
+
+    private static void writeMappedLocked(AbstractSuffixTree tree, byte kind, DataOutput out, byte[] trailer) throws IOException {
+        // number the nodes in depth-first order
+        List<Node> nodes = new ArrayList<Node>();
+        Map<Node, Integer> ids = new IdentityHashMap<Node, Integer>();
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(tree.getRoot());
+        int edgeCount = 0;
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            ids.put(node, nodes.size());
+            nodes.add(node);
+            Edge[] edges = node.getEdges().values();
+            edgeCount += edges.length;
+            for (int i = edges.length - 1; i >= 0; --i) {
+                stack.push(edges[i].getDest());
+            }
+        }
+
+        // children have greater ids than their parent, so subtree sizes are complete when summed up backwards
+        int[] subtreeSizes = new int[nodes.size()];
+        long[] postingsPositions = new long[nodes.size()];
+        PackedPostings[] postings = new PackedPostings[nodes.size()];
+        long postingsLength = 0;
+        for (int id = nodes.size() - 1; id >= 0; --id) {
+            subtreeSizes[id]++;
+            for (Edge e : nodes.get(id).getEdges().values()) {
+                subtreeSizes[id] += subtreeSizes[ids.get(e.getDest())];
+            }
+        }
+        SymbolStore store = tree.store;
+        long symbolsPos = HEADER_SIZE;
+        long nodesPos = align(symbolsPos + 4L * store.size());
+        long edgesPos = nodesPos + (long) NODE_SIZE * nodes.size();
+        long postingsPos = edgesPos + (long) EDGE_SIZE * edgeCount;
+        for (int id = 0; id < nodes.size(); ++id) {
+            postingsPositions[id] = postingsPos + postingsLength;
+            postings[id] = postings(nodes.get(id), tree.removed);
+            postingsLength += postings[id].length();
+        }
+        long trailerPos = postingsPos + postingsLength;
+
+        out.writeInt(MAPPED_MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(kind);
+        out.writeInt(tree.getLast());
+        out.writeInt(nodes.size());
+        out.writeInt(edgeCount);
+        out.writeInt(store.size());
+        out.writeInt(trailer.length);
+        out.writeLong(symbolsPos);
+        out.writeLong(nodesPos);
+        out.writeLong(edgesPos);
+        out.writeLong(postingsPos);
+        out.writeLong(trailerPos);
+
+        for (int pos = 0; pos < store.size(); ++pos) {
+            out.writeInt(store.get(pos));
+        }
+        for (long pos = symbolsPos + 4L * store.size(); pos < nodesPos; ++pos) {
+            out.writeByte(0);
+        }
+
+        int firstEdge = 0;
+        for (int id = 0; id < nodes.size(); ++id) {
+            Node node = nodes.get(id);
+            int edges = node.getEdges().values().length;
+            out.writeLong(postingsPositions[id]);
+            out.writeInt(postings[id].size());
+            out.writeInt(postings[id].length());
+            out.writeInt(node.getResultCount());
+            out.writeInt(firstEdge);
+            out.writeInt(edges);
+            out.writeInt(subtreeSizes[id]);
+            firstEdge += edges;
+        }
+        for (Node node : nodes) {
+            for (Edge e : node.getEdges().values()) {
+                out.writeInt(store.get(e.getBegin()));
+                out.writeInt(e.getBegin());
+                out.writeInt(e.getEnd());
+                out.writeInt(ids.get(e.getDest()));
+            }
+        }
+        for (PackedPostings p : postings) {
+            p.writeBytes(out);
+        }
+        out.write(trailer);
+    }
+
+    /**
+     * Returns the indexes stored on the given node in their packed form, leaving out the removed ones.
+     */
+    private static PackedPostings postings(Node node, final Tombstones removed) {
+        PackedPostings packed = node.packData();
+        if (removed.isEmpty()) {
+            return packed;
+        }
+        final PackedPostings ret = new PackedPostings(packed.length());
+        packed.visit(new IndexVisitor() {
+            public boolean visit(int index) {
+                if (!removed.contains(index)) {
+                    ret.add(index);
+                }
+                return true;
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Rounds the given position up to a multiple of 8
+     */
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+}
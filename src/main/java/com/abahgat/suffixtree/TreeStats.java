@@ -0,0 +1,344 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A report on the structure of a tree and on the memory it takes, computed by walking it once.
+ *
+ * Sizes are estimates for a 64-bit JVM with compressed references: objects have a 12 byte header, arrays a
+ * 16 byte one, references take 4 bytes and objects are aligned to 8 bytes. Objects shared by all nodes,
+ * like the empty edge bag and posting list, are not counted.
+ *
+ * Histograms with power of two buckets count in bucket 0 the values equal to 0, and in bucket k > 0 the values
+ * from 2^(k-1) to 2^k - 1.
+ */
+public class TreeStats {
+
+    static final int REFERENCE = 4;
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    /**
+     * A Node: data, packed, edges, suffix and parent, lastIdx, resultCount, lastCounted and firstCounted
+     */
+    private static final long NODE_BYTES = object(5 * REFERENCE + 4 * 4);
+    /**
+     * An Edge: begin, end and dest
+     */
+    private static final long EDGE_BYTES = object(2 * 4 + REFERENCE);
+
+    private long nodes;
+    private long edges;
+    private long leaves;
+    private long[] fanOut = new long[8];
+    private long postings;
+    private long packedLists;
+    private final long[] postingLengths = new long[33];
+    private long labelSymbols;
+    private long storeSymbols;
+    private long keys;
+    private final long[] suffixChains = new long[33];
+    private int maxSuffixChain;
+    private long missingSuffixLinks;
+    private long nodeBytes;
+    private long edgeBytes;
+    private long edgeBagBytes;
+    private long postingBytes;
+    private long storeBytes;
+
+    private TreeStats() {
+    }
+
+    /**
+     * Returns the bytes taken by an object whose fields take the given number of bytes
+     */
+    static long object(long fields) {
+        return align(OBJECT_HEADER + fields);
+    }
+
+    /**
+     * Returns the bytes taken by an array of <tt>length</tt> elements of the given size
+     */
+    static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static int bucket(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Walks the given tree. Puts are held off meanwhile, searches are not.
+     */
+    static TreeStats compute(AbstractSuffixTree tree) {
+        tree.lock();
+        try {
+            TreeStats ret = new TreeStats();
+            ret.walk(tree.getRoot());
+            ret.storeSymbols = tree.store.size();
+            ret.keys = tree.store.texts();
+            ret.storeBytes = tree.store.estimateBytes() + tree.estimateTextBytes();
+            return ret;
+        } finally {
+            tree.unlock();
+        }
+    }
+
+    private void walk(Node root) {
+        List<Node> all = new ArrayList<Node>();
+        ArrayDeque<Node> stack = new ArrayDeque<Node>();
+        stack.push(root);
+        Node node;
+        while ((node = stack.poll()) != null) {
+            all.add(node);
+            nodes++;
+            nodeBytes += NODE_BYTES;
+
+            EdgeBag bag = node.getEdges();
+            Edge[] children = bag.values();
+            if (children.length >= fanOut.length) {
+                fanOut = Arrays.copyOf(fanOut, Math.max(children.length + 1, 2 * fanOut.length));
+            }
+            fanOut[children.length]++;
+            if (children.length == 0) {
+                leaves++;
+            }
+            edgeBagBytes += bag.estimateBytes();
+            for (Edge e : children) {
+                edges++;
+                edgeBytes += EDGE_BYTES;
+                labelSymbols += e.length();
+                stack.push(e.getDest());
+            }
+
+            int size = node.getDataSize();
+            postings += size;
+            postingLengths[bucket(size)]++;
+            if (node.isPacked()) {
+                packedLists++;
+            }
+            postingBytes += node.estimateDataBytes();
+        }
+        countSuffixChains(root, all);
+    }
+
+    /**
+     * Computes the number of suffix links followed from each node before reaching the root,
+     * or a node without a link
+     */
+    private void countSuffixChains(Node root, List<Node> all) {
+        Map<Node, Integer> chains = new IdentityHashMap<Node, Integer>();
+        chains.put(root, 0);
+        List<Node> path = new ArrayList<Node>();
+        for (Node node : all) {
+            if (node != root && node.getSuffix() == null) {
+                missingSuffixLinks++;
+            }
+            Integer known;
+            Node n = node;
+            while ((known = chains.get(n)) == null && n.getSuffix() != null && path.size() < all.size()) {
+                path.add(n);
+                n = n.getSuffix();
+            }
+            int chain = known == null ? 0 : known;
+            if (known == null) {
+                chains.put(n, 0);
+            }
+            for (int i = path.size() - 1; i >= 0; --i) {
+                chains.put(path.get(i), ++chain);
+            }
+            path.clear();
+            chain = chains.get(node);
+            suffixChains[bucket(chain)]++;
+            maxSuffixChain = Math.max(maxSuffixChain, chain);
+        }
+    }
+
+    /**
+     * Returns the number of nodes, counting the root
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of edges
+     */
+    public long getEdges() {
+        return edges;
+    }
+
+    /**
+     * Returns the number of nodes without children
+     */
+    public long getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * Returns the number of nodes by number of children: element i counts the nodes with i edges
+     */
+    public long[] getFanOutHistogram() {
+        int length = fanOut.length;
+        while (length > 1 && fanOut[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(fanOut, length);
+    }
+
+    /**
+     * Returns the number of indexes stored on all the nodes. An index is stored on every node where a suffix
+     * of its key ends, so this is usually much larger than the number of keys.
+     */
+    public long getPostings() {
+        return postings;
+    }
+
+    /**
+     * Returns the number of nodes whose indexes are stored in packed form
+     */
+    public long getPackedLists() {
+        return packedLists;
+    }
+
+    /**
+     * Returns the number of nodes by number of indexes stored on them, in power of two buckets
+     */
+    public long[] getPostingLengthHistogram() {
+        return trim(postingLengths);
+    }
+
+    /**
+     * Returns the total length of the edge labels, that is the number of symbols the tree would hold
+     * if labels were stored on the edges
+     */
+    public long getLabelSymbols() {
+        return labelSymbols;
+    }
+
+    /**
+     * Returns the number of symbols actually stored, once per key
+     */
+    public long getStoreSymbols() {
+        return storeSymbols;
+    }
+
+    /**
+     * Returns the number of keys in the store, including removed ones yet to be compacted away
+     */
+    public long getKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns the number of nodes by the number of suffix links followed from them to get to the root,
+     * in power of two buckets
+     */
+    public long[] getSuffixChainHistogram() {
+        return trim(suffixChains);
+    }
+
+    /**
+     * Returns the longest chain of suffix links
+     */
+    public int getMaxSuffixChain() {
+        return maxSuffixChain;
+    }
+
+    /**
+     * Returns the number of nodes other than the root without a suffix link
+     */
+    public long getMissingSuffixLinks() {
+        return missingSuffixLinks;
+    }
+
+    /**
+     * Returns the estimated bytes taken by the nodes themselves
+     */
+    public long getNodeBytes() {
+        return nodeBytes;
+    }
+
+    /**
+     * Returns the estimated bytes taken by the edges
+     */
+    public long getEdgeBytes() {
+        return edgeBytes;
+    }
+
+    /**
+     * Returns the estimated bytes taken by the edge bags of the nodes, and their arrays
+     */
+    public long getEdgeBagBytes() {
+        return edgeBagBytes;
+    }
+
+    /**
+     * Returns the estimated bytes taken by the indexes stored on the nodes
+     */
+    public long getPostingBytes() {
+        return postingBytes;
+    }
+
+    /**
+     * Returns the estimated bytes taken by the symbols of the keys and the bookkeeping of each key
+     */
+    public long getStoreBytes() {
+        return storeBytes;
+    }
+
+    /**
+     * Returns the estimated bytes retained by the tree
+     */
+    public long getTotalBytes() {
+        return nodeBytes + edgeBytes + edgeBagBytes + postingBytes + storeBytes;
+    }
+
+    private static long[] trim(long[] histogram) {
+        int length = histogram.length;
+        while (length > 1 && histogram[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(histogram, length);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder();
+        ret.append("nodes: ").append(nodes).append(" (").append(leaves).append(" leaves), edges: ").append(edges).append('\n');
+        ret.append("fan-out: ").append(Arrays.toString(getFanOutHistogram())).append('\n');
+        ret.append("postings: ").append(postings).append(" in ").append(packedLists).append(" packed lists, lengths by power of two: ")
+                .append(Arrays.toString(getPostingLengthHistogram())).append('\n');
+        ret.append("symbols: ").append(labelSymbols).append(" in labels, ").append(storeSymbols).append(" stored for ")
+                .append(keys).append(" keys\n");
+        ret.append("suffix chains by power of two: ").append(Arrays.toString(getSuffixChainHistogram())).append(", longest ")
+                .append(maxSuffixChain).append(", ").append(missingSuffixLinks).append(" nodes without a link\n");
+        ret.append("bytes: ").append(getTotalBytes()).append(" = nodes ").append(nodeBytes).append(" + edges ").append(edgeBytes)
+                .append(" + edge bags ").append(edgeBagBytes).append(" + postings ").append(postingBytes)
+                .append(" + store ").append(storeBytes);
+        return ret.toString();
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+/**
+ * A static sequence of non-negative ints that counts the values less than a given bound in any range
+ * of positions, in time proportional to the number of bits of the largest value.
+ *
+ * It is the wavelet matrix of Claude, Navarro and Ordonez: one bit vector per bit of the values, from the
+ * most significant one, where each level holds the values stably sorted by the bits of the previous levels.
+ * It takes a little more than one bit per value and level.
+ */
+final class WaveletMatrix {
+
+    /**
+     * The bits of the values at each level, from the most significant one
+     */
+    private final RankBits[] levels;
+    /**
+     * The number of zeros in each level
+     */
+    private final int[] zeros;
+
+    WaveletMatrix(int[] values) {
+        int max = 0;
+        for (int v : values) {
+            if (v < 0) {
+                throw new IllegalArgumentException("Negative value " + v);
+            }
+            max = Math.max(max, v);
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+        levels = new RankBits[bits];
+        zeros = new int[bits];
+
+        int n = values.length;
+        int[] current = values.clone();
+        int[] next = new int[n];
+        for (int level = 0; level < bits; ++level) {
+            int shift = bits - 1 - level;
+            RankBits b = new RankBits(n);
+            int z = 0;
+            for (int i = 0; i < n; ++i) {
+                if ((current[i] >>> shift & 1) == 0) {
+                    z++;
+                } else {
+                    b.set(i);
+                }
+            }
+            b.buildRanks();
+            // stable partition, zeros first
+            int zi = 0;
+            int oi = z;
+            for (int i = 0; i < n; ++i) {
+                if ((current[i] >>> shift & 1) == 0) {
+                    next[zi++] = current[i];
+                } else {
+                    next[oi++] = current[i];
+                }
+            }
+            levels[level] = b;
+            zeros[level] = z;
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Returns the number of positions in [begin, end) holding a value less than <tt>bound</tt>
+     */
+    int countLess(int begin, int end, int bound) {
+        if (bound <= 0 || begin >= end) {
+            return 0;
+        }
+        int bits = levels.length;
+        if (bits < 31 && bound >= 1 << bits) {
+            return end - begin;
+        }
+        int ret = 0;
+        for (int level = 0; level < bits; ++level) {
+            RankBits b = levels[level];
+            int ones0 = b.rank1(begin);
+            int ones1 = b.rank1(end);
+            if ((bound >>> (bits - 1 - level) & 1) == 1) {
+                // the values with a 0 here are all less than bound, follow the ones
+                ret += (end - ones1) - (begin - ones0);
+                begin = zeros[level] + ones0;
+                end = zeros[level] + ones1;
+            } else {
+                begin -= ones0;
+                end -= ones1;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * A bit vector that counts the ones before any position, keeping the count at the start of every 8 words.
+     */
+    private static final class RankBits {
+
+        private final long[] words;
+        private final int[] blockRanks;
+
+        RankBits(int size) {
+            words = new long[(size >>> 6) + 1];
+            blockRanks = new int[(words.length >>> 3) + 1];
+        }
+
+        void set(int i) {
+            words[i >>> 6] |= 1L << i;
+        }
+
+        void buildRanks() {
+            int rank = 0;
+            for (int w = 0; w < words.length; ++w) {
+                if ((w & 7) == 0) {
+                    blockRanks[w >>> 3] = rank;
+                }
+                rank += Long.bitCount(words[w]);
+            }
+        }
+
+        /**
+         * Returns the number of ones in [0, i)
+         */
+        int rank1(int i) {
+            int word = i >>> 6;
+            int rank = blockRanks[word >>> 3];
+            for (int w = word & ~7; w < word; ++w) {
+                rank += Long.bitCount(words[w]);
+            }
+            return rank + Long.bitCount(words[word] & ((1L << i) - 1));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ApproximateSearchTest extends TestCase {
+
+    private List<String> keys;
+    private CharSuffixTree tree;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(41);
+        keys = new ArrayList<String>();
+        int[] indexes = new int[500];
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(15);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(6)));
+            }
+            keys.add(key.toString());
+            indexes[i] = i;
+        }
+        tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+    }
+
+    public void testSameAsBruteForce() {
+        for (String word : new String[] {"a", "abc", "fedcba", "abcdefab", "zzz", "aaaa"}) {
+            for (int maxEdits = 0; maxEdits <= 3; ++maxEdits) {
+                Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+                for (int i = 0; i < keys.size(); ++i) {
+                    int distance = distance(word, keys.get(i));
+                    if (distance <= maxEdits) {
+                        expected.put(i, distance);
+                    }
+                }
+                ApproximateMatches found = tree.searchApproximate(word, maxEdits);
+                assertEquals(word + " " + maxEdits, expected, toMap(found));
+                for (int i = 1; i < found.size(); ++i) {
+                    assertTrue(found.getDistance(i - 1) <= found.getDistance(i));
+                }
+            }
+        }
+    }
+
+    public void testExactMatchesSearch() {
+        ApproximateMatches found = tree.searchApproximate("abc", 0);
+        assertEquals(tree.search("abc").size(), found.size());
+    }
+
+    public void testLimitKeepsClosest() {
+        Map<Integer, Integer> all = toMap(tree.searchApproximate("abcdef", 2));
+        ApproximateMatches some = tree.searchApproximate("abcdef", 2, 5);
+        assertEquals(5, some.size());
+        int last = some.getDistance(some.size() - 1);
+        for (int i = 0; i < some.size(); ++i) {
+            assertEquals(all.get(some.getIndex(i)), Integer.valueOf(some.getDistance(i)));
+        }
+        for (Map.Entry<Integer, Integer> e : all.entrySet()) {
+            if (e.getValue() < last) {
+                assertTrue(toMap(some).containsKey(e.getKey()));
+            }
+        }
+    }
+
+    public void testLeavesOutRemovedIndexes() {
+        tree.setCompactionThreshold(2);
+        Map<Integer, Integer> before = toMap(tree.searchApproximate("abc", 1));
+        int removed = before.keySet().iterator().next();
+        tree.remove(removed);
+        before.remove(removed);
+        assertEquals(before, toMap(tree.searchApproximate("abc", 1)));
+    }
+
+    public void testGenericAndIntTrees() {
+        GeneralizedSuffixTree<Character> generic = new GeneralizedSuffixTree<Character>();
+        generic.put(Arrays.asList('b', 'a', 'n', 'a', 'n', 'a'), 0);
+        generic.put(Arrays.asList('c', 'a', 'n'), 1);
+        ApproximateMatches found = generic.searchApproximate(Arrays.asList('c', 'x', 'n'), 1);
+        assertEquals(1, found.size());
+        assertEquals(1, found.getIndex(0));
+        assertEquals(1, found.getDistance(0));
+
+        IntSuffixTree ints = new IntSuffixTree();
+        ints.put(new int[] {1, 2, 3, 4}, 0);
+        assertEquals(1, ints.searchApproximate(new int[] {1, 3, 4}, 1).size());
+        assertEquals(0, ints.searchApproximate(new int[] {1, 3, 5}, 1).size());
+    }
+
+    private static Map<Integer, Integer> toMap(ApproximateMatches matches) {
+        Map<Integer, Integer> ret = new HashMap<Integer, Integer>();
+        for (int i = 0; i < matches.size(); ++i) {
+            assertNull(ret.put(matches.getIndex(i), matches.getDistance(i)));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the fewest edits turning the word into a non-empty part of the key
+     */
+    private static int distance(String word, String key) {
+        if (key.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        int[] column = new int[word.length() + 1];
+        for (int j = 0; j <= word.length(); ++j) {
+            column[j] = j;
+        }
+        int ret = word.length();
+        for (int i = 0; i < key.length(); ++i) {
+            int[] next = new int[word.length() + 1];
+            for (int j = 1; j <= word.length(); ++j) {
+                int cost = column[j - 1] + (word.charAt(j - 1) == key.charAt(i) ? 0 : 1);
+                next[j] = Math.min(cost, Math.min(column[j], next[j - 1]) + 1);
+            }
+            column = next;
+            ret = Math.min(ret, column[word.length()]);
+        }
+        return ret;
+    }
+}
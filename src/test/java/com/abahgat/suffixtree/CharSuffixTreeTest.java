@@ -0,0 +1,90 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collection;
+
+import junit.framework.TestCase;
+import static com.abahgat.suffixtree.Utils.getSubstrings;
+
+public class CharSuffixTreeTest extends TestCase {
+
+    public void testBasicTreeGeneration() {
+        CharSuffixTree in = new CharSuffixTree();
+
+        String word = "cacao";
+        in.put(word, 0);
+
+        /* test that every substring is contained within the tree */
+        for (String s : getSubstrings(word)) {
+            assertTrue(in.search(s).contains(0));
+        }
+        assertNull(in.search("caco"));
+        assertNull(in.search("cacaoo"));
+        assertNull(in.search("ccacao"));
+    }
+
+    public void testNonAsciiAddition() {
+        CharSuffixTree in = new CharSuffixTree();
+        String[] words = new String[] {"\u017c\u00f3\u0142\u0107", "g\u0119\u015bl\u0105", "ja\u017a\u0144", "\u65e5\u672c\u8a9e\u30c6\u30ad\u30b9\u30c8", "\u30c6\u30ad\u30b9\u30c8"};
+        for (int i = 0; i < words.length; ++i) {
+            in.put(words[i], i);
+
+            for (String s : getSubstrings(words[i])) {
+                Collection<Integer> result = in.search(s);
+                assertNotNull("result null for string " + s + " after adding " + words[i], result);
+                assertTrue("substring " + s + " not found after adding " + words[i], result.contains(i));
+            }
+        }
+        assertEquals(2, in.search("\u30c6\u30ad").size());
+        assertNull(in.search("\u017a\u017c"));
+    }
+
+    public void testSearchIntoBuffer() {
+        CharSuffixTree in = new CharSuffixTree();
+        String[] words = new String[] {"banana", "bano", "ba", "cabana"};
+        for (int i = 0; i < words.length; ++i) {
+            in.put(words[i], i);
+        }
+
+        ResultBuffer results = new ResultBuffer();
+        for (String s : getSubstrings("cabana")) {
+            Collection<Integer> expected = in.search(s);
+            assertEquals(expected.size(), in.search(s, results));
+            for (int i = 0; i < results.size(); ++i) {
+                assertTrue(expected.contains(results.get(i)));
+            }
+        }
+        assertEquals(0, in.search("xyz", results));
+
+        ResultBuffer limited = new ResultBuffer(2);
+        assertEquals(2, in.search(new StringBuilder("a"), limited));
+    }
+
+    public void testSearchWithCount() {
+        CharSuffixTree in = new CharSuffixTree();
+        String[] words = new String[] {"banana", "bano", "ba", "cabana"};
+        for (int i = 0; i < words.length; ++i) {
+            in.put(words[i], i);
+        }
+        in.computeCount();
+
+        GeneralizedSuffixTree.ResultInfo info = in.searchWithCount("ba", 2);
+        assertEquals(4, info.totalResults);
+        assertEquals(2, info.results.size());
+        assertEquals(0, in.searchWithCount("xyz", 2).totalResults);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class ConcurrentSearchTest extends TestCase {
+
+    private static final int KEYS = 20000;
+    private static final int READERS = 4;
+
+    public void testSearchWhilePutting() throws InterruptedException {
+        final String[] keys = randomKeys(KEYS);
+        final CharSuffixTree tree = new CharSuffixTree();
+        // the number of keys whose put has completed
+        final AtomicInteger done = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int r = 0; r < READERS; ++r) {
+            final Random random = new Random(r);
+            readers.add(new Thread() {
+                public void run() {
+                    ResultBuffer buffer = new ResultBuffer();
+                    try {
+                        while (done.get() < KEYS && failure.get() == null) {
+                            int completed = done.get();
+                            if (completed == 0) {
+                                continue;
+                            }
+                            int index = random.nextInt(completed);
+                            String key = keys[index];
+                            int begin = random.nextInt(key.length());
+                            String word = key.substring(begin, begin + 1 + random.nextInt(key.length() - begin));
+
+                            Collection<Integer> result = tree.search(word);
+                            assertNotNull("no result for " + word + " of key " + index, result);
+                            assertTrue(word + " not found in key " + index, result.contains(index));
+                            assertTrue(tree.searchWithCount(word, 1).totalResults >= 1);
+                            tree.search(word, buffer);
+                            boolean found = false;
+                            for (int i = 0; i < buffer.size(); ++i) {
+                                found |= buffer.get(i) == index;
+                            }
+                            assertTrue(word + " not found into buffer", found);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+        }
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (int i = 0; i < KEYS; ++i) {
+            tree.put(keys[i], i);
+            done.set(i + 1);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private static String[] randomKeys(int count) {
+        Random random = new Random(count);
+        String[] ret = new String[count];
+        for (int i = 0; i < count; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = 3 + random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(6)));
+            }
+            ret[i] = key.toString();
+        }
+        return ret;
+    }
+}
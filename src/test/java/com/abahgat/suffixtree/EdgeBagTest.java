@@ -15,9 +15,6 @@
  */
 package com.abahgat.suffixtree;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -48,25 +45,20 @@ public class EdgeBagTest {
 
 
 
-    private static List<Character> mL(String s) {
-        ArrayList<Character> characterArrayList = new ArrayList<Character>();
-        for (char ch : s.toCharArray())
-        {
-            characterArrayList.add(ch);
-        }
-        return characterArrayList;
+    private static Edge mE(String s) {
+        return new Edge(0, s.length(), null);
     }
      @Test
      public void testPut() {
-        EdgeBag<Character> bag = new EdgeBag<Character>();
-        Edge<Character> e1 = new Edge<Character>(mL("asd"), null);
-        Edge<Character> e2 = new Edge<Character>(mL("errimo"), null);
-        Edge<Character> e3 = new Edge<Character>(mL("foo"), null);
-        Edge<Character> e4 = new Edge<Character>(mL("bar"), null);
-        bag.put('a', e1);
-        bag.put('e', e2);
-        bag.put('f', e3);
-        bag.put('b', e4);
+        EdgeBag bag = EdgeBag.EMPTY;
+        Edge e1 = mE("asd");
+        Edge e2 = mE("errimo");
+        Edge e3 = mE("foo");
+        Edge e4 = mE("bar");
+        bag = bag.with('a', e1);
+        bag = bag.with('e', e2);
+        bag = bag.with('f', e3);
+        bag = bag.with('b', e4);
         assertTrue("Bag contains " + bag.values().length + " elements", bag.values().length == 4);
         assertTrue(bag.get('a').equals(e1));
         assertTrue(bag.get('e').equals(e2));
@@ -74,6 +66,51 @@ public class EdgeBagTest {
         assertTrue(bag.get('b').equals(e4));
      }
 
+     @Test
+     public void testManyEdges() {
+         int[][] symbolSets = new int[][] {
+             shuffled(0, 1, 300),                              // dense, as the chars of an alphabet
+             shuffled(-150, 1, 300),                           // dense, across zero
+             shuffled(0, 1000, 300),                           // sparse, as token ids
+             shuffled(Integer.MAX_VALUE - 299, 1, 300)};       // dense, at the end of the int range
+         for (int[] symbols : symbolSets) {
+             EdgeBag bag = EdgeBag.EMPTY;
+             Edge[] edges = new Edge[symbols.length];
+             for (int i = 0; i < symbols.length; ++i) {
+                 edges[i] = mE("x");
+                 bag = bag.with(symbols[i], edges[i]);
+                 for (int j = 0; j <= i; ++j) {
+                     assertSame(edges[j], bag.get(symbols[j]));
+                 }
+             }
+             assertEquals(symbols.length, bag.values().length);
+             assertNull(bag.get(Integer.MIN_VALUE));
+             assertNull(bag.get(Integer.MIN_VALUE + 1));
+             assertNull(bag.get(symbols.length * 1000));
+
+             // replace an edge
+             Edge replacement = mE("y");
+             bag = bag.with(symbols[7], replacement);
+             assertSame(replacement, bag.get(symbols[7]));
+             assertEquals(symbols.length, bag.values().length);
+         }
+     }
+
+     private static int[] shuffled(int first, int step, int count) {
+         int[] ret = new int[count];
+         for (int i = 0; i < count; ++i) {
+             ret[i] = first + i * step;
+         }
+         java.util.Random random = new java.util.Random(count);
+         for (int i = count - 1; i > 0; --i) {
+             int j = random.nextInt(i + 1);
+             int swap = ret[i];
+             ret[i] = ret[j];
+             ret[j] = swap;
+         }
+         return ret;
+     }
+
      @Test
      public void testCast() {
          for (char c = '0'; c <= '9'; ++c) {
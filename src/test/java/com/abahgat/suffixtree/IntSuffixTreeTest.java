@@ -0,0 +1,59 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Collection;
+
+import junit.framework.TestCase;
+
+public class IntSuffixTreeTest extends TestCase {
+
+    public void testTokenAddition() {
+        IntSuffixTree in = new IntSuffixTree();
+        int[][] keys = new int[][] {
+            {1000, 2000, 1000, 2000, 3000},
+            {-5, 1000, 2000},
+            {Integer.MAX_VALUE, Integer.MIN_VALUE, 0}};
+        for (int i = 0; i < keys.length; ++i) {
+            in.put(keys[i], i);
+        }
+
+        for (int i = 0; i < keys.length; ++i) {
+            for (int begin = 0; begin < keys[i].length; ++begin) {
+                for (int end = begin + 1; end <= keys[i].length; ++end) {
+                    int[] word = new int[end - begin];
+                    System.arraycopy(keys[i], begin, word, 0, word.length);
+                    Collection<Integer> result = in.search(word);
+                    assertNotNull(result);
+                    assertTrue(result.contains(i));
+                }
+            }
+        }
+
+        assertEquals(2, in.search(new int[] {1000, 2000}).size());
+        assertNull(in.search(new int[] {2000, 2000}));
+    }
+
+    public void testKeyIsCopied() {
+        IntSuffixTree in = new IntSuffixTree();
+        int[] key = new int[] {1, 2, 3};
+        in.put(key, 0);
+        key[1] = 7;
+
+        assertTrue(in.search(new int[] {1, 2, 3}).contains(0));
+        assertNull(in.search(new int[] {7}));
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class MappedSuffixTreeTest extends TestCase {
+
+    private File file;
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("suffixtree", ".gstm");
+        file.deleteOnExit();
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testSameResultsAsHeapTree() throws Exception {
+        Random random = new Random(7);
+        GeneralizedSuffixTree<Character> in = new GeneralizedSuffixTree<Character>();
+        List<List<Character>> keys = new ArrayList<List<Character>>();
+        for (int i = 0; i < 300; ++i) {
+            List<Character> key = new ArrayList<Character>();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                key.add((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key);
+            in.put(key, i);
+        }
+        write(in);
+        MappedSuffixTree<Character> mapped = MappedSuffixTree.open(file);
+
+        assertEquals(in.computeCount(), mapped.computeCount());
+        ResultBuffer buffer = new ResultBuffer();
+        for (List<Character> key : keys) {
+            for (int begin = 0; begin < key.size(); ++begin) {
+                for (int end = begin + 1; end <= key.size(); ++end) {
+                    List<Character> word = key.subList(begin, end);
+                    assertEquals(in.search(word), mapped.search(word));
+                    assertEquals(in.searchWithCount(word, 5).totalResults, mapped.searchWithCount(word, 5).totalResults);
+                    assertEquals(Math.min(5, in.search(word).size()), mapped.searchWithCount(word, 5).results.size());
+                    assertEquals(Math.min(3, in.search(word).size()), mapped.search(word, 3).size());
+
+                    assertEquals(in.search(word).size(), mapped.search(word, buffer));
+                    Collection<Integer> found = new HashSet<Integer>();
+                    for (int i = 0; i < buffer.size(); ++i) {
+                        found.add(buffer.get(i));
+                    }
+                    assertEquals(in.search(word), found);
+                }
+            }
+        }
+        assertNull(mapped.search(Arrays.asList('e')));
+        assertNull(mapped.search(Arrays.asList('a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a')));
+        assertEquals(0, mapped.searchWithCount(Arrays.asList('e'), 5).totalResults);
+    }
+
+    public void testTokens() throws Exception {
+        GeneralizedSuffixTree<String> in = new GeneralizedSuffixTree<String>();
+        in.put(Arrays.asList("to", "be", "or", "not", "to", "be"), 0);
+        in.put(Arrays.asList("not", "to", "say"), 1);
+        write(in);
+        MappedSuffixTree<String> mapped = MappedSuffixTree.open(file);
+
+        assertEquals(2, mapped.search(Arrays.asList("not", "to")).size());
+        assertEquals(1, mapped.search(Arrays.asList("to", "say")).size());
+        assertNull(mapped.search(Arrays.asList("to", "say", "be")));
+    }
+
+    public void testLeavesOutRemovedIndexes() throws Exception {
+        GeneralizedSuffixTree<String> in = new GeneralizedSuffixTree<String>();
+        in.setCompactionThreshold(2);
+        in.put(Arrays.asList("to", "be", "or", "not", "to", "be"), 0);
+        in.put(Arrays.asList("not", "to", "say"), 1);
+        in.put(Arrays.asList("let", "it", "be"), 2);
+        in.remove(1);
+        write(in);
+        MappedSuffixTree<String> mapped = MappedSuffixTree.open(file);
+
+        assertEquals(2, mapped.computeCount());
+        assertEquals(new HashSet<Integer>(Arrays.asList(0)), mapped.search(Arrays.asList("not", "to")));
+        assertEquals(1, mapped.searchWithCount(Arrays.asList("not", "to"), 5).totalResults);
+        assertNull(mapped.search(Arrays.asList("to", "say")));
+        assertEquals(2, mapped.search(Arrays.asList("be")).size());
+    }
+
+    public void testReadsVersionOne() throws Exception {
+        GeneralizedSuffixTree<String> in = new GeneralizedSuffixTree<String>();
+        in.put(Arrays.asList("to", "be", "or", "not", "to", "be"), 0);
+        in.put(Arrays.asList("not", "to", "say"), 1);
+        write(in);
+        // the layout of version 1 is the same
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        try {
+            raw.seek(TreeSerializer.H_VERSION);
+            raw.writeInt(1);
+        } finally {
+            raw.close();
+        }
+        MappedSuffixTree<String> mapped = MappedSuffixTree.open(file);
+        assertEquals(2, mapped.search(Arrays.asList("not", "to")).size());
+    }
+
+    public void testRejectsOtherFiles() throws Exception {
+        CharSuffixTree in = new CharSuffixTree();
+        in.put("cacao", 0);
+        OutputStream out = new FileOutputStream(file);
+        in.write(out);
+        out.close();
+        try {
+            MappedSuffixTree.open(file);
+            fail("a file in the streamed format must not be mapped");
+        } catch (IOException expected) {
+        }
+    }
+
+    private void write(GeneralizedSuffixTree<?> tree) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            tree.writeMapped(out);
+        } finally {
+            out.close();
+        }
+    }
+}
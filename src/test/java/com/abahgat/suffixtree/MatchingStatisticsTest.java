@@ -0,0 +1,181 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class MatchingStatisticsTest extends TestCase {
+
+    private List<String> keys;
+    private int[] indexes;
+    private List<String> texts;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(31);
+        keys = new ArrayList<String>();
+        indexes = new int[400];
+        for (int i = 0; i < indexes.length; ++i) {
+            keys.add(randomWord(random, 20));
+            indexes[i] = i;
+        }
+        texts = new ArrayList<String>();
+        for (int i = 0; i < 20; ++i) {
+            texts.add(randomWord(random, 300));
+        }
+        texts.add("");
+        texts.add("zzzz");
+        texts.add(keys.get(7) + "z" + keys.get(3) + keys.get(5));
+    }
+
+    public void testOneKeyAtATime() {
+        CharSuffixTree tree = new CharSuffixTree();
+        for (int i = 0; i < indexes.length; ++i) {
+            tree.put(keys.get(i), indexes[i]);
+        }
+        assertSameAsBruteForce(tree, new HashSet<Integer>());
+    }
+
+    public void testBuiltInParallelAndRead() throws IOException {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        assertSameAsBruteForce(tree, new HashSet<Integer>());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        assertSameAsBruteForce(CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray())), new HashSet<Integer>());
+    }
+
+    public void testRemoved() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setCompactionThreshold(2);
+        tree.putAll(keys, indexes);
+        Set<Integer> removed = new HashSet<Integer>();
+        for (int i = 0; i < indexes.length; i += 3) {
+            tree.remove(i);
+            removed.add(i);
+        }
+        tree.compact();
+        assertSameAsBruteForce(tree, removed);
+    }
+
+    public void testStop() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        final int[] visited = new int[1];
+        tree.findMatches(texts.get(0), 3, new MatchVisitor() {
+            public boolean visit(int begin, int length, ResultBuffer indexes) {
+                visited[0]++;
+                return false;
+            }
+        });
+        assertEquals(1, visited[0]);
+    }
+
+    public void testGenericTree() {
+        GeneralizedSuffixTree<Character> tree = new GeneralizedSuffixTree<Character>();
+        tree.put(Arrays.asList('b', 'a', 'n', 'a', 'n', 'a'), 0);
+        tree.put(Arrays.asList('c', 'a', 'n'), 1);
+        List<Character> text = Arrays.asList('x', 'c', 'a', 'n', 'a', 'n', 'y');
+        assertTrue(Arrays.equals(new int[] {0, 3, 4, 3, 2, 1, 0}, tree.matchingStatistics(text)));
+        final List<String> found = new ArrayList<String>();
+        tree.findMatches(text, 3, new MatchVisitor() {
+            public boolean visit(int begin, int length, ResultBuffer indexes) {
+                int[] sorted = indexes.toArray();
+                Arrays.sort(sorted);
+                found.add(begin + ":" + length + ":" + Arrays.toString(sorted));
+                return true;
+            }
+        });
+        assertEquals(Arrays.asList("1:3:[1]", "2:4:[0]"), found);
+    }
+
+    private void assertSameAsBruteForce(CharSuffixTree tree, Set<Integer> removed) {
+        List<String> live = new ArrayList<String>();
+        for (int i = 0; i < keys.size(); ++i) {
+            if (!removed.contains(indexes[i])) {
+                live.add(keys.get(i));
+            }
+        }
+        for (final String text : texts) {
+            final int[] statistics = tree.matchingStatistics(text);
+            assertEquals(text.length(), statistics.length);
+            for (int i = 0; i < text.length(); ++i) {
+                assertEquals(text + " at " + i, longestMatch(live, text, i), statistics[i]);
+            }
+
+            for (final int minLength : new int[] {1, 4, 9}) {
+                final Set<Integer> found = new HashSet<Integer>();
+                tree.findMatches(text, minLength, new MatchVisitor() {
+                    public boolean visit(int begin, int length, ResultBuffer indexes) {
+                        assertTrue(length >= minLength);
+                        assertEquals(statistics[begin], length);
+                        assertTrue(begin == 0 || statistics[begin - 1] != length + 1);
+                        for (int i = 0; i < indexes.size(); ++i) {
+                            found.add(indexes.get(i));
+                        }
+                        return true;
+                    }
+                });
+                Set<Integer> expected = new HashSet<Integer>();
+                for (int i = 0; i < keys.size(); ++i) {
+                    if (!removed.contains(indexes[i]) && sharesWindow(keys.get(i), text, minLength)) {
+                        expected.add(indexes[i]);
+                    }
+                }
+                assertEquals(text + " " + minLength, expected, found);
+            }
+        }
+    }
+
+    private static int longestMatch(List<String> keys, String text, int begin) {
+        int ret = 0;
+        for (String key : keys) {
+            while (begin + ret < text.length() && key.contains(text.substring(begin, begin + ret + 1))) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    private static boolean sharesWindow(String key, String text, int length) {
+        for (int i = 0; i + length <= text.length(); ++i) {
+            if (key.contains(text.substring(i, i + length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String randomWord(Random random, int maxLength) {
+        StringBuilder ret = new StringBuilder();
+        int length = random.nextInt(maxLength);
+        for (int j = 0; j < length; ++j) {
+            ret.append((char) ('a' + random.nextInt(4)));
+        }
+        return ret.toString();
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class PackedPostingsTest extends TestCase {
+
+    public void testRoundTrip() {
+        int[] indexes = new int[] {0, 1, 2, 127, 128, 129, 16383, 16384, 1000000, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        PackedPostings postings = new PackedPostings(1);
+        for (int index : indexes) {
+            postings.add(index);
+            assertEquals(index, postings.last());
+        }
+        assertEquals(indexes.length, postings.size());
+
+        final List<Integer> visited = new ArrayList<Integer>();
+        assertTrue(postings.visit(new IndexVisitor() {
+            public boolean visit(int index) {
+                visited.add(index);
+                return true;
+            }
+        }));
+        assertEquals(indexes.length, visited.size());
+        for (int i = 0; i < indexes.length; ++i) {
+            assertEquals(indexes[i], (int) visited.get(i));
+        }
+    }
+
+    public void testVisitStops() {
+        PackedPostings postings = new PackedPostings(16);
+        for (int i = 0; i < 10; ++i) {
+            postings.add(i * 3);
+        }
+
+        final int[] count = new int[1];
+        assertFalse(postings.visit(new IndexVisitor() {
+            public boolean visit(int index) {
+                return ++count[0] < 4;
+            }
+        }));
+        assertEquals(4, count[0]);
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import static com.abahgat.suffixtree.Utils.getSubstrings;
+
+public class ParallelBuilderTest extends TestCase {
+
+    public void testSameAsSequentialPuts() {
+        Random random = new Random(3);
+        List<String> keys = randomKeys(random, 400, "acgt");
+        int[] indexes = randomIndexes(random, keys.size(), 0);
+
+        CharSuffixTree sequential = new CharSuffixTree();
+        for (int i = 0; i < keys.size(); ++i) {
+            sequential.put(keys.get(i), indexes[i]);
+        }
+        CharSuffixTree parallel = new CharSuffixTree();
+        putAll(parallel, keys, indexes, 7);
+        assertSameResults(sequential, parallel, keys);
+
+        // suffix links are rebuilt, so further keys go in as usual
+        List<String> more = randomKeys(random, 100, "acgt");
+        int[] moreIndexes = randomIndexes(random, more.size(), indexes[indexes.length - 1] + 1);
+        for (int i = 0; i < more.size(); ++i) {
+            sequential.put(more.get(i), moreIndexes[i]);
+            parallel.put(more.get(i), moreIndexes[i]);
+        }
+        List<String> all = new ArrayList<String>(keys);
+        all.addAll(more);
+        assertSameResults(sequential, parallel, all);
+    }
+
+    public void testIntoNonEmptyTree() {
+        Random random = new Random(5);
+        List<String> keys = randomKeys(random, 300, "abcdefgh");
+        int[] indexes = randomIndexes(random, keys.size(), 10);
+        // the first keys share the index of the last key already in the tree
+        indexes[0] = 10;
+        indexes[1] = 10;
+
+        CharSuffixTree sequential = new CharSuffixTree();
+        CharSuffixTree parallel = new CharSuffixTree();
+        sequential.put("abcabd", 10);
+        parallel.put("abcabd", 10);
+        for (int i = 0; i < keys.size(); ++i) {
+            sequential.put(keys.get(i), indexes[i]);
+        }
+        putAll(parallel, keys, indexes, 4);
+
+        List<String> all = new ArrayList<String>(keys);
+        all.add("abcabd");
+        assertSameResults(sequential, parallel, all);
+    }
+
+    public void testBatchesOnlyLinkAddedNodes() {
+        Random random = new Random(9);
+        CharSuffixTree tree = new CharSuffixTree();
+        int first = 0;
+        for (int batch = 0; batch < 4; ++batch) {
+            Map<Node, Node> before = new IdentityHashMap<Node, Node>();
+            for (Node n : paths(tree).keySet()) {
+                before.put(n, n.getSuffix());
+            }
+            List<String> keys = randomKeys(random, 300, "abc");
+            int[] indexes = randomIndexes(random, keys.size(), first);
+            first = indexes[indexes.length - 1] + 1;
+            putAll(tree, keys, indexes, 5);
+
+            Map<Node, List<Integer>> paths = paths(tree);
+            for (Map.Entry<Node, List<Integer>> e : paths.entrySet()) {
+                Node n = e.getKey();
+                List<Integer> path = e.getValue();
+                if (n == tree.getRoot()) {
+                    continue;
+                }
+                if (before.containsKey(n)) {
+                    assertSame(before.get(n), n.getSuffix());
+                }
+                assertEquals(path.subList(1, path.size()), paths.get(n.getSuffix()));
+            }
+        }
+    }
+
+    public void testPublicPutAll() {
+        GeneralizedSuffixTree<String> in = new GeneralizedSuffixTree<String>();
+        List<List<String>> keys = new ArrayList<List<String>>();
+        keys.add(Arrays.asList("to", "be", "or", "not", "to", "be"));
+        keys.add(Arrays.asList("not", "to", "say"));
+        in.putAll(keys, new int[] {0, 1});
+        assertEquals(2, in.search(Arrays.asList("not", "to")).size());
+
+        try {
+            in.putAll(keys, new int[] {3, 2});
+            fail("indexes out of order must be rejected");
+        } catch (IllegalStateException expected) {
+        }
+        // nothing was added
+        in.put(Arrays.asList("be"), 2);
+        assertEquals(2, in.search(Arrays.asList("be")).size());
+
+        try {
+            in.putAll(keys, new int[] {5});
+            fail("keys and indexes must match");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void putAll(CharSuffixTree tree, List<String> keys, int[] indexes, int parts) {
+        tree.checkIndexes(indexes);
+        CharSymbolStore store = (CharSymbolStore) tree.store;
+        int firstText = store.texts();
+        for (String key : keys) {
+            store.add(key);
+        }
+        ParallelBuilder.insertAll(tree, firstText, indexes, parts);
+    }
+
+    private static void assertSameResults(CharSuffixTree expected, CharSuffixTree actual, List<String> keys) {
+        assertEquals(expected.computeCount(), actual.computeCount());
+        for (String key : keys) {
+            for (String s : getSubstrings(key)) {
+                assertEquals(s, expected.search(s), actual.search(s));
+                assertEquals(s, expected.searchWithCount(s, 1).totalResults, actual.searchWithCount(s, 1).totalResults);
+            }
+        }
+    }
+
+    /**
+     * Returns the symbols on the path from the root to each node of the tree
+     */
+    private static Map<Node, List<Integer>> paths(CharSuffixTree tree) {
+        Map<Node, List<Integer>> ret = new IdentityHashMap<Node, List<Integer>>();
+        ret.put(tree.getRoot(), new ArrayList<Integer>());
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(tree.getRoot());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            for (Edge e : node.getEdges().values()) {
+                List<Integer> path = new ArrayList<Integer>(ret.get(node));
+                for (int i = e.getBegin(); i < e.getEnd(); ++i) {
+                    path.add(tree.store.get(i));
+                }
+                ret.put(e.getDest(), path);
+                stack.push(e.getDest());
+            }
+        }
+        return ret;
+    }
+
+    private static List<String> randomKeys(Random random, int count, String alphabet) {
+        List<String> ret = new ArrayList<String>();
+        for (int i = 0; i < count; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(15);
+            for (int j = 0; j < length; ++j) {
+                key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            ret.add(key.toString());
+        }
+        return ret;
+    }
+
+    /**
+     * Returns non-decreasing indexes starting from <tt>first</tt>, with runs of equal ones
+     */
+    private static int[] randomIndexes(Random random, int count, int first) {
+        int[] ret = new int[count];
+        int index = first;
+        for (int i = 0; i < count; ++i) {
+            ret[i] = index;
+            index += random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(3);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class PositionalSearchTest extends TestCase {
+
+    private List<String> keys;
+    private CharSuffixTree tree;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(29);
+        keys = new ArrayList<String>();
+        int[] indexes = new int[1500];
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(25);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(3)));
+            }
+            keys.add(key.toString());
+            indexes[i] = i;
+        }
+        tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+    }
+
+    public void testSameAsBruteForce() {
+        CharSuffixTree put = new CharSuffixTree();
+        for (int i = 0; i < keys.size(); ++i) {
+            put.put(keys.get(i), i);
+        }
+        for (String word : new String[] {"a", "ab", "bb", "cab", "abcab", "aaaa", "d"}) {
+            long[] expected = bruteForce(word);
+            assertTrue(word, Arrays.equals(expected, tree.searchPositions(word, -1)));
+            assertTrue(word, Arrays.equals(expected, put.searchPositions(word, -1)));
+            assertTrue(word, Arrays.equals(expected, tree.searchPositionStream(word).toArray()));
+        }
+    }
+
+    public void testRepeatedSymbolAtTheEnd() {
+        CharSuffixTree small = new CharSuffixTree();
+        small.put("bbaaabbb", 1);
+        long[] expected = {Positions.pack(1, 0), Positions.pack(1, 1), Positions.pack(1, 5), Positions.pack(1, 6),
+                Positions.pack(1, 7)};
+        assertTrue(Arrays.equals(expected, small.searchPositions("b", -1)));
+    }
+
+    public void testSmallRandomCorpora() {
+        Random random = new Random(11);
+        for (int round = 0; round < 300; ++round) {
+            keys = new ArrayList<String>();
+            int[] indexes = new int[1 + random.nextInt(4)];
+            for (int i = 0; i < indexes.length; ++i) {
+                StringBuilder key = new StringBuilder();
+                int length = 1 + random.nextInt(10);
+                for (int j = 0; j < length; ++j) {
+                    key.append((char) ('a' + random.nextInt(2)));
+                }
+                keys.add(key.toString());
+                indexes[i] = i;
+            }
+            CharSuffixTree put = new CharSuffixTree();
+            for (int i = 0; i < keys.size(); ++i) {
+                put.put(keys.get(i), i);
+            }
+            CharSuffixTree putAll = new CharSuffixTree();
+            putAll.putAll(keys, indexes);
+            for (String word : new String[] {"a", "b", "ab", "ba", "aa", "bb", "aba", "bab"}) {
+                long[] expected = bruteForce(word);
+                assertTrue(keys + " " + word, Arrays.equals(expected, put.searchPositions(word, -1)));
+                assertTrue(keys + " " + word, Arrays.equals(expected, putAll.searchPositions(word, -1)));
+            }
+        }
+    }
+
+    public void testLimit() {
+        long[] all = bruteForce("ab");
+        assertTrue(Arrays.equals(Arrays.copyOf(all, 7), tree.searchPositions("ab", 7)));
+        assertTrue(Arrays.equals(Arrays.copyOf(all, 7), tree.searchPositionStream("ab").limit(7).toArray()));
+        assertEquals(0, tree.searchPositions("ab", 0).length);
+        assertEquals(0, tree.searchPositions("", -1).length);
+    }
+
+    public void testOffsets() {
+        CharSuffixTree small = new CharSuffixTree();
+        small.put("banana", 0);
+        small.put("bandana", 1);
+        long[] found = small.searchPositions("ana", -1);
+        assertEquals(3, found.length);
+        assertEquals(0, Positions.index(found[0]));
+        assertEquals(1, Positions.offset(found[0]));
+        assertEquals(0, Positions.index(found[1]));
+        assertEquals(3, Positions.offset(found[1]));
+        assertEquals(1, Positions.index(found[2]));
+        assertEquals(4, Positions.offset(found[2]));
+
+        small.remove(0);
+        found = small.searchPositions("ana", -1);
+        assertEquals(1, found.length);
+        assertEquals(Positions.pack(1, 4), found[0]);
+    }
+
+    public void testKeysSharingAnIndex() {
+        CharSuffixTree small = new CharSuffixTree();
+        small.put("xna", 0);
+        small.put("yna", 0);
+        small.put("nana", 0);
+        small.put("na", 1);
+        long[] found = small.searchPositions("na", -1);
+        // offsets count from the start of "xna", as in "xnaynanana"
+        long[] expected = {Positions.pack(0, 1), Positions.pack(0, 4), Positions.pack(0, 6), Positions.pack(0, 8),
+                Positions.pack(1, 0)};
+        assertTrue(Arrays.toString(found), Arrays.equals(expected, found));
+    }
+
+    public void testGeneralizedSuffixTree() {
+        GeneralizedSuffixTree<Character> gst = new GeneralizedSuffixTree<Character>();
+        gst.put(chars("mississippi"), 3);
+        long[] found = gst.searchPositions(chars("ssi"), -1);
+        assertTrue(Arrays.equals(new long[] {Positions.pack(3, 2), Positions.pack(3, 5)}, found));
+        assertEquals(0, gst.searchPositions(chars("x"), -1).length);
+        assertEquals(2, gst.searchPositionStream(chars("ssi")).count());
+    }
+
+    private static List<Character> chars(String s) {
+        List<Character> ret = new ArrayList<Character>();
+        for (char c : s.toCharArray()) {
+            ret.add(c);
+        }
+        return ret;
+    }
+
+    private long[] bruteForce(String word) {
+        List<Long> ret = new ArrayList<Long>();
+        for (int i = 0; i < keys.size(); ++i) {
+            for (int from = keys.get(i).indexOf(word); from >= 0; from = keys.get(i).indexOf(word, from + 1)) {
+                ret.add(Positions.pack(i, from));
+            }
+        }
+        long[] array = new long[ret.size()];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = ret.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class RankedSearchTest extends TestCase {
+
+    private List<String> keys;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(17);
+        keys = new ArrayList<String>();
+        for (int i = 0; i < 2000; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(3)));
+            }
+            keys.add(key.toString());
+        }
+    }
+
+    public void testFrequenciesSameAsBruteForce() {
+        CharSuffixTree put = new CharSuffixTree();
+        int[] indexes = new int[keys.size()];
+        for (int i = 0; i < keys.size(); ++i) {
+            put.put(keys.get(i), i);
+            indexes[i] = i;
+        }
+        CharSuffixTree putAll = new CharSuffixTree();
+        putAll.putAll(keys, indexes);
+        for (String word : new String[] {"a", "ab", "aa", "cab", "abcab", "aaaa", "d"}) {
+            List<int[]> expected = bruteForce(word);
+            assertRanked(word, expected, put.searchRanked(word, -1));
+            assertRanked(word, expected, putAll.searchRanked(word, -1));
+        }
+    }
+
+    public void testSuffixesFoundInTheTreeAlready() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.put("bbaaabbb", 1);
+        RankedMatches found = tree.searchRanked("b", -1);
+        assertEquals(1, found.size());
+        assertEquals(5, found.getFrequency(0));
+    }
+
+    public void testSmallRandomCorpora() {
+        Random random = new Random(5);
+        for (int round = 0; round < 300; ++round) {
+            keys = new ArrayList<String>();
+            int[] indexes = new int[1 + random.nextInt(4)];
+            for (int i = 0; i < indexes.length; ++i) {
+                StringBuilder key = new StringBuilder();
+                int length = 1 + random.nextInt(10);
+                for (int j = 0; j < length; ++j) {
+                    key.append((char) ('a' + random.nextInt(2)));
+                }
+                keys.add(key.toString());
+                indexes[i] = i;
+            }
+            CharSuffixTree put = new CharSuffixTree();
+            for (int i = 0; i < keys.size(); ++i) {
+                put.put(keys.get(i), i);
+            }
+            CharSuffixTree putAll = new CharSuffixTree();
+            putAll.putAll(keys, indexes);
+            for (String word : new String[] {"a", "b", "ab", "ba", "aa", "bb", "aba", "bab"}) {
+                List<int[]> expected = bruteForce(word);
+                assertRanked(keys + " " + word, expected, put.searchRanked(word, -1));
+                assertRanked(keys + " " + word, expected, putAll.searchRanked(word, -1));
+            }
+        }
+    }
+
+    public void testLimitKeepsMostFrequent() {
+        CharSuffixTree tree = new CharSuffixTree();
+        for (int i = 0; i < keys.size(); ++i) {
+            tree.put(keys.get(i), i);
+        }
+        List<int[]> expected = bruteForce("ab");
+        RankedMatches top = tree.searchRanked("ab", 10);
+        assertRanked("ab", expected.subList(0, 10), top);
+        assertEquals(0, tree.searchRanked("ab", 0).size());
+    }
+
+    public void testRemovedIndexesAreSkipped() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.put("banana", 0);
+        tree.put("ananas", 1);
+        tree.put("bandana", 2);
+        RankedMatches found = tree.searchRanked("an", 5);
+        assertEquals(3, found.size());
+        assertEquals(0, found.getIndex(0));
+        assertEquals(2, found.getFrequency(0));
+        assertEquals(1, found.getIndex(1));
+        assertEquals(2, found.getFrequency(1));
+        assertEquals(2, found.getIndex(2));
+        assertEquals(2, found.getFrequency(2));
+
+        tree.remove(0);
+        found = tree.searchRanked("ana", 5);
+        assertEquals(2, found.size());
+        assertEquals(1, found.getIndex(0));
+        assertEquals(2, found.getFrequency(0));
+        assertEquals(2, found.getIndex(1));
+        assertEquals(1, found.getFrequency(1));
+        assertEquals(0, tree.searchRanked("xyz", 5).size());
+    }
+
+    public void testGeneralizedSuffixTree() {
+        GeneralizedSuffixTree<Character> tree = new GeneralizedSuffixTree<Character>();
+        tree.put(chars("mississippi"), 0);
+        tree.put(chars("missouri"), 1);
+        RankedMatches found = tree.searchRanked(chars("s"), -1);
+        assertEquals(2, found.size());
+        assertEquals(0, found.getIndex(0));
+        assertEquals(4, found.getFrequency(0));
+        assertEquals(1, found.getIndex(1));
+        assertEquals(2, found.getFrequency(1));
+    }
+
+    private static List<Character> chars(String s) {
+        List<Character> ret = new ArrayList<Character>();
+        for (char c : s.toCharArray()) {
+            ret.add(c);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the (index, occurrences) pairs of the keys containing the given word, most frequent first
+     */
+    private List<int[]> bruteForce(String word) {
+        List<int[]> ret = new ArrayList<int[]>();
+        for (int i = 0; i < keys.size(); ++i) {
+            int count = 0;
+            for (int from = keys.get(i).indexOf(word); from >= 0; from = keys.get(i).indexOf(word, from + 1)) {
+                count++;
+            }
+            if (count > 0) {
+                ret.add(new int[] {i, count});
+            }
+        }
+        Collections.sort(ret, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return a[1] != b[1] ? b[1] - a[1] : a[0] - b[0];
+            }
+        });
+        return ret;
+    }
+
+    private static void assertRanked(String word, List<int[]> expected, RankedMatches found) {
+        assertEquals(word, expected.size(), found.size());
+        for (int i = 0; i < found.size(); ++i) {
+            assertEquals(word, expected.get(i)[0], found.getIndex(i));
+            assertEquals(word, expected.get(i)[1], found.getFrequency(i));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class RemoveTest extends TestCase {
+
+    private List<String> keys;
+    private int[] indexes;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(17);
+        keys = new ArrayList<String>();
+        indexes = new int[300];
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key.toString());
+            // some keys share their index
+            indexes[i] = i - i % 3 / 2;
+        }
+    }
+
+    public void testSearchesLeaveOutRemovedIndexes() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setCompactionThreshold(2);
+        tree.putAll(keys, indexes);
+        Set<Integer> removed = removeSome(tree, new Random(3));
+        assertSameAsRebuilt(tree, removed);
+
+        tree.compact();
+        assertSameAsRebuilt(tree, removed);
+    }
+
+    public void testRemove() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setCompactionThreshold(2);
+        tree.put("banana", 0);
+        tree.put("", 1);
+        tree.put("bandana", 2);
+        tree.put("cabana", 3);
+        assertEquals(3, tree.computeCount());
+
+        assertTrue(tree.remove(2));
+        assertFalse(tree.remove(2));
+        // never put, or only with an empty key
+        assertFalse(tree.remove(1));
+        assertFalse(tree.remove(42));
+        assertFalse(tree.remove(-1));
+
+        assertEquals(2, tree.computeCount());
+        assertNull(tree.search("nd"));
+        assertEquals(set(0, 3), tree.search("ana"));
+        assertEquals(2, tree.searchWithCount("ban", 10).totalResults);
+        assertEquals(1, tree.searchWithCount("ban", 1).results.size());
+
+        assertTrue(tree.remove(3));
+        try {
+            tree.put("cab", 3);
+            fail("Removed indexes can't be put again");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        tree.put("cab", 4);
+        assertEquals(set(0, 4), tree.search("a"));
+
+        tree.compact();
+        assertEquals(set(0, 4), tree.search("a"));
+        assertEquals(2, tree.computeCount());
+        tree.put("and", 5);
+        assertEquals(set(0, 5), tree.search("an"));
+        assertTrue(tree.remove(0));
+        assertEquals(set(5), tree.search("an"));
+    }
+
+    public void testBackgroundCompaction() throws Exception {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        Node before = tree.getRoot();
+        Set<Integer> removed = new HashSet<Integer>();
+        for (int i = 0; i < indexes.length && tree.getRoot() == before; i += 2) {
+            if (tree.remove(indexes[i])) {
+                removed.add(indexes[i]);
+            }
+            assertSameAsRebuilt(tree, removed);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (tree.getRoot() == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotSame("a compaction should have replaced the root", before, tree.getRoot());
+        assertSameAsRebuilt(tree, removed);
+    }
+
+    public void testWriteAndRead() throws Exception {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setCompactionThreshold(2);
+        tree.putAll(keys, indexes);
+        Set<Integer> removed = removeSome(tree, new Random(5));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        CharSuffixTree read = CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray()));
+        assertSameAsRebuilt(read, removed);
+        read.compact();
+        assertSameAsRebuilt(read, removed);
+    }
+
+    public void testRemoveAfterReading() throws Exception {
+        // the nodes of an index are found through suffix links, which read trees get from the stream
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setCompactionThreshold(2);
+        tree.putAll(keys, indexes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        CharSuffixTree read = CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray()));
+        read.setCompactionThreshold(2);
+        assertSameAsRebuilt(read, removeSome(read, new Random(9)));
+    }
+
+    private Set<Integer> removeSome(CharSuffixTree tree, Random random) {
+        Set<Integer> removed = new HashSet<Integer>();
+        for (int index : indexes) {
+            if (random.nextInt(3) == 0 && tree.remove(index)) {
+                removed.add(index);
+            }
+        }
+        assertFalse(removed.isEmpty());
+        return removed;
+    }
+
+    /**
+     * Checks that the tree answers like one where the removed indexes were never put
+     */
+    private void assertSameAsRebuilt(CharSuffixTree tree, Set<Integer> removed) {
+        CharSuffixTree expected = new CharSuffixTree();
+        for (int i = 0; i < keys.size(); ++i) {
+            if (!removed.contains(indexes[i])) {
+                expected.put(keys.get(i), indexes[i]);
+            }
+        }
+        assertEquals(expected.computeCount(), tree.computeCount());
+        ResultBuffer buffer = new ResultBuffer();
+        for (String key : keys) {
+            for (int begin = 0; begin < key.length(); ++begin) {
+                for (int end = begin + 1; end <= key.length(); ++end) {
+                    String word = key.substring(begin, end);
+                    Collection<Integer> results = expected.search(word);
+                    assertEquals(results, tree.search(word));
+                    if (results == null) {
+                        results = new HashSet<Integer>();
+                    }
+                    assertEquals(results.size(), tree.searchWithCount(word, 3).totalResults);
+                    assertEquals(Math.min(3, results.size()), tree.searchWithCount(word, 3).results.size());
+                    assertEquals(results.size(), tree.search(word, buffer));
+                }
+            }
+        }
+    }
+
+    private static Set<Integer> set(Integer... values) {
+        Set<Integer> ret = new HashSet<Integer>();
+        for (Integer v : values) {
+            ret.add(v);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import junit.framework.TestCase;
+
+public class ResultBufferTest extends TestCase {
+
+    public void testDuplicatesAreDiscarded() {
+        ResultBuffer buffer = new ResultBuffer();
+        assertTrue(buffer.add(3));
+        assertTrue(buffer.add(1000));
+        assertTrue(buffer.add(3));
+        assertTrue(buffer.add(64));
+
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.get(0));
+        assertEquals(1000, buffer.get(1));
+        assertEquals(64, buffer.get(2));
+    }
+
+    public void testLimit() {
+        ResultBuffer buffer = new ResultBuffer(2);
+        assertTrue(buffer.add(1));
+        assertFalse(buffer.add(2));
+        assertFalse(buffer.add(3));
+        assertTrue(buffer.isFull());
+        assertEquals(2, buffer.size());
+    }
+
+    public void testClear() {
+        ResultBuffer buffer = new ResultBuffer();
+        for (int i = 0; i < 100; ++i) {
+            buffer.add(i * 7);
+        }
+        buffer.clear();
+        assertEquals(0, buffer.size());
+
+        buffer.add(14);
+        buffer.add(15);
+        assertEquals(2, buffer.size());
+        assertEquals(14, buffer.get(0));
+        assertEquals(15, buffer.get(1));
+    }
+
+    public void testLargeIndexes() {
+        ResultBuffer buffer = new ResultBuffer();
+        assertTrue(buffer.add(2000000000));
+        assertTrue(buffer.add(Integer.MAX_VALUE));
+        assertTrue(buffer.add(2000000000));
+        assertEquals(2, buffer.size());
+        assertEquals(2000000000, buffer.get(0));
+        assertEquals(Integer.MAX_VALUE, buffer.get(1));
+    }
+
+    public void testClearAndReuse() {
+        ResultBuffer buffer = new ResultBuffer();
+        for (int round = 0; round < 10; ++round) {
+            for (int i = 0; i < 1000; ++i) {
+                buffer.add((i * 31 + round) % 700);
+            }
+            assertEquals(700, buffer.size());
+            buffer.clear();
+            assertEquals(0, buffer.size());
+        }
+        buffer.add(5);
+        buffer.add(5);
+        assertEquals(1, buffer.size());
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SearchAllTest extends TestCase {
+
+    private CharSuffixTree tree;
+    private List<String> words;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(23);
+        List<String> keys = new ArrayList<String>();
+        int[] indexes = new int[2000];
+        for (int i = 0; i < indexes.length; ++i) {
+            keys.add(randomWord(random, 15));
+            indexes[i] = i;
+        }
+        tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+
+        // words sharing prefixes, repeated words, misses and the empty word
+        words = new ArrayList<String>();
+        for (int i = 0; i < 1000; ++i) {
+            words.add(randomWord(random, 7));
+        }
+        words.addAll(Arrays.asList("", "abc", "abc", "ab", "abcd", "abcdabcdabcd", "e", "ae"));
+    }
+
+    public void testSameAsSearch() {
+        assertSameAsSearch(tree.searchAll(words), -1);
+    }
+
+    public void testParallel() {
+        assertSameAsSearch(tree.searchAll(words, -1, true), -1);
+    }
+
+    public void testLimit() {
+        assertSameAsSearch(tree.searchAll(words, 3, true), 3);
+    }
+
+    public void testGenericAndIntTrees() {
+        GeneralizedSuffixTree<Character> generic = new GeneralizedSuffixTree<Character>();
+        generic.put(Arrays.asList('b', 'a', 'n', 'a', 'n', 'a'), 0);
+        generic.put(Arrays.asList('c', 'a', 'n'), 1);
+        List<Collection<Integer>> found = generic.searchAll(Arrays.asList(
+                Arrays.asList('a', 'n'), Arrays.asList('x'), Arrays.asList('n', 'a', 'n')));
+        assertEquals(new HashSet<Integer>(Arrays.asList(0, 1)), new HashSet<Integer>(found.get(0)));
+        assertNull(found.get(1));
+        assertEquals(new HashSet<Integer>(Arrays.asList(0)), new HashSet<Integer>(found.get(2)));
+
+        IntSuffixTree ints = new IntSuffixTree();
+        ints.put(new int[] {1, 2, 3, 2}, 0);
+        ints.put(new int[] {3, 2}, 1);
+        found = ints.searchAll(Arrays.asList(new int[] {3, 2}, new int[] {2, 3}, new int[] {4}));
+        assertEquals(new HashSet<Integer>(Arrays.asList(0, 1)), new HashSet<Integer>(found.get(0)));
+        assertEquals(new HashSet<Integer>(Arrays.asList(0)), new HashSet<Integer>(found.get(1)));
+        assertNull(found.get(2));
+    }
+
+    private void assertSameAsSearch(List<Collection<Integer>> found, int results) {
+        assertEquals(words.size(), found.size());
+        for (int i = 0; i < words.size(); ++i) {
+            Collection<Integer> expected = tree.search(words.get(i));
+            if (expected == null) {
+                assertNull(words.get(i), found.get(i));
+            } else if (results < 0) {
+                assertEquals(words.get(i), new HashSet<Integer>(expected), new HashSet<Integer>(found.get(i)));
+            } else {
+                assertEquals(Math.min(results, expected.size()), found.get(i).size());
+                assertTrue(expected.containsAll(found.get(i)));
+            }
+        }
+    }
+
+    private static String randomWord(Random random, int maxLength) {
+        StringBuilder ret = new StringBuilder();
+        int length = random.nextInt(maxLength);
+        for (int j = 0; j < length; ++j) {
+            ret.append((char) ('a' + random.nextInt(4)));
+        }
+        return ret.toString();
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+import junit.framework.TestCase;
+
+public class SearchStreamTest extends TestCase {
+
+    private static final String[] WORDS = {"", "a", "ab", "ba", "abc", "cab", "dd", "abcd", "zz"};
+
+    private CharSuffixTree tree;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(11);
+        List<String> keys = new ArrayList<String>();
+        int[] indexes = new int[5000];
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key.toString());
+            // some keys share their index
+            indexes[i] = i - i % 2;
+        }
+        tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+    }
+
+    public void testStreamMatchesSearch() {
+        for (String word : WORDS) {
+            int[] found = tree.searchStream(word).toArray();
+            assertEquals(word, expected(word), toSet(found));
+            assertEquals(word, toSet(found).size(), found.length);
+        }
+    }
+
+    public void testParallelStreamMatchesSearch() {
+        for (String word : WORDS) {
+            int[] found = tree.searchStream(word).parallel().toArray();
+            assertEquals(word, expected(word), toSet(found));
+            assertEquals(word, toSet(found).size(), found.length);
+        }
+    }
+
+    public void testIterator() {
+        Set<Integer> found = new HashSet<Integer>();
+        PrimitiveIterator.OfInt it = tree.searchIterator("ab");
+        while (it.hasNext()) {
+            assertTrue(found.add(it.nextInt()));
+        }
+        assertEquals(expected("ab"), found);
+        assertFalse(tree.searchIterator("zz").hasNext());
+    }
+
+    public void testLimit() {
+        int[] first = tree.searchStream("a").limit(10).toArray();
+        assertEquals(10, first.length);
+        assertTrue(expected("a").containsAll(toSet(first)));
+    }
+
+    public void testSplitsCoverAllResults() {
+        Spliterator.OfInt whole = tree.spliterator(tree.searchNode("b"));
+        List<Spliterator.OfInt> parts = new ArrayList<Spliterator.OfInt>();
+        parts.add(whole);
+        for (int i = 0; i < 4; ++i) {
+            Spliterator.OfInt split = parts.get(i).trySplit();
+            if (split != null) {
+                parts.add(split);
+            }
+        }
+        assertTrue(parts.size() > 1);
+        final List<Integer> found = new ArrayList<Integer>();
+        for (Spliterator.OfInt part : parts) {
+            part.forEachRemaining(new IntConsumer() {
+                public void accept(int value) {
+                    found.add(value);
+                }
+            });
+        }
+        assertEquals(expected("b"), new HashSet<Integer>(found));
+        assertEquals(found.size(), new HashSet<Integer>(found).size());
+    }
+
+    public void testLargeIndexes() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.put("abc", 1999999999);
+        tree.put("bcd", 2000000000);
+        assertEquals(2, tree.searchStream("b").count());
+        assertEquals(2, tree.searchStream("bc").parallel().distinct().count());
+        Spliterator.OfInt spliterator = tree.searchStream("b").spliterator();
+        spliterator.trySplit();
+        assertEquals(2, tree.searchStream("b").parallel().toArray().length);
+    }
+
+    public void testLeavesOutRemovedIndexes() {
+        tree.setCompactionThreshold(2);
+        assertTrue(tree.remove(0));
+        assertTrue(tree.remove(100));
+        for (String word : WORDS) {
+            assertEquals(word, expected(word), toSet(tree.searchStream(word).toArray()));
+        }
+    }
+
+    public void testGenericAndIntTrees() {
+        GeneralizedSuffixTree<Character> generic = new GeneralizedSuffixTree<Character>();
+        IntSuffixTree ints = new IntSuffixTree();
+        generic.put(Arrays.asList('b', 'a', 'n', 'a', 'n', 'a'), 0);
+        generic.put(Arrays.asList('c', 'a', 'n'), 1);
+        ints.put(new int[] {1, 2, 3, 2}, 0);
+        ints.put(new int[] {3, 2}, 1);
+        assertEquals(toSet(new int[] {0, 1}), toSet(generic.searchStream(Arrays.asList('a', 'n')).toArray()));
+        assertEquals(toSet(new int[] {0, 1}), toSet(ints.searchStream(new int[] {3, 2}).toArray()));
+        assertFalse(ints.searchIterator(new int[] {4}).hasNext());
+    }
+
+    private Set<Integer> expected(String word) {
+        Collection<Integer> found = tree.search(word);
+        return found == null ? new HashSet<Integer>() : new HashSet<Integer>(found);
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        Set<Integer> ret = new HashSet<Integer>();
+        for (int v : values) {
+            ret.add(v);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class SegmentedSuffixTreeTest extends TestCase {
+
+    private List<List<Character>> keys;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(23);
+        keys = new ArrayList<List<Character>>();
+        for (int i = 0; i < 600; ++i) {
+            List<Character> key = new ArrayList<Character>();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; ++j) {
+                key.add((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key);
+        }
+    }
+
+    public void testIncreasingIndexes() {
+        int[] indexes = new int[keys.size()];
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = i / 2;
+        }
+        SegmentedSuffixTree<Character> segmented = new SegmentedSuffixTree<Character>(200, new TieredMergePolicy(3, 200));
+        for (int i = 0; i < keys.size(); ++i) {
+            segmented.put(keys.get(i), indexes[i]);
+        }
+        assertTrue(segmented.getSegmentCount() > 1);
+        assertSameAsSingleTree(segmented, indexes);
+        segmented.merge();
+        assertSameAsSingleTree(segmented, indexes);
+    }
+
+    public void testIndexesInAnyOrder() {
+        Random random = new Random(29);
+        int[] indexes = new int[keys.size()];
+        for (int i = 0; i < indexes.length; ++i) {
+            // mostly increasing, with some going back, and some repeated in other segments
+            indexes[i] = random.nextInt(5) == 0 ? random.nextInt(i + 1) : i;
+        }
+        SegmentedSuffixTree<Character> segmented = new SegmentedSuffixTree<Character>(1000, new TieredMergePolicy(3, 1000));
+        for (int i = 0; i < keys.size(); ++i) {
+            segmented.put(keys.get(i), indexes[i]);
+        }
+        assertSameAsSingleTree(segmented, indexes);
+        segmented.merge();
+        assertTrue(segmented.getSegmentCount() < 3 + 3);
+        assertSameAsSingleTree(segmented, indexes);
+    }
+
+    public void testLimitWithAnIndexAcrossASeal() {
+        SegmentedSuffixTree<Character> segmented = new SegmentedSuffixTree<Character>(200, new TieredMergePolicy(3, 200));
+        segmented.put(chars("xab"), 1);
+        segmented.put(chars("yab"), 2);
+        segmented.seal();
+        segmented.put(chars("zab"), 2);
+        segmented.put(chars("wab"), 3);
+        assertEquals(2, segmented.getSegmentCount());
+        Set<Integer> all = new HashSet<Integer>(Arrays.asList(1, 2, 3));
+        assertEquals(all, segmented.search(chars("ab")));
+        assertEquals(all, segmented.search(chars("ab"), 3));
+        assertEquals(2, segmented.search(chars("ab"), 2).size());
+        assertEquals(all, segmented.searchWithCount(chars("ab"), 3).results);
+        assertEquals(3, segmented.searchWithCount(chars("ab"), 3).totalResults);
+    }
+
+    public void testMergeSkipsRemovedIndexes() {
+        GeneralizedSuffixTree<Character> a = new GeneralizedSuffixTree<Character>();
+        a.put(chars("banana"), 1);
+        a.put(chars("bandana"), 4);
+        GeneralizedSuffixTree<Character> b = new GeneralizedSuffixTree<Character>();
+        b.put(chars("cabana"), 0);
+        b.put(chars("nab"), 2);
+        b.remove(2);
+        List<GeneralizedSuffixTree<Character>> trees = new ArrayList<GeneralizedSuffixTree<Character>>();
+        trees.add(new GeneralizedSuffixTree<Character>());
+        trees.add(a);
+        trees.add(b);
+        GeneralizedSuffixTree<Character> merged = GeneralizedSuffixTree.merge(trees);
+        assertEquals(3, merged.computeCount());
+        assertEquals(new HashSet<Integer>(Arrays.asList(0, 1, 4)), merged.search(chars("ana")));
+        assertEquals(new HashSet<Integer>(Arrays.asList(4)), merged.search(chars("dan")));
+        assertNull(merged.search(chars("nab")));
+        merged.put(chars("nab"), 5);
+        assertEquals(new HashSet<Integer>(Arrays.asList(5)), merged.search(chars("nab")));
+    }
+
+    public void testMergeWithEmptyTrees() {
+        GeneralizedSuffixTree<Character> a = new GeneralizedSuffixTree<Character>();
+        a.put(chars("banana"), 1);
+        GeneralizedSuffixTree<Character> b = new GeneralizedSuffixTree<Character>();
+        b.put(chars("cabana"), 2);
+        b.put(chars("nab"), 3);
+        List<GeneralizedSuffixTree<Character>> trees = new ArrayList<GeneralizedSuffixTree<Character>>();
+        trees.add(new GeneralizedSuffixTree<Character>());
+        trees.add(new GeneralizedSuffixTree<Character>());
+        trees.add(a);
+        trees.add(new GeneralizedSuffixTree<Character>());
+        trees.add(new GeneralizedSuffixTree<Character>());
+        trees.add(b);
+        trees.add(new GeneralizedSuffixTree<Character>());
+        GeneralizedSuffixTree<Character> merged = GeneralizedSuffixTree.merge(trees);
+        assertEquals(3, merged.computeCount());
+        assertEquals(new HashSet<Integer>(Arrays.asList(1)), merged.search(chars("nan")));
+        assertEquals(new HashSet<Integer>(Arrays.asList(2)), merged.search(chars("cab")));
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)), merged.search(chars("a")));
+        assertEquals(new HashSet<Integer>(Arrays.asList(3)), merged.search(chars("nab")));
+    }
+
+    public void testTieredMergePolicy() {
+        MergePolicy policy = new TieredMergePolicy(3, 10);
+        assertNull(policy.select(new long[] {100, 100}));
+        assertTrue(Arrays.equals(new int[] {0, 3}, policy.select(new long[] {100, 100, 100})));
+        assertTrue(Arrays.equals(new int[] {1, 4}, policy.select(new long[] {1000, 100, 90, 120})));
+        // small segments count as large as the floor
+        assertTrue(Arrays.equals(new int[] {0, 3}, policy.select(new long[] {1, 10, 25})));
+        assertNull(policy.select(new long[] {1000, 100, 1000, 100}));
+    }
+
+    private void assertSameAsSingleTree(SegmentedSuffixTree<Character> segmented, int[] indexes) {
+        // put the keys in order of index into a single tree
+        Integer[] order = new Integer[indexes.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        final int[] by = indexes;
+        Arrays.sort(order, (x, y) -> Integer.compare(by[x], by[y]));
+        GeneralizedSuffixTree<Character> expected = new GeneralizedSuffixTree<Character>();
+        for (int i : order) {
+            expected.put(keys.get(i), indexes[i]);
+        }
+
+        assertEquals(expected.computeCount(), segmented.computeCount());
+        ResultBuffer buffer = new ResultBuffer();
+        for (List<Character> key : keys) {
+            for (int begin = 0; begin < key.size(); ++begin) {
+                for (int end = begin + 1; end <= key.size(); ++end) {
+                    List<Character> word = key.subList(begin, end);
+                    Collection<Integer> results = expected.search(word);
+                    assertEquals(results, segmented.search(word));
+                    assertEquals(results.size(), segmented.searchWithCount(word, 3).totalResults);
+                    assertEquals(Math.min(3, results.size()), segmented.searchWithCount(word, 3).results.size());
+                    assertEquals(Math.min(2, results.size()), segmented.search(word, 2).size());
+                    assertEquals(results.size(), segmented.search(word, buffer));
+                }
+            }
+        }
+        assertNull(segmented.search(chars("e")));
+    }
+
+    private static List<Character> chars(String s) {
+        List<Character> ret = new ArrayList<Character>();
+        for (char c : s.toCharArray()) {
+            ret.add(c);
+        }
+        return ret;
+    }
+}
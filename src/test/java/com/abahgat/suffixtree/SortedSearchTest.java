@@ -0,0 +1,209 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SortedSearchTest extends TestCase {
+
+    private static final String[] WORDS = {"", "a", "ab", "ba", "abc", "cab", "dd", "abcd", "zz"};
+
+    private List<String> keys;
+    private int[] indexes;
+
+    @Override
+    protected void setUp() {
+        // enough keys for the lists close to the root to be packed, over several blocks
+        Random random = new Random(5);
+        keys = new ArrayList<String>();
+        indexes = new int[3000];
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key.toString());
+            // some keys share their index, and some indexes are skipped
+            indexes[i] = 2 * i - i % 3 / 2;
+        }
+    }
+
+    public void testSortedMatchesSearch() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        assertSortedMatchesSearch(tree);
+    }
+
+    public void testPages() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        for (SortOrder order : SortOrder.values()) {
+            for (int pageSize : new int[] {1, 7, 128, 1000}) {
+                List<Integer> all = new ArrayList<Integer>();
+                int[] page = tree.searchSorted("ab", order, pageSize);
+                while (page.length > 0) {
+                    assertTrue(page.length <= pageSize);
+                    for (int index : page) {
+                        all.add(index);
+                    }
+                    page = tree.searchSorted("ab", order, pageSize, page[page.length - 1]);
+                }
+                assertEquals(expected(tree, "ab", order), all);
+            }
+        }
+    }
+
+    public void testPageAfterAnyIndex() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        List<Integer> ascending = expected(tree, "a", SortOrder.ASCENDING);
+        for (int after : new int[] {-5, 0, 1, 1000, 1001, 3000, 5997, 6000}) {
+            List<Integer> greater = new ArrayList<Integer>();
+            List<Integer> smaller = new ArrayList<Integer>();
+            for (int index : ascending) {
+                if (index > after) {
+                    greater.add(index);
+                } else if (index < after) {
+                    smaller.add(0, index);
+                }
+            }
+            assertEquals(greater.subList(0, Math.min(50, greater.size())),
+                    toList(tree.searchSorted("a", SortOrder.ASCENDING, 50, after)));
+            assertEquals(smaller.subList(0, Math.min(50, smaller.size())),
+                    toList(tree.searchSorted("a", SortOrder.DESCENDING, 50, after)));
+        }
+    }
+
+    public void testPagesAfterRemovalsAndReading() throws IOException {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.putAll(keys, indexes);
+        // leaves the first and last indexes counted in many subtrees removed
+        for (int i = 0; i < indexes.length; i += 7) {
+            tree.remove(indexes[i]);
+        }
+        assertPagesAfter(tree);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        assertPagesAfter(CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    public void testOneKeyAtATimeAndAfterReading() throws IOException {
+        CharSuffixTree tree = new CharSuffixTree();
+        for (int i = 0; i < indexes.length; ++i) {
+            tree.put(keys.get(i), indexes[i]);
+        }
+        assertSortedMatchesSearch(tree);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.write(out);
+        assertSortedMatchesSearch(CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    public void testLeavesOutRemovedIndexes() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setCompactionThreshold(2);
+        tree.putAll(keys, indexes);
+        for (int i = 0; i < indexes.length; i += 5) {
+            tree.remove(indexes[i]);
+        }
+        assertSortedMatchesSearch(tree);
+        assertEquals(0, tree.searchSorted("zz", SortOrder.ASCENDING, -1).length);
+    }
+
+    public void testSegments() {
+        SegmentedSuffixTree<Character> segmented = new SegmentedSuffixTree<Character>(2000, new TieredMergePolicy(100, 0));
+        GeneralizedSuffixTree<Character> tree = new GeneralizedSuffixTree<Character>();
+        for (int i = 0; i < indexes.length; ++i) {
+            List<Character> key = toChars(keys.get(i));
+            segmented.put(key, indexes[i]);
+            tree.put(key, indexes[i]);
+        }
+        assertTrue(segmented.getSegmentCount() > 1);
+        for (String word : WORDS) {
+            List<Character> w = toChars(word);
+            for (SortOrder order : SortOrder.values()) {
+                assertTrue(word, Arrays.equals(tree.searchSorted(w, order, 40), segmented.searchSorted(w, order, 40)));
+                assertTrue(word, Arrays.equals(tree.searchSorted(w, order, 40, 3000), segmented.searchSorted(w, order, 40, 3000)));
+            }
+        }
+    }
+
+    private void assertSortedMatchesSearch(CharSuffixTree tree) {
+        for (String word : WORDS) {
+            for (SortOrder order : SortOrder.values()) {
+                List<Integer> expected = expected(tree, word, order);
+                assertEquals(word, expected, toList(tree.searchSorted(word, order, -1)));
+                assertEquals(word, expected.subList(0, Math.min(10, expected.size())), toList(tree.searchSorted(word, order, 10)));
+            }
+        }
+    }
+
+    private static void assertPagesAfter(CharSuffixTree tree) {
+        for (String word : WORDS) {
+            for (SortOrder order : SortOrder.values()) {
+                List<Integer> all = expected(tree, word, order);
+                for (int after : new int[] {0, 2, 999, 3001, 5000, 5996}) {
+                    List<Integer> page = new ArrayList<Integer>();
+                    for (int index : all) {
+                        if (page.size() < 20 && (order == SortOrder.ASCENDING ? index > after : index < after)) {
+                            page.add(index);
+                        }
+                    }
+                    assertEquals(word + " " + order + " " + after, page,
+                            toList(tree.searchSorted(word, order, 20, after)));
+                }
+            }
+        }
+    }
+
+    private static List<Integer> expected(CharSuffixTree tree, String word, SortOrder order) {
+        Collection<Integer> found = tree.search(word);
+        List<Integer> ret = found == null ? new ArrayList<Integer>() : new ArrayList<Integer>(found);
+        Collections.sort(ret);
+        if (order == SortOrder.DESCENDING) {
+            Collections.reverse(ret);
+        }
+        return ret;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> ret = new ArrayList<Integer>();
+        for (int v : values) {
+            ret.add(v);
+        }
+        return ret;
+    }
+
+    private static List<Character> toChars(String s) {
+        List<Character> ret = new ArrayList<Character>();
+        for (char c : s.toCharArray()) {
+            ret.add(c);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class SuffixArrayTest extends TestCase {
+
+    public void testSameResultsAsTree() {
+        Random random = new Random(11);
+        List<String> keys = new ArrayList<String>();
+        int[] indexes = new int[400];
+        CharSuffixTree tree = new CharSuffixTree();
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key.toString());
+            // some keys share their index
+            indexes[i] = i / 2;
+            tree.put(key, indexes[i]);
+        }
+        CharSuffixArray array = new CharSuffixArray(keys, indexes);
+
+        assertEquals(tree.computeCount(), array.computeCount());
+        ResultBuffer buffer = new ResultBuffer();
+        for (String key : keys) {
+            for (int begin = 0; begin < key.length(); ++begin) {
+                for (int end = begin + 1; end <= key.length(); ++end) {
+                    String word = key.substring(begin, end);
+                    Collection<Integer> expected = tree.search(word);
+                    assertEquals(expected, array.search(word));
+                    assertEquals(expected.size(), array.searchWithCount(word, 5).totalResults);
+                    assertEquals(Math.min(5, expected.size()), array.searchWithCount(word, 5).results.size());
+                    assertTrue(expected.containsAll(array.searchWithCount(word, 5).results));
+                    assertEquals(Math.min(3, expected.size()), array.search(word, 3).size());
+
+                    assertEquals(expected.size(), array.search(word, buffer));
+                    Collection<Integer> found = new HashSet<Integer>();
+                    for (int i = 0; i < buffer.size(); ++i) {
+                        found.add(buffer.get(i));
+                    }
+                    assertEquals(expected, found);
+                }
+            }
+        }
+        assertEquals(tree.search(""), array.search(""));
+    }
+
+    public void testMissingWords() {
+        CharSuffixArray array = new CharSuffixArray(Arrays.asList("banana", "bandana"), new int[] {0, 1});
+        assertNull(array.search("nab"));
+        assertNull(array.search("bananas"));
+        assertNull(array.search("z"));
+        // matches never span two keys
+        assertNull(array.search("aband"));
+        assertEquals(0, array.searchWithCount("aband", 10).totalResults);
+        assertTrue(array.searchWithCount("aband", 10).results.isEmpty());
+        ResultBuffer buffer = new ResultBuffer();
+        assertEquals(0, array.search("aband", buffer));
+        assertEquals(new HashSet<Integer>(Arrays.asList(0, 1)), array.search("ana"));
+        assertEquals(Collections.singleton(1), array.search("dan"));
+    }
+
+    public void testEmpty() {
+        CharSuffixArray array = new CharSuffixArray(Collections.<String>emptyList(), new int[0]);
+        assertEquals(0, array.computeCount());
+        assertNull(array.search("a"));
+        assertEquals(0, array.searchWithCount("a", 1).totalResults);
+    }
+
+    public void testIndexesOutOfOrder() {
+        try {
+            new CharSuffixArray(Arrays.asList("a", "b"), new int[] {1, 0});
+            fail("Indexes out of order should be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            new CharSuffixArray(Arrays.asList("a", "b"), new int[] {0});
+            fail("Indexes not matching keys should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testIntKeys() {
+        List<int[]> keys = Arrays.asList(new int[] {-5, 1000000, 7}, new int[] {7, -5}, new int[] {1000000, 7, -5});
+        IntSuffixArray array = new IntSuffixArray(keys, new int[] {3, 4, 9});
+        assertEquals(3, array.computeCount());
+        assertEquals(new HashSet<Integer>(Arrays.asList(3, 9)), array.search(new int[] {1000000, 7}));
+        assertEquals(new HashSet<Integer>(Arrays.asList(4, 9)), array.search(new int[] {7, -5}));
+        assertEquals(3, array.searchWithCount(new int[] {7}, 1).totalResults);
+        assertNull(array.search(new int[] {42}));
+        assertNull(array.search(new int[] {-5, 7}));
+    }
+
+    public void testGenericKeys() {
+        List<List<String>> keys = new ArrayList<List<String>>();
+        keys.add(Arrays.asList("to", "be", "or", "not", "to", "be"));
+        keys.add(Arrays.asList("let", "it", "be"));
+        GeneralizedSuffixArray<String> array = new GeneralizedSuffixArray<String>(keys, new int[] {0, 1});
+        assertEquals(new HashSet<Integer>(Arrays.asList(0, 1)), array.search(Arrays.asList("be")));
+        assertEquals(Collections.singleton(0), array.search(Arrays.asList("to", "be")));
+        assertEquals(1, array.searchWithCount(Arrays.asList("not", "to"), 10).totalResults);
+        assertNull(array.search(Arrays.asList("be", "let")));
+        assertNull(array.search(Arrays.asList("question")));
+    }
+
+    public void testSorterMatchesNaiveSort() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; ++round) {
+            int alphabet = 2 + random.nextInt(4);
+            final int[] text = new int[1 + random.nextInt(60)];
+            for (int i = 0; i < text.length - 1; ++i) {
+                text[i] = 1 + random.nextInt(alphabet - 1);
+            }
+            Integer[] expected = new Integer[text.length];
+            for (int i = 0; i < text.length; ++i) {
+                expected[i] = i;
+            }
+            Arrays.sort(expected, (a, b) -> {
+                while (text[a] == text[b]) {
+                    a++;
+                    b++;
+                }
+                return text[a] - text[b];
+            });
+            int[] sa = SuffixSorter.sort(text, alphabet);
+            for (int i = 0; i < text.length; ++i) {
+                assertEquals(expected[i].intValue(), sa[i]);
+            }
+            int[] lcp = SuffixSorter.lcp(text, sa, 1);
+            for (int i = 1; i < text.length; ++i) {
+                int h = 0;
+                while (text[sa[i] + h] == text[sa[i - 1] + h] && text[sa[i] + h] >= 1) {
+                    h++;
+                }
+                assertEquals(h, lcp[i]);
+            }
+        }
+    }
+
+    public void testWaveletMatrixCounts() {
+        Random random = new Random(3);
+        int[] values = new int[1000];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = random.nextInt(700);
+        }
+        WaveletMatrix matrix = new WaveletMatrix(values);
+        for (int round = 0; round < 2000; ++round) {
+            int begin = random.nextInt(values.length + 1);
+            int end = begin + random.nextInt(values.length + 1 - begin);
+            int bound = random.nextInt(800);
+            int expected = 0;
+            for (int i = begin; i < end; ++i) {
+                if (values[i] < bound) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, matrix.countLess(begin, end, bound));
+        }
+    }
+}
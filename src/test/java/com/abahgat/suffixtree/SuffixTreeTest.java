@@ -229,6 +229,79 @@ public class SuffixTreeTest extends TestCase {
         assertNull(in.search("aoca"));
     }
 
+    public void testLimitedSearch() {
+        GeneralizedSuffixTree in = new GeneralizedSuffixTree();
+        String[] words = new String[] {"a", "ab", "abc", "abcd", "xabcd", "xxabcd", "bca"};
+        for (int i = 0; i < words.length; ++i) {
+            in.put(words[i], i);
+        }
+
+        Collection<Integer> all = in.search("a");
+        assertEquals(words.length, all.size());
+        for (TraversalOrder order : TraversalOrder.values()) {
+            for (int n = 0; n <= words.length + 1; ++n) {
+                Collection<Integer> some = in.search(mL("a"), n, order);
+                assertEquals(Math.min(n, words.length), some.size());
+                assertTrue(all.containsAll(some));
+            }
+        }
+
+        // "a" and "bca" end right after the match, so they are stored on the matching node itself
+        Collection<Integer> shortest = in.search(mL("a"), 2, TraversalOrder.BREADTH_FIRST);
+        assertTrue(shortest.contains(0));
+        assertTrue(shortest.contains(6));
+    }
+
+    public void testIncrementalCount() {
+        GeneralizedSuffixTree in = new GeneralizedSuffixTree();
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 60; ++i) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                word.append((char) ('a' + random.nextInt(3)));
+            }
+            // some indexes are used twice in a row
+            in.put(word.toString(), i - i % 4 / 3);
+
+            testAllResultsCount(in.getRoot());
+            GeneralizedSuffixTree.ResultInfo info = in.searchWithCount(mL(word.substring(0, 1)), 1);
+            assertEquals(in.search(word.substring(0, 1)).size(), info.totalResults);
+        }
+    }
+
+    private void testAllResultsCount(Node n) {
+        assertEquals(n.getData(-1).size(), n.getResultCount());
+        for (Edge e : n.getEdges().values()) {
+            testAllResultsCount(e.getDest());
+        }
+    }
+
+    public void testManyIndexesPerNode() {
+        GeneralizedSuffixTree in = new GeneralizedSuffixTree();
+        for (int i = 0; i < 1000; ++i) {
+            in.put(i % 2 == 0 ? "cacao" : "banana", i * 131);
+        }
+
+        Collection<Integer> result = in.search("ca");
+        assertEquals(500, result.size());
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(result.contains(i * 131));
+        }
+        assertEquals(1000, in.search("a").size());
+        assertEquals(1000, in.computeCount());
+    }
+
+    public void testUncachedSymbols() {
+        // symbols are compared by equality, so boxed chars outside the Character cache must be found as well
+        GeneralizedSuffixTree in = new GeneralizedSuffixTree();
+        String word = "\u00e0\u00e8\u00ec\u00f2\u00f9\u00e0\u00e8";
+        in.put(word, 0);
+        for (String s : getSubstrings(word)) {
+            assertTrue(in.search(s).contains(0));
+        }
+    }
+
     private void testResultsCount(Node n) {
         for (Edge e : n.getEdges().values()) {
             assertEquals(n.getData(-1).size(), n.getResultCount());
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class SymbolStoreTest extends TestCase {
+
+    public void testTexts() {
+        CharSymbolStore store = new CharSymbolStore();
+        assertEquals(0, store.add("cacao"));
+        assertEquals(1, store.add(""));
+        assertEquals(2, store.add("bookkeeper"));
+
+        assertEquals(3, store.texts());
+        assertEquals(15, store.size());
+        assertEquals(0, store.textBegin(0));
+        assertEquals(5, store.textEnd(0));
+        assertEquals(5, store.textBegin(1));
+        assertEquals(5, store.textEnd(1));
+        assertEquals(5, store.textBegin(2));
+        assertEquals(15, store.textEnd(2));
+        assertEquals('b', store.get(5));
+        assertTrue(store.regionMatches(1, new int[] {'x', 'a', 'c'}, 1, 2));
+        assertFalse(store.regionMatches(1, new int[] {'a', 'c'}, 1, 2));
+        assertTrue(store.regionMatches(8, 9, 1));
+    }
+
+    public void testPageBoundaries() {
+        IntSymbolStore store = new IntSymbolStore();
+        int[] key = new int[SymbolStore.PAGE_SIZE + 10];
+        for (int i = 0; i < key.length; ++i) {
+            key[i] = i;
+        }
+        store.add(new int[] {-1, -2, -3});
+        store.add(key);
+        store.add(key);
+
+        for (int i = 0; i < key.length; ++i) {
+            assertEquals(i, store.get(store.textBegin(1) + i));
+            assertEquals(i, store.get(store.textBegin(2) + i));
+        }
+        assertTrue(store.regionMatches(store.textBegin(1), store.textBegin(2), key.length));
+        assertTrue(store.regionMatches(store.textBegin(2) + SymbolStore.PAGE_SIZE - 5, key, SymbolStore.PAGE_SIZE - 5, 15));
+    }
+
+    public void testSymbolsAreComparedByEquality() {
+        // symbols that are not interned are given the same code as equal ones
+        GeneralizedSuffixTree<String> tokens = new GeneralizedSuffixTree<String>();
+        tokens.put(Arrays.asList(new String("red"), new String("green"), new String("blue")), 0);
+        assertTrue(tokens.search(Arrays.asList(new String("green"), new String("blue"))).contains(0));
+        assertNull(tokens.search(Arrays.asList(new String("blue"), new String("green"))));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+public class TreeMetricsTest extends TestCase {
+
+    public void testNoMetricsByDefault() {
+        assertSame(TreeMetrics.NONE, new CharSuffixTree().getMetrics());
+    }
+
+    public void testCounts() {
+        CountingTreeMetrics metrics = new CountingTreeMetrics();
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.setMetrics(metrics);
+        tree.put("banana", 0);
+        tree.put("bandana", 1);
+        assertEquals(2, metrics.getPuts());
+        assertTrue(metrics.getPutNanos() > 0);
+        assertTrue(metrics.getMaxPutNanos() > 0);
+        assertTrue(metrics.getNodesCreated() > 0);
+        assertTrue(metrics.getEdgesCreated() >= metrics.getNodesCreated());
+        assertTrue(metrics.getSplits() > 0);
+
+        assertEquals(2, tree.search("an").size());
+        assertNull(tree.search("x"));
+        assertEquals(2, metrics.getSearches());
+        assertTrue(metrics.getSearchDepth() >= 1);
+        assertEquals(1, metrics.getCollections());
+        assertEquals(2, metrics.getResults());
+        assertTrue(metrics.getNodesVisited() >= 2);
+
+        assertEquals(2, tree.computeCount());
+        assertEquals(1, metrics.getCounts());
+
+        metrics.reset();
+        assertEquals(0, metrics.getPuts());
+        assertEquals(0, metrics.getSearches());
+
+        tree.setMetrics(TreeMetrics.NONE);
+        tree.put("cabana", 2);
+        tree.search("a");
+        assertEquals(0, metrics.getPuts());
+        assertEquals(0, metrics.getSearches());
+    }
+
+    public void testSegments() {
+        CountingTreeMetrics metrics = new CountingTreeMetrics();
+        SegmentedSuffixTree<Character> tree = new SegmentedSuffixTree<Character>(4, new TieredMergePolicy(100, 0));
+        tree.setMetrics(metrics);
+        tree.put(Arrays.asList('a', 'b', 'c', 'd'), 0);
+        tree.put(Arrays.asList('b', 'c'), 1);
+        assertEquals(2, tree.getSegmentCount());
+        assertEquals(2, metrics.getPuts());
+        tree.search(Arrays.asList('b'));
+        assertEquals(2, metrics.getSearches());
+    }
+
+    public void testJmx() throws Exception {
+        CountingTreeMetrics metrics = new CountingTreeMetrics();
+        ObjectName name = metrics.register("test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            CharSuffixTree tree = new CharSuffixTree();
+            tree.setMetrics(metrics);
+            tree.put("banana", 0);
+            assertEquals(1L, server.getAttribute(name, "Puts"));
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(name, "Puts"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
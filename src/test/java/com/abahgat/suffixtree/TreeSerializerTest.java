@@ -0,0 +1,134 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import static com.abahgat.suffixtree.Utils.getSubstrings;
+
+public class TreeSerializerTest extends TestCase {
+
+    private static final String[] WORDS = new String[] {"banana", "bano", "ba", "cabana", "cacao", "\u65e5\u672c\u8a9e"};
+
+    public void testCharTreeRoundTrip() throws IOException {
+        CharSuffixTree in = new CharSuffixTree();
+        for (int i = 0; i < WORDS.length; ++i) {
+            in.put(WORDS[i], i);
+        }
+        // enough indexes on one node to have them packed
+        for (int i = 0; i < 200; ++i) {
+            in.put("anaconda", 100 + i);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.write(out);
+        CharSuffixTree loaded = CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray()));
+
+        for (String word : WORDS) {
+            for (String s : getSubstrings(word)) {
+                assertEquals(in.search(s), loaded.search(s));
+                assertEquals(in.searchWithCount(s, 3).totalResults, loaded.searchWithCount(s, 3).totalResults);
+            }
+        }
+        assertEquals(203, loaded.search("an").size());
+        assertNull(loaded.search("nab"));
+        assertEquals(in.computeCount(), loaded.computeCount());
+
+        // a loaded tree keeps growing like the original one
+        in.put("nabana", 300);
+        loaded.put("nabana", 300);
+        for (String s : getSubstrings("nabana")) {
+            assertEquals(in.search(s), loaded.search(s));
+            assertEquals(in.searchWithCount(s, 1).totalResults, loaded.searchWithCount(s, 1).totalResults);
+        }
+        try {
+            loaded.put("banana", 299);
+            fail("smaller indexes must still be rejected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testIntTreeRoundTrip() throws IOException {
+        IntSuffixTree in = new IntSuffixTree();
+        in.put(new int[] {1000, 2000, 1000, 2000, 3000}, 0);
+        in.put(new int[] {-5, 1000, 2000}, 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.write(out);
+        IntSuffixTree loaded = IntSuffixTree.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, loaded.search(new int[] {1000, 2000}).size());
+        assertEquals(1, loaded.search(new int[] {2000, 3000}).size());
+        assertNull(loaded.search(new int[] {3000, 1000}));
+    }
+
+    public void testGenericTreeRoundTrip() throws IOException, ClassNotFoundException {
+        GeneralizedSuffixTree<String> in = new GeneralizedSuffixTree<String>();
+        in.put(Arrays.asList("to", "be", "or", "not", "to", "be"), 0);
+        in.put(Arrays.asList("not", "to", "say"), 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.write(out);
+        GeneralizedSuffixTree<String> loaded = GeneralizedSuffixTree.read(new ByteArrayInputStream(out.toByteArray()));
+
+        List<String> word = Arrays.asList("not", "to");
+        assertEquals(in.search(word), loaded.search(word));
+        assertEquals(2, loaded.search(word).size());
+        assertNull(loaded.search(Arrays.asList("to", "say", "be")));
+
+        // new symbols get codes that don't clash with the loaded ones
+        loaded.put(Arrays.asList("question", "to"), 2);
+        assertEquals(3, loaded.search(Arrays.asList("to")).size());
+        assertEquals(1, loaded.search(Arrays.asList("question")).size());
+    }
+
+    public void testRejectsOtherData() throws IOException {
+        try {
+            CharSuffixTree.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+            fail("garbage must not be loaded");
+        } catch (IOException expected) {
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new IntSuffixTree().write(out);
+        try {
+            CharSuffixTree.read(new ByteArrayInputStream(out.toByteArray()));
+            fail("a tree must not be loaded as a different kind of tree");
+        } catch (IOException expected) {
+        }
+
+        byte[] bytes = out.toByteArray();
+        bytes[7] = 99;
+        try {
+            IntSuffixTree.read(new ByteArrayInputStream(bytes));
+            fail("unknown versions must be rejected");
+        } catch (IOException expected) {
+        }
+
+        bytes[7] = 1;
+        try {
+            IntSuffixTree.read(new ByteArrayInputStream(bytes));
+            fail("version 1 streams must be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("no longer supported"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012 Alessandro Bahgat Shehata
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.abahgat.suffixtree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TreeStatsTest extends TestCase {
+
+    public void testSmallTree() {
+        CharSuffixTree tree = new CharSuffixTree();
+        tree.put("banana", 0);
+        tree.put("bandana", 1);
+        TreeStats stats = tree.computeStats();
+
+        assertEquals(stats.getNodes() - 1, stats.getEdges());
+        assertEquals(stats.getNodes(), sum(stats.getFanOutHistogram()));
+        assertEquals(stats.getLeaves(), stats.getFanOutHistogram()[0]);
+        assertEquals(stats.getNodes(), sum(stats.getPostingLengthHistogram()));
+        assertEquals(stats.getNodes(), sum(stats.getSuffixChainHistogram()));
+        assertEquals(13, stats.getStoreSymbols());
+        assertEquals(2, stats.getKeys());
+        assertEquals(0, stats.getPackedLists());
+        assertTrue(stats.getPostings() >= 13);
+        assertTrue(stats.getLabelSymbols() >= 13);
+        assertTrue(stats.getMaxSuffixChain() > 0);
+        assertEquals(stats.getNodeBytes() + stats.getEdgeBytes() + stats.getEdgeBagBytes() + stats.getPostingBytes()
+                + stats.getStoreBytes(), stats.getTotalBytes());
+        assertTrue(stats.getPostingBytes() > 0);
+        assertTrue(stats.toString().contains("nodes: " + stats.getNodes()));
+    }
+
+    public void testSameStructureWhateverTheBuild() {
+        Random random = new Random(13);
+        List<String> keys = new ArrayList<String>();
+        int[] indexes = new int[2000];
+        for (int i = 0; i < indexes.length; ++i) {
+            StringBuilder key = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; ++j) {
+                key.append((char) ('a' + random.nextInt(4)));
+            }
+            keys.add(key.toString());
+            indexes[i] = i;
+        }
+        CharSuffixTree one = new CharSuffixTree();
+        for (int i = 0; i < indexes.length; ++i) {
+            one.put(keys.get(i), indexes[i]);
+        }
+        CharSuffixTree all = new CharSuffixTree();
+        all.putAll(keys, indexes);
+
+        TreeStats a = one.computeStats();
+        TreeStats b = all.computeStats();
+        assertEquals(a.getNodes(), b.getNodes());
+        assertEquals(a.getLabelSymbols(), b.getLabelSymbols());
+        assertEquals(a.getPostings(), b.getPostings());
+        assertTrue(a.getPackedLists() > 0);
+        assertEquals(0, b.getMissingSuffixLinks());
+        assertTrue(a.getTotalBytes() > a.getStoreBytes());
+    }
+
+    private static long sum(long[] histogram) {
+        long ret = 0;
+        for (long v : histogram) {
+            ret += v;
+        }
+        return ret;
+    }
+}